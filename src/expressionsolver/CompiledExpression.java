@@ -0,0 +1,253 @@
+package expressionsolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.nfunk.jep.ASTConstant;
+import org.nfunk.jep.ASTFunNode;
+import org.nfunk.jep.ASTVarNode;
+import org.nfunk.jep.Node;
+import org.nfunk.jep.function.Add;
+import org.nfunk.jep.function.Divide;
+import org.nfunk.jep.function.Multiply;
+import org.nfunk.jep.function.PostfixMathCommandI;
+import org.nfunk.jep.function.Power;
+import org.nfunk.jep.function.Subtract;
+import org.nfunk.jep.function.UMinus;
+
+/**
+ * Floating-point expression compiled into a flat postfix program, whose
+ * variables are resolved to slots of a values array.
+ *
+ * Unlike {@link Expression}, which binds variables in the (mutable) symbol
+ * table of its parser, a compiled expression is immutable. Thus, a single
+ * instance can be shared by any number of threads, and evaluating it costs
+ * no more than a loop over an array of doubles.
+ *
+ * Only arithmetic operators (+, -, *, /, ^ and unary minus) are supported,
+ * which is all the parametric model checker outputs.
+ */
+public class CompiledExpression {
+    private static final Logger LOGGER = Logger.getLogger(CompiledExpression.class.getName());
+
+    private static final byte CONSTANT = 0;
+    private static final byte VARIABLE = 1;
+    private static final byte ADD = 2;
+    private static final byte SUBTRACT = 3;
+    private static final byte MULTIPLY = 4;
+    private static final byte DIVIDE = 5;
+    private static final byte POWER = 6;
+    private static final byte NEGATE = 7;
+
+    private final byte[] operations;
+    // Constant value or variable slot of each operation, if any.
+    private final double[] constants;
+    private final int[] slots;
+    private final int maxStackDepth;
+    private final List<String> variables;
+    private final Map<String, Integer> slotsByName;
+
+    private CompiledExpression(byte[] operations, double[] constants, int[] slots, int maxStackDepth, List<String> variables) {
+        this.operations = operations;
+        this.constants = constants;
+        this.slots = slots;
+        this.maxStackDepth = maxStackDepth;
+        this.variables = Collections.unmodifiableList(variables);
+        this.slotsByName = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < variables.size(); i++) {
+            slotsByName.put(variables.get(i), i);
+        }
+    }
+
+    /**
+     * Compiles an expression from its JEP parse tree.
+     *
+     * @throws IllegalArgumentException if the expression uses an unsupported
+     *      function or a non-numeric constant.
+     */
+    static CompiledExpression compile(Node topNode) {
+        Compiler compiler = new Compiler();
+        compiler.emit(topNode);
+        return compiler.build();
+    }
+
+    /**
+     * @return the names of the variables in this expression, in the order
+     *      of their slots.
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @return the slot of the given variable, or -1 if the expression does
+     *      not depend on it.
+     */
+    public int getSlot(String variable) {
+        Integer slot = slotsByName.get(variable);
+        return (slot == null) ? -1 : slot;
+    }
+
+    /**
+     * Solves this expression for the given values of its variables.
+     *
+     * @param values Value of each variable, indexed by its slot.
+     */
+    public double solve(double[] values) {
+        double[] stack = new double[maxStackDepth];
+        int top = -1;
+        for (int pc = 0; pc < operations.length; pc++) {
+            switch (operations[pc]) {
+            case CONSTANT:
+                stack[++top] = constants[pc];
+                break;
+            case VARIABLE:
+                stack[++top] = values[slots[pc]];
+                break;
+            case ADD:
+                top--;
+                stack[top] += stack[top + 1];
+                break;
+            case SUBTRACT:
+                top--;
+                stack[top] -= stack[top + 1];
+                break;
+            case MULTIPLY:
+                top--;
+                stack[top] *= stack[top + 1];
+                break;
+            case DIVIDE:
+                top--;
+                stack[top] /= stack[top + 1];
+                break;
+            case POWER:
+                top--;
+                stack[top] = Math.pow(stack[top], stack[top + 1]);
+                break;
+            case NEGATE:
+                stack[top] = -stack[top];
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operations[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Solves this expression with respect to the given interpretation of
+     * variables, as {@link Expression#solve(Map)} does.
+     */
+    public double solve(Map<String, Double> interpretation) {
+        double[] values = new double[variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            Double value = interpretation.get(variables.get(i));
+            if (value == null) {
+                LOGGER.warning("No interpretation for variable <"+variables.get(i)+"> was provided");
+                value = Double.NaN;
+            }
+            values[i] = value;
+        }
+        return solve(values);
+    }
+
+    /**
+     * Post-order traversal of a parse tree, keeping track of the stack depth.
+     */
+    private static class Compiler {
+        private byte[] operations = new byte[16];
+        private double[] constants = new double[16];
+        private int[] slots = new int[16];
+        private int size = 0;
+        private int depth = 0;
+        private int maxDepth = 0;
+        private List<String> variables = new ArrayList<String>();
+        private Map<String, Integer> slotsByName = new LinkedHashMap<String, Integer>();
+
+        void emit(Node node) {
+            if (node instanceof ASTConstant) {
+                Object value = ((ASTConstant) node).getValue();
+                if (!(value instanceof Number)) {
+                    throw new IllegalArgumentException("Unsupported constant: " + value);
+                }
+                push(CONSTANT, ((Number) value).doubleValue(), 0);
+            } else if (node instanceof ASTVarNode) {
+                String name = ((ASTVarNode) node).getName();
+                Integer slot = slotsByName.get(name);
+                if (slot == null) {
+                    slot = variables.size();
+                    variables.add(name);
+                    slotsByName.put(name, slot);
+                }
+                push(VARIABLE, 0, slot);
+            } else if (node instanceof ASTFunNode) {
+                emitFunction((ASTFunNode) node);
+            } else {
+                // Parentheses and the like.
+                for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                    emit(node.jjtGetChild(i));
+                }
+            }
+        }
+
+        private void emitFunction(ASTFunNode node) {
+            PostfixMathCommandI function = node.getPFMC();
+            int arity = node.jjtGetNumChildren();
+            byte operation;
+            if (function instanceof UMinus && arity == 1) {
+                operation = NEGATE;
+            } else if (function instanceof Add && arity >= 2) {
+                operation = ADD;
+            } else if (function instanceof Subtract && arity == 2) {
+                operation = SUBTRACT;
+            } else if (function instanceof Multiply && arity >= 2) {
+                operation = MULTIPLY;
+            } else if (function instanceof Divide && arity == 2) {
+                operation = DIVIDE;
+            } else if (function instanceof Power && arity == 2) {
+                operation = POWER;
+            } else {
+                throw new IllegalArgumentException("Unsupported function: " + node.getName());
+            }
+            emit(node.jjtGetChild(0));
+            if (operation == NEGATE) {
+                push(NEGATE, 0, 0);
+                depth--;
+            }
+            // N-ary sums and products are folded from left to right.
+            for (int i = 1; i < arity; i++) {
+                emit(node.jjtGetChild(i));
+                push(operation, 0, 0);
+                depth -= 2;
+            }
+        }
+
+        private void push(byte operation, double constant, int slot) {
+            if (size == operations.length) {
+                operations = Arrays.copyOf(operations, 2*size);
+                constants = Arrays.copyOf(constants, 2*size);
+                slots = Arrays.copyOf(slots, 2*size);
+            }
+            operations[size] = operation;
+            constants[size] = constant;
+            slots[size] = slot;
+            size++;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        CompiledExpression build() {
+            return new CompiledExpression(Arrays.copyOf(operations, size),
+                                          Arrays.copyOf(constants, size),
+                                          Arrays.copyOf(slots, size),
+                                          Math.max(maxDepth, 1),
+                                          variables);
+        }
+    }
+
+}
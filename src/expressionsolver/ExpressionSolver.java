@@ -1,6 +1,7 @@
 package expressionsolver;
 
 import jadd.ADD;
+import jadd.ADDArena;
 import jadd.JADD;
 
 import java.util.HashMap;
@@ -52,11 +53,17 @@ public class ExpressionSolver {
      *         results according to the ADDs involved.
      */
     public ADD solveExpressionAsFunction(String expression, Map<String, ADD> interpretation) {
-        Expression<ADD> parsedExpression = parseExpressionForFunctions(expression);
-        if (parsedExpression == null) {
-            return null;
-        }
-        return parsedExpression.solve(interpretation);
+        // The whole expression is solved as a single batch of ADD operations.
+        return jadd.call(() -> {
+            // Constants and partial results are released once the expression is solved.
+            try (ADDArena arena = jadd.openArena()) {
+                Expression<ADD> parsedExpression = parseExpressionForFunctions(expression);
+                if (parsedExpression == null) {
+                    return null;
+                }
+                return arena.keep(parsedExpression.solve(interpretation));
+            }
+        });
     }
 
     /**
@@ -112,31 +119,35 @@ public class ExpressionSolver {
      * @return
      */
     public ADD encodeFormula(String formula) {
-        JEP parser = makeADDParser(jadd);
-        parser.parseExpression(formula);
-        if (parser.hasError()) {
-            LOGGER.warning("Parser error: " + parser.getErrorInfo());
-            return null;
-        }
-
-        parser.addVariableAsObject("true", jadd.makeConstant(1));
-        parser.addVariableAsObject("True", jadd.makeConstant(1));
-        parser.addVariableAsObject("false", jadd.makeConstant(0));
-        parser.addVariableAsObject("False", jadd.makeConstant(0));
-        SymbolTable symbolTable = parser.getSymbolTable();
-        @SuppressWarnings("unchecked")
-        Set<String> variables = new HashSet<String>(symbolTable.keySet());
-        variables.remove("true");
-        variables.remove("True");
-        variables.remove("false");
-        variables.remove("False");
-
-        for (Object var : variables) {
-            String varName = (String) var;
-            ADD variable = jadd.getVariable(varName);
-            parser.addVariableAsObject(varName, variable);
-        }
-        return (ADD) parser.getValueAsObject();
+        return jadd.call(() -> {
+            try (ADDArena arena = jadd.openArena()) {
+                JEP parser = makeADDParser(jadd);
+                parser.parseExpression(formula);
+                if (parser.hasError()) {
+                    LOGGER.warning("Parser error: " + parser.getErrorInfo());
+                    return null;
+                }
+
+                parser.addVariableAsObject("true", jadd.makeConstant(1));
+                parser.addVariableAsObject("True", jadd.makeConstant(1));
+                parser.addVariableAsObject("false", jadd.makeConstant(0));
+                parser.addVariableAsObject("False", jadd.makeConstant(0));
+                SymbolTable symbolTable = parser.getSymbolTable();
+                @SuppressWarnings("unchecked")
+                Set<String> variables = new HashSet<String>(symbolTable.keySet());
+                variables.remove("true");
+                variables.remove("True");
+                variables.remove("false");
+                variables.remove("False");
+
+                for (Object var : variables) {
+                    String varName = (String) var;
+                    ADD variable = jadd.getVariable(varName);
+                    parser.addVariableAsObject(varName, variable);
+                }
+                return arena.keep((ADD) parser.getValueAsObject());
+            }
+        });
     }
 
     /**
@@ -159,6 +170,24 @@ public class ExpressionSolver {
         return new Expression<Double>(parser, Double.class);
     }
 
+    /**
+     * Alternative to {@link parseExpression(String)} for expressions which
+     * must be evaluated many times, possibly by concurrent threads.
+     *
+     * @param expression
+     * @return A thread-safe compiled expression.
+     * @throws IllegalArgumentException if the expression cannot be parsed
+     *      or if it is not purely arithmetic.
+     */
+    public CompiledExpression compileExpression(String expression) {
+        JEP parser = makeFloatingPointParser();
+        parser.parseExpression(expression);
+        if (parser.hasError()) {
+            throw new IllegalArgumentException("Parser error: " + parser.getErrorInfo());
+        }
+        return CompiledExpression.compile(parser.getTopNode());
+    }
+
     /**
      * Lower level alternative for {@link solveExpressionAsFunction(String)}.
      *
@@ -0,0 +1,535 @@
+package fdtmc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-backed FDTMC.
+ *
+ * States are the ints from 0 to {@code getNumberOfStates()-1}. Transitions
+ * are kept in compressed sparse row (CSR) format: the ones leaving state
+ * {@code s} are numbered from {@code getFirstTransition(s)} (inclusive) to
+ * {@code getFirstTransition(s+1)} (exclusive), in creation order.
+ * Probabilities, action names and labels are interned in a global symbol
+ * table, so that models only hold int ids.
+ *
+ * This is the representation used for the models derived during analyses
+ * (see {@link #inline(Map)} and {@link #decoratedWithPresence(String)}),
+ * whereas {@link FDTMC} remains the API for building models. Both can be
+ * converted into one another with {@link FDTMC#toCompact()} and
+ * {@link FDTMC#fromCompact(CompactFDTMC)}.
+ */
+public final class CompactFDTMC {
+
+    public static final int NO_STATE = -1;
+
+    private static final int INITIAL_LABEL = SymbolTable.intern(FDTMC.INITIAL_LABEL);
+    private static final int SUCCESS_LABEL = SymbolTable.intern(FDTMC.SUCCESS_LABEL);
+    private static final int ERROR_LABEL = SymbolTable.intern(FDTMC.ERROR_LABEL);
+    private static final int ONE = SymbolTable.intern("1");
+    private static final int EMPTY = SymbolTable.intern("");
+
+    private final String variableName;
+    private final int initialState;
+    private final int successState;
+    private final int errorState;
+    private final int[] labels;
+    private final Map<Integer, Integer> statesByLabel;
+
+    private final int[] rowPointers;
+    private final int[] targets;
+    private final int[] probabilities;
+    private final int[] actions;
+
+    // Interfaces, in creation order.
+    private final int[] interfaceIds;
+    private final int[] interfaceInitials;
+    private final int[] interfaceSuccesses;
+    private final int[] interfaceErrors;
+    private final int[] interfaceSuccessTransitions;
+    private final int[] interfaceErrorTransitions;
+
+    private CompactFDTMC(Builder builder, int[] rowPointers, int[] targets, int[] probabilities, int[] actions, int[] transitionPositions) {
+        this.variableName = builder.variableName;
+        this.initialState = builder.initialState;
+        this.successState = builder.successState;
+        this.errorState = builder.errorState;
+        this.labels = builder.labels.toArray();
+        this.rowPointers = rowPointers;
+        this.targets = targets;
+        this.probabilities = probabilities;
+        this.actions = actions;
+
+        this.interfaceIds = builder.interfaceIds.toArray();
+        this.interfaceInitials = builder.interfaceInitials.toArray();
+        this.interfaceSuccesses = builder.interfaceSuccesses.toArray();
+        this.interfaceErrors = builder.interfaceErrors.toArray();
+        this.interfaceSuccessTransitions = new int[interfaceIds.length];
+        this.interfaceErrorTransitions = new int[interfaceIds.length];
+        for (int i = 0; i < interfaceIds.length; i++) {
+            interfaceSuccessTransitions[i] = transitionPositions[builder.interfaceSuccessTransitions.get(i)];
+            interfaceErrorTransitions[i] = transitionPositions[builder.interfaceErrorTransitions.get(i)];
+        }
+
+        this.statesByLabel = new HashMap<Integer, Integer>();
+        for (int state = labels.length - 1; state >= 0; state--) {
+            if (labels[state] != SymbolTable.NONE) {
+                statesByLabel.put(labels[state], state);
+            }
+        }
+    }
+
+    public String getVariableName() {
+        return variableName;
+    }
+
+    public int getNumberOfStates() {
+        return labels.length;
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    public int getSuccessState() {
+        return successState;
+    }
+
+    public int getErrorState() {
+        return errorState;
+    }
+
+    /**
+     * @return the label of the given state, or null if it has none.
+     */
+    public String getLabel(int state) {
+        return SymbolTable.get(labels[state]);
+    }
+
+    /**
+     * @return the first state with the given label, or {@link #NO_STATE} if there is none.
+     */
+    public int getStateByLabel(String label) {
+        Integer state = statesByLabel.get(SymbolTable.intern(label));
+        return (state != null) ? state : NO_STATE;
+    }
+
+    public int getNumberOfTransitions() {
+        return targets.length;
+    }
+
+    /**
+     * @return the first transition leaving {@code state}. Transitions leaving
+     *      it end right before the first one leaving {@code state+1}.
+     */
+    public int getFirstTransition(int state) {
+        return rowPointers[state];
+    }
+
+    public int getTarget(int transition) {
+        return targets[transition];
+    }
+
+    public String getProbability(int transition) {
+        return SymbolTable.get(probabilities[transition]);
+    }
+
+    /**
+     * @return an id which is equal for equal probability expressions
+     *      (of this or any other model).
+     */
+    public int getProbabilityId(int transition) {
+        return probabilities[transition];
+    }
+
+    public String getActionName(int transition) {
+        return SymbolTable.get(actions[transition]);
+    }
+
+    public int getNumberOfInterfaces() {
+        return interfaceIds.length;
+    }
+
+    public String getInterfaceId(int iface) {
+        return SymbolTable.get(interfaceIds[iface]);
+    }
+
+    public int getInterfaceInitial(int iface) {
+        return interfaceInitials[iface];
+    }
+
+    public int getInterfaceSuccess(int iface) {
+        return interfaceSuccesses[iface];
+    }
+
+    public int getInterfaceError(int iface) {
+        return interfaceErrors[iface];
+    }
+
+    public int getInterfaceSuccessTransition(int iface) {
+        return interfaceSuccessTransitions[iface];
+    }
+
+    public int getInterfaceErrorTransition(int iface) {
+        return interfaceErrorTransitions[iface];
+    }
+
+    /**
+     * Inlines the given FDTMCs whenever there is an interface corresponding
+     * to the string in the respective index.
+     *
+     * @see FDTMC#inline(Map)
+     * @param indexedModels
+     * @return a new FDTMC which represents this one with the ones specified
+     *         in {@code indexedModels} inlined.
+     */
+    public CompactFDTMC inline(Map<String, CompactFDTMC> indexedModels) {
+        Builder inlined = new Builder(variableName);
+        int offset = inlined.addStatesOf(this);
+        inlined.addNonInterfaceTransitionsOf(this, offset);
+
+        for (Map.Entry<Integer, List<Integer>> entry: getInterfacesById().entrySet()) {
+            CompactFDTMC fragment = indexedModels.get(SymbolTable.get(entry.getKey()));
+            if (fragment == null) {
+                continue;
+            }
+            for (int iface: entry.getValue()) {
+                int fragmentOffset = inlined.addStatesOf(fragment);
+                inlined.addNonInterfaceTransitionsOf(fragment, fragmentOffset);
+                inlined.addTransition(offset + interfaceInitials[iface],
+                                      fragmentOffset + fragment.initialState,
+                                      ONE,
+                                      EMPTY);
+                inlined.addTransition(fragmentOffset + fragment.successState,
+                                      offset + interfaceSuccesses[iface],
+                                      ONE,
+                                      EMPTY);
+                if (fragment.errorState != NO_STATE) {
+                    inlined.addTransition(fragmentOffset + fragment.errorState,
+                                          offset + interfaceErrors[iface],
+                                          ONE,
+                                          EMPTY);
+                }
+            }
+        }
+        return inlined.build();
+    }
+
+    /**
+     * Returns a copy of this FDTMC decorated with "presence transitions",
+     * i.e., a new initial state with a transition to the original initial
+     * state parameterized by the {@code presenceVariable} and a complement
+     * transition ({@code 1 - presenceVariable}) to the success state
+     * ("short-circuit").
+     *
+     * @see FDTMC#decoratedWithPresence(String)
+     * @param presenceVariable
+     * @return
+     */
+    public CompactFDTMC decoratedWithPresence(String presenceVariable) {
+        return decoratedWithPresence(presenceVariable, null);
+    }
+
+    /**
+     * Variant of {@link #decoratedWithPresence(String)} whose complement
+     * transition leads to the initial state of a copy of {@code ifAbsent},
+     * whose success and error states are in turn linked to the ones of the
+     * result. If {@code ifAbsent} is {@code null}, the complement transition
+     * short-circuits to the success state.
+     */
+    private CompactFDTMC decoratedWithPresence(String presenceVariable, CompactFDTMC ifAbsent) {
+        Builder decorated = new Builder(variableName);
+        int offset = decorated.addStatesOf(this);
+        decorated.addNonInterfaceTransitionsOf(this, offset);
+        decorated.addInterfacesOf(this, offset);
+
+        int oldInitial = decorated.initialState;
+        int newInitial = decorated.addState(SymbolTable.NONE);
+        decorated.setLabel(oldInitial, SymbolTable.NONE);
+        decorated.setLabel(newInitial, INITIAL_LABEL);
+        decorated.setInitialState(newInitial);
+        // Enter the original chain in case of presence
+        decorated.addTransition(newInitial,
+                                oldInitial,
+                                SymbolTable.intern(presenceVariable),
+                                EMPTY);
+        if (ifAbsent == null) {
+            // Short-circuit in case of absence
+            decorated.addTransition(newInitial,
+                                    decorated.successState,
+                                    SymbolTable.intern("1-"+presenceVariable),
+                                    EMPTY);
+            return decorated.build();
+        }
+        // Enter the alternative chain in case of absence
+        int absentOffset = decorated.addStatesOf(ifAbsent);
+        decorated.addNonInterfaceTransitionsOf(ifAbsent, absentOffset);
+        decorated.addInterfacesOf(ifAbsent, absentOffset);
+        decorated.addTransition(newInitial,
+                                absentOffset + ifAbsent.initialState,
+                                SymbolTable.intern("1-"+presenceVariable),
+                                EMPTY);
+        decorated.addTransition(absentOffset + ifAbsent.successState,
+                                decorated.successState,
+                                ONE,
+                                EMPTY);
+        if (ifAbsent.errorState != NO_STATE) {
+            if (decorated.errorState == NO_STATE) {
+                decorated.setErrorState(decorated.addState(ERROR_LABEL));
+            }
+            decorated.addTransition(absentOffset + ifAbsent.errorState,
+                                    decorated.errorState,
+                                    ONE,
+                                    EMPTY);
+        }
+        return decorated.build();
+    }
+
+    /**
+     * Compact counterpart of {@link FDTMC#ifThenElse(String, FDTMC, FDTMC)}.
+     * An {@code ifAbsent} chain without initial or success state (e.g., the
+     * empty FDTMC) stands for doing nothing, so that absence short-circuits
+     * to success, as in {@link #decoratedWithPresence(String)}. Otherwise,
+     * absence leads to a copy of {@code ifAbsent}.
+     */
+    public static CompactFDTMC ifThenElse(String presenceVariable, CompactFDTMC ifPresent, CompactFDTMC ifAbsent) {
+        if (ifAbsent.initialState == NO_STATE || ifAbsent.successState == NO_STATE) {
+            return ifPresent.decoratedWithPresence(presenceVariable);
+        }
+        return ifPresent.decoratedWithPresence(presenceVariable, ifAbsent);
+    }
+
+    /**
+     * Interfaces grouped by abstracted id, in order of first occurrence.
+     */
+    private Map<Integer, List<Integer>> getInterfacesById() {
+        Map<Integer, List<Integer>> interfacesById = new LinkedHashMap<Integer, List<Integer>>();
+        for (int iface = 0; iface < interfaceIds.length; iface++) {
+            interfacesById.computeIfAbsent(interfaceIds[iface], k -> new ArrayList<Integer>()).add(iface);
+        }
+        return interfacesById;
+    }
+
+    private boolean[] getInterfaceTransitions() {
+        boolean[] isInterfaceTransition = new boolean[targets.length];
+        for (int iface = 0; iface < interfaceIds.length; iface++) {
+            isInterfaceTransition[interfaceSuccessTransitions[iface]] = true;
+            isInterfaceTransition[interfaceErrorTransitions[iface]] = true;
+        }
+        return isInterfaceTransition;
+    }
+
+    /**
+     * Incremental construction of a {@link CompactFDTMC}. Transitions may be
+     * added in any order; the ones leaving each state keep their relative order.
+     */
+    public static class Builder {
+        private String variableName;
+        private int initialState = NO_STATE;
+        private int successState = NO_STATE;
+        private int errorState = NO_STATE;
+        private IntArray labels = new IntArray();
+
+        private IntArray sources = new IntArray();
+        private IntArray targets = new IntArray();
+        private IntArray probabilities = new IntArray();
+        private IntArray actions = new IntArray();
+
+        private IntArray interfaceIds = new IntArray();
+        private IntArray interfaceInitials = new IntArray();
+        private IntArray interfaceSuccesses = new IntArray();
+        private IntArray interfaceErrors = new IntArray();
+        private IntArray interfaceSuccessTransitions = new IntArray();
+        private IntArray interfaceErrorTransitions = new IntArray();
+
+        public Builder(String variableName) {
+            this.variableName = variableName;
+        }
+
+        public int addState(String label) {
+            return addState(SymbolTable.intern(label));
+        }
+
+        /**
+         * Sets the initial state. Unlike {@link FDTMC#createInitialState()},
+         * this does not change labels, which are given by {@link #addState(String)}.
+         */
+        public void setInitialState(int state) {
+            initialState = state;
+        }
+
+        public void setSuccessState(int state) {
+            successState = state;
+        }
+
+        public void setErrorState(int state) {
+            errorState = state;
+        }
+
+        /**
+         * @return the index of the new transition, to be used only
+         *      for referring to it in {@link #addInterface}.
+         */
+        public int addTransition(int source, int target, String probability, String actionName) {
+            return addTransition(source, target, SymbolTable.intern(probability), SymbolTable.intern(actionName));
+        }
+
+        public void addInterface(String id, int initial, int success, int error, int successTransition, int errorTransition) {
+            addInterface(SymbolTable.intern(id), initial, success, error, successTransition, errorTransition);
+        }
+
+        public CompactFDTMC build() {
+            int numberOfStates = labels.size();
+            int numberOfTransitions = sources.size();
+            int[] rowPointers = new int[numberOfStates + 1];
+            for (int i = 0; i < numberOfTransitions; i++) {
+                rowPointers[sources.get(i) + 1]++;
+            }
+            for (int state = 0; state < numberOfStates; state++) {
+                rowPointers[state + 1] += rowPointers[state];
+            }
+            // Stable counting sort by source state.
+            int[] fill = Arrays.copyOf(rowPointers, numberOfStates);
+            int[] positions = new int[numberOfTransitions];
+            int[] sortedTargets = new int[numberOfTransitions];
+            int[] sortedProbabilities = new int[numberOfTransitions];
+            int[] sortedActions = new int[numberOfTransitions];
+            for (int i = 0; i < numberOfTransitions; i++) {
+                int position = fill[sources.get(i)]++;
+                positions[i] = position;
+                sortedTargets[position] = targets.get(i);
+                sortedProbabilities[position] = probabilities.get(i);
+                sortedActions[position] = actions.get(i);
+            }
+            return new CompactFDTMC(this, rowPointers, sortedTargets, sortedProbabilities, sortedActions, positions);
+        }
+
+        private int addState(int label) {
+            labels.add(label);
+            return labels.size() - 1;
+        }
+
+        private int addTransition(int source, int target, int probability, int actionName) {
+            sources.add(source);
+            targets.add(target);
+            probabilities.add(probability);
+            actions.add(actionName);
+            return sources.size() - 1;
+        }
+
+        private void addInterface(int id, int initial, int success, int error, int successTransition, int errorTransition) {
+            interfaceIds.add(id);
+            interfaceInitials.add(initial);
+            interfaceSuccesses.add(success);
+            interfaceErrors.add(error);
+            interfaceSuccessTransitions.add(successTransition);
+            interfaceErrorTransitions.add(errorTransition);
+        }
+
+        /**
+         * Adds all states of {@code fdtmc}, stripped of their labels.
+         * If this builder has no states yet, the initial, success and error
+         * states of {@code fdtmc} become the ones of the new FDTMC.
+         *
+         * @return the offset to be added to states of {@code fdtmc} in order
+         *      to get the corresponding states in the new one.
+         */
+        private int addStatesOf(CompactFDTMC fdtmc) {
+            int offset = labels.size();
+            for (int state = 0; state < fdtmc.getNumberOfStates(); state++) {
+                addState(SymbolTable.NONE);
+            }
+            if (offset == 0) {
+                setInitialState(fdtmc.initialState);
+                setSuccessState(fdtmc.successState);
+                setErrorState(fdtmc.errorState);
+                setLabel(initialState, INITIAL_LABEL);
+                setLabel(successState, SUCCESS_LABEL);
+                setLabel(errorState, ERROR_LABEL);
+            }
+            return offset;
+        }
+
+        private void setLabel(int state, int label) {
+            if (state != NO_STATE) {
+                labels.set(state, label);
+            }
+        }
+
+        /**
+         * Adds the interfaces of {@code fdtmc}, along with their transitions,
+         * grouped by abstracted id.
+         */
+        private void addInterfacesOf(CompactFDTMC fdtmc, int offset) {
+            for (List<Integer> occurrences: fdtmc.getInterfacesById().values()) {
+                for (int iface: occurrences) {
+                    int successTransition = fdtmc.interfaceSuccessTransitions[iface];
+                    int errorTransition = fdtmc.interfaceErrorTransitions[iface];
+                    int source = offset + fdtmc.interfaceInitials[iface];
+                    addInterface(fdtmc.interfaceIds[iface],
+                                 source,
+                                 offset + fdtmc.interfaceSuccesses[iface],
+                                 offset + fdtmc.interfaceErrors[iface],
+                                 addTransition(source,
+                                               offset + fdtmc.targets[successTransition],
+                                               fdtmc.probabilities[successTransition],
+                                               fdtmc.actions[successTransition]),
+                                 addTransition(source,
+                                               offset + fdtmc.targets[errorTransition],
+                                               fdtmc.probabilities[errorTransition],
+                                               fdtmc.actions[errorTransition]));
+                }
+            }
+        }
+
+        private void addNonInterfaceTransitionsOf(CompactFDTMC fdtmc, int offset) {
+            boolean[] isInterfaceTransition = fdtmc.getInterfaceTransitions();
+            for (int state = 0; state < fdtmc.getNumberOfStates(); state++) {
+                for (int t = fdtmc.rowPointers[state]; t < fdtmc.rowPointers[state + 1]; t++) {
+                    if (!isInterfaceTransition[t]) {
+                        addTransition(offset + state,
+                                      offset + fdtmc.targets[t],
+                                      fdtmc.probabilities[t],
+                                      fdtmc.actions[t]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable array of primitive ints.
+     */
+    private static class IntArray {
+        private int[] elements = new int[16];
+        private int size = 0;
+
+        void add(int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2*size);
+            }
+            elements[size++] = element;
+        }
+
+        int get(int index) {
+            return elements[index];
+        }
+
+        void set(int index, int element) {
+            elements[index] = element;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package fdtmc;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -324,6 +325,91 @@ public class FDTMC {
         return ifPresent.decoratedWithPresence(presenceVariable);
     }
 
+    /**
+     * Converts this FDTMC into its compact (array-backed) representation.
+     * The state with index {@code i} becomes the compact state {@code i}.
+     *
+     * @return an immutable snapshot of this FDTMC.
+     */
+    public CompactFDTMC toCompact() {
+        CompactFDTMC.Builder builder = new CompactFDTMC.Builder(variableName);
+        for (State state: states) {
+            builder.addState(state.getLabel());
+        }
+        builder.setInitialState(indexOf(initialState));
+        builder.setSuccessState(indexOf(successState));
+        builder.setErrorState(indexOf(errorState));
+
+        Map<Transition, Integer> transitionIndices = new IdentityHashMap<Transition, Integer>();
+        for (Map.Entry<State, List<Transition>> entry: transitionSystem.entrySet()) {
+            if (entry.getValue() != null) {
+                for (Transition transition: entry.getValue()) {
+                    int index = builder.addTransition(transition.getSource().getIndex(),
+                                                      transition.getTarget().getIndex(),
+                                                      transition.getProbability(),
+                                                      transition.getActionName());
+                    transitionIndices.put(transition, index);
+                }
+            }
+        }
+        for (List<Interface> occurrences: interfaces.values()) {
+            for (Interface iface: occurrences) {
+                builder.addInterface(iface.getAbstractedId(),
+                                     iface.getInitial().getIndex(),
+                                     iface.getSuccess().getIndex(),
+                                     iface.getError().getIndex(),
+                                     transitionIndices.get(iface.getSuccessTransition()),
+                                     transitionIndices.get(iface.getErrorTransition()));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts a compact FDTMC back into a (mutable) FDTMC.
+     * The compact state {@code i} becomes the state with index {@code i}.
+     */
+    public static FDTMC fromCompact(CompactFDTMC compact) {
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName(compact.getVariableName());
+        State[] states = new State[compact.getNumberOfStates()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = fdtmc.createState(compact.getLabel(i));
+        }
+        fdtmc.initialState = stateAt(states, compact.getInitialState());
+        fdtmc.successState = stateAt(states, compact.getSuccessState());
+        fdtmc.errorState = stateAt(states, compact.getErrorState());
+
+        Transition[] transitions = new Transition[compact.getNumberOfTransitions()];
+        for (int i = 0; i < states.length; i++) {
+            for (int t = compact.getFirstTransition(i); t < compact.getFirstTransition(i + 1); t++) {
+                transitions[t] = fdtmc.createTransition(states[i],
+                                                        states[compact.getTarget(t)],
+                                                        compact.getActionName(t),
+                                                        compact.getProbability(t));
+            }
+        }
+        for (int i = 0; i < compact.getNumberOfInterfaces(); i++) {
+            String id = compact.getInterfaceId(i);
+            Interface iface = new Interface(id,
+                                            states[compact.getInterfaceInitial(i)],
+                                            states[compact.getInterfaceSuccess(i)],
+                                            states[compact.getInterfaceError(i)],
+                                            transitions[compact.getInterfaceSuccessTransition(i)],
+                                            transitions[compact.getInterfaceErrorTransition(i)]);
+            fdtmc.interfaces.computeIfAbsent(id, k -> new LinkedList<Interface>()).add(iface);
+        }
+        return fdtmc;
+    }
+
+    private static int indexOf(State state) {
+        return (state != null) ? state.getIndex() : CompactFDTMC.NO_STATE;
+    }
+
+    private static State stateAt(State[] states, int index) {
+        return (index != CompactFDTMC.NO_STATE) ? states[index] : null;
+    }
+
     /**
      * Prepares {@code destination} FDTMC to be an inlined version of this one.
      * @param destination
@@ -0,0 +1,56 @@
+package fdtmc;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global pool of interned strings (probability expressions, action names
+ * and labels) used by {@link CompactFDTMC}, so that models refer to them
+ * by int ids and equal strings are stored only once.
+ *
+ * The set of distinct strings is bounded by the input models, so symbols
+ * are never released.
+ */
+final class SymbolTable {
+
+    static final int NONE = -1;
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static volatile String[] symbols = new String[256];
+    private static int size = 0;
+
+    private SymbolTable() {
+        // NO-OP
+    }
+
+    /**
+     * @return the id of the given string, or {@link #NONE} if it is null.
+     */
+    static int intern(String symbol) {
+        if (symbol == null) {
+            return NONE;
+        }
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(symbol, SymbolTable::append);
+    }
+
+    /**
+     * @return the string with the given id, or null if it is {@link #NONE}.
+     */
+    static String get(int id) {
+        return (id == NONE) ? null : symbols[id];
+    }
+
+    private static synchronized int append(String symbol) {
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2*size);
+        }
+        symbols[size] = symbol;
+        return size++;
+    }
+
+}
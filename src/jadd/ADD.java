@@ -2,23 +2,18 @@ package jadd;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Spliterator;
-import java.util.Spliterators.AbstractSpliterator;
-import java.util.function.Consumer;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.bridj.Pointer;
 
 import tool.UnknownFeatureException;
 import bigcudd.BigcuddLibrary;
 import bigcudd.BigcuddLibrary.Cudd_addApply_arg1_callback;
-import bigcudd.BigcuddLibrary.DdGen;
 import bigcudd.BigcuddLibrary.DdManager;
 import bigcudd.DdNode;
 
@@ -27,27 +22,55 @@ import bigcudd.DdNode;
  * @author thiago
  *
  */
-public class ADD {
+public class ADD implements AutoCloseable {
     private static double FLOATING_POINT_PRECISION = 1E-14;
 
     private Pointer<DdNode> function;
     private Pointer<DdManager> dd;
     private VariableStore variableStore;
+    private NodeReferences references;
+    private NodeReferences.NodeReference reference;
+    private ManagerThread manager;
+    private Reorderer reorderer;
 
-    ADD(Pointer<DdManager> dd, Pointer<DdNode> function, VariableStore variableStore) {
+    ADD(Pointer<DdManager> dd, Pointer<DdNode> function, VariableStore variableStore, NodeReferences references, Reorderer reorderer) {
+        this(dd, function, variableStore, references, reorderer, false);
+    }
+
+    /**
+     * Must be called from the manager thread.
+     *
+     * @param pinned Whether this ADD should live as long as its manager.
+     */
+    ADD(Pointer<DdManager> dd, Pointer<DdNode> function, VariableStore variableStore, NodeReferences references, Reorderer reorderer, boolean pinned) {
         this.dd = dd;
         this.function = function;
         this.variableStore = variableStore;
+        this.references = references;
+        this.manager = references.getManager();
+        this.reorderer = reorderer;
         BigcuddLibrary.Cudd_Ref(this.function);
+        this.reference = references.track(this, function, pinned);
     }
 
     /**
-     * Overriding finalize in order to free CUDD allocated memory.
+     * Releases the CUDD reference held by this ADD, so that its nodes can
+     * be reclaimed. The ADD must not be used afterwards. Closing an ADD more
+     * than once, closing a variable, or closing an ADD of a manager which
+     * has already been closed, has no effect.
+     *
+     * ADDs which are not closed are released once they are garbage-collected.
      */
     @Override
-    protected void finalize() throws Throwable {
-//        BigcuddLibrary.Cudd_Deref(function);
-        super.finalize();
+    public void close() {
+        if (references.isClosed()) {
+            // The whole manager has already been freed.
+            return;
+        }
+        manager.call(() -> {
+            references.release(reference);
+            return null;
+        });
     }
 
     public ADD plus(ADD other) {
@@ -75,29 +98,27 @@ public class ADD {
     }
 
     private ADD apply(ADD other, Cudd_addApply_arg1_callback operation) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addApply(dd,
-                                                              Pointer.getPointer(operation),
-                                                              this.function,
-                                                              other.function);
-        return new ADD(dd, result, variableStore);
+        return manager.call(() -> {
+            Pointer<DdNode> result = BigcuddLibrary.Cudd_addApply(dd,
+                                                                  Pointer.getPointer(operation),
+                                                                  this.function,
+                                                                  other.function);
+            return wrap(result);
+        });
     }
 
     /**
      * @return negated form (corresponding to unary minus).
      */
     public ADD negate() {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addNegate(dd, this.function),
-                       variableStore);
+        return manager.call(() -> wrap(BigcuddLibrary.Cudd_addNegate(dd, this.function)));
     }
 
     /**
      * @return complemented form (corresponding to logical not).
      */
     public ADD complement() {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addCmpl(dd, this.function),
-                       variableStore);
+        return manager.call(() -> wrap(BigcuddLibrary.Cudd_addCmpl(dd, this.function)));
     }
 
     /**
@@ -105,23 +126,27 @@ public class ADD {
      * as the conditional.
      */
     public ADD ifThenElse(ADD ifTrue, ADD ifFalse) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
-                                                            this.function,
-                                                            ifTrue.function,
-                                                            ifFalse.function);
-        return new ADD(dd, result, variableStore);
+        return manager.call(() -> {
+            Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
+                                                                this.function,
+                                                                ifTrue.function,
+                                                                ifFalse.function);
+            return wrap(result);
+        });
     }
 
     /**
      * Overloading for constant fallbacks.
      */
     public ADD ifThenElse(ADD ifTrue, double ifFalse) {
-        Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
-                                                            this.function,
-                                                            ifTrue.function,
-                                                            BigcuddLibrary.Cudd_addConst(dd,
-                                                                                         ifFalse));
-        return new ADD(dd, result, variableStore);
+        return manager.call(() -> {
+            Pointer<DdNode> result = BigcuddLibrary.Cudd_addIte(dd,
+                                                                this.function,
+                                                                ifTrue.function,
+                                                                BigcuddLibrary.Cudd_addConst(dd,
+                                                                                             ifFalse));
+            return wrap(result);
+        });
     }
 
     /**
@@ -131,37 +156,171 @@ public class ADD {
         return condition.ifThenElse(ifTrue, ifFalse);
     }
 
-    public Set<String> getVariables() {
-        Set<String> variables = new HashSet<String>();
-
-        Pointer<Integer> variablesPtr = BigcuddLibrary.Cudd_SupportIndex(dd, this.function);
-        int numVars = BigcuddLibrary.Cudd_ReadSize(dd);
-        int[] variablesPresence = variablesPtr.getInts(numVars);
-        for (short i = 0; i < numVars; i++) {
-            if (variablesPresence[i] == 1) {
-                variables.add(variableStore.getName(i));
+    /**
+     * Computes the cofactor of this function with respect to a cube,
+     * i.e., the function obtained by fixing the values of the variables
+     * in the cube.
+     *
+     * @param cube Product of variables (for the ones fixed as true) and
+     *      their complements (for the ones fixed as false).
+     */
+    public ADD cofactor(ADD cube) {
+        return manager.call(() -> wrap(BigcuddLibrary.Cudd_Cofactor(dd, this.function, cube.function)));
+    }
+
+    /**
+     * Computes the function obtained by substituting {@code replacement}
+     * for a variable of this function.
+     *
+     * @param variable Name of the variable to be substituted.
+     * @param replacement 0,1-ADD to take the place of the variable.
+     * @throws UnrecognizedVariableException if the variable is not known
+     *      to the manager.
+     */
+    public ADD compose(String variable, ADD replacement) throws UnrecognizedVariableException {
+        return manager.call(() -> {
+            if (!variableStore.contains(variable)) {
+                throw new UnrecognizedVariableException(variable);
             }
-        }
-        return variables;
+            int index = variableStore.get(variable).function.get().index();
+            return wrap(BigcuddLibrary.Cudd_addCompose(dd, this.function, replacement.function, index));
+        });
     }
 
-    public List<String> getVariableOrder() {
+    /**
+     * Copies this ADD into another manager. Variables are matched by name,
+     * so the managers do not need to share the same variable order.
+     *
+     * @param target Manager in which to create the copy.
+     * @return an ADD of {@code target} representing the same function.
+     */
+    public ADD copyTo(JADD target) {
+        // Nodes are listed children first, so the root comes last.
         List<String> variables = new ArrayList<String>();
-        for (int pos = 0; pos < variableStore.getNumberOfVariables(); pos++) {
-            int varIndex = BigcuddLibrary.Cudd_ReadInvPerm(dd, pos);
-            String varName = variableStore.getName((short)varIndex);
-            variables.add(varName);
+        List<Double> values = new ArrayList<Double>();
+        List<int[]> children = new ArrayList<int[]>();
+        manager.call(() -> listNodes(function,
+                                     new HashMap<Pointer<DdNode>, Integer>(),
+                                     variables,
+                                     values,
+                                     children));
+        return target.call(() -> {
+            try (ADDArena arena = target.openArena()) {
+                ADD[] copies = new ADD[variables.size()];
+                for (int i = 0; i < copies.length; i++) {
+                    String variable = variables.get(i);
+                    if (variable == null) {
+                        copies[i] = target.makeConstant(values.get(i));
+                    } else {
+                        int[] thenElse = children.get(i);
+                        copies[i] = target.getVariable(variable).ifThenElse(copies[thenElse[0]],
+                                                                            copies[thenElse[1]]);
+                    }
+                }
+                return arena.keep(copies[copies.length - 1]);
+            }
+        });
+    }
+
+    /**
+     * Exports this ADD into a table of nodes which lives in the Java heap.
+     * The result is independent of the manager, so it can be evaluated
+     * concurrently and without native calls, and remains valid even if this
+     * ADD is closed or its variables are reordered.
+     */
+    public CompiledADD compile() {
+        return manager.call(() -> {
+            List<String> variables = new ArrayList<String>();
+            List<Double> values = new ArrayList<Double>();
+            List<int[]> children = new ArrayList<int[]>();
+            listNodes(function, new HashMap<Pointer<DdNode>, Integer>(), variables, values, children);
+
+            String[] variableNames = new String[variableStore.getNumberOfVariables()];
+            int[] levels = new int[variableNames.length];
+            for (short i = 0; i < variableNames.length; i++) {
+                variableNames[i] = variableStore.getName(i);
+                levels[i] = BigcuddLibrary.Cudd_ReadPerm(dd, i);
+            }
+            return CompiledADD.fromNodes(variableNames, levels, variables, values, children);
+        });
+    }
+
+    /**
+     * Lists the nodes reachable from {@code node} in post-order, skipping
+     * the ones already listed.
+     *
+     * @return the position of {@code node} in the list.
+     */
+    private int listNodes(Pointer<DdNode> node,
+                          Map<Pointer<DdNode>, Integer> listed,
+                          List<String> variables,
+                          List<Double> values,
+                          List<int[]> children) {
+        Integer position = listed.get(node);
+        if (position != null) {
+            return position;
         }
-        return variables;
+        DdNode contents = node.get();
+        if (BigcuddLibrary.Cudd_IsNonConstant(node) != 1) {
+            variables.add(null);
+            values.add(contents.type().value());
+            children.add(null);
+        } else {
+            int thenChild = listNodes(contents.type().kids().T(), listed, variables, values, children);
+            int elseChild = listNodes(contents.type().kids().E(), listed, variables, values, children);
+            variables.add(variableStore.getName(contents.index()));
+            values.add(null);
+            children.add(new int[]{thenChild, elseChild});
+        }
+        position = variables.size() - 1;
+        listed.put(node, position);
+        return position;
+    }
+
+    private ADD wrap(Pointer<DdNode> node) {
+        ADD result = new ADD(dd, node, variableStore, references, reorderer);
+        // The result is referenced by now, so it is safe to reorder.
+        reorderer.afterOperation();
+        return result;
+    }
+
+    public Set<String> getVariables() {
+        return manager.call(() -> {
+            Set<String> variables = new HashSet<String>();
+
+            Pointer<Integer> variablesPtr = BigcuddLibrary.Cudd_SupportIndex(dd, this.function);
+            int numVars = BigcuddLibrary.Cudd_ReadSize(dd);
+            int[] variablesPresence = variablesPtr.getInts(numVars);
+            for (short i = 0; i < numVars; i++) {
+                if (variablesPresence[i] == 1) {
+                    variables.add(variableStore.getName(i));
+                }
+            }
+            return variables;
+        });
+    }
+
+    public List<String> getVariableOrder() {
+        return manager.call(() -> {
+            List<String> variables = new ArrayList<String>();
+            for (int pos = 0; pos < variableStore.getNumberOfVariables(); pos++) {
+                int varIndex = BigcuddLibrary.Cudd_ReadInvPerm(dd, pos);
+                String varName = variableStore.getName((short)varIndex);
+                variables.add(varName);
+            }
+            return variables;
+        });
     }
 
     public double eval(String[] variables) throws UnrecognizedVariableException {
-        int[] presenceVector = variableStore.toPresenceVector(variables);
-        Pointer<DdNode> terminal = BigcuddLibrary.Cudd_Eval(dd,
-                                                            function,
-                                                            Pointer.pointerToInts(presenceVector));
-        DdNode terminalNode = terminal.get();
-        return terminalNode.type().value();
+        return manager.call(() -> {
+            int[] presenceVector = variableStore.toPresenceVector(variables);
+            Pointer<DdNode> terminal = BigcuddLibrary.Cudd_Eval(dd,
+                                                                function,
+                                                                Pointer.pointerToInts(presenceVector));
+            DdNode terminalNode = terminal.get();
+            return terminalNode.type().value();
+        });
     }
 
     public double eval(List<String> variables) throws UnrecognizedVariableException {
@@ -190,10 +349,16 @@ public class ADD {
      *
      * For instance, the configuration ["A", "(B)", "C"] would be returned as
      * two different configurations: ["A", "B", "C"] and ["A", "C"].
+     *
+     * Configurations are enumerated from a compiled copy of this ADD, so the
+     * stream splits evenly among parallel consumers and its size is exact.
+     *
+     * @see CompiledADD#configurations()
      * @return
      */
     public Stream<Collection<String>> getExpandedConfigurations() {
-        return StreamSupport.stream(new CubeSpliterator(), true);
+        CompiledADD compiled = compile();
+        return compiled.configurations().map(compiled::toNames);
     }
 
     /**
@@ -201,7 +366,7 @@ public class ADD {
     * @return
     */
     public int getNodeCount() {
-        return BigcuddLibrary.Cudd_DagSize(function);
+        return manager.call(() -> BigcuddLibrary.Cudd_DagSize(function));
     }
 
     /**
@@ -209,51 +374,7 @@ public class ADD {
      * @return
      */
     public boolean isConstant() {
-        return 1 != BigcuddLibrary.Cudd_IsNonConstant(function);
-    }
-
-    static Collection<List<String>> expandDontCares(List<String> config) {
-        return expandDontCares(config.iterator());
-    }
-
-    /**
-     * Iterates {@code cursor} expanding "don't care" variables, i.e.,
-     * doubling the configurations for each one encountered.
-     *
-     * It expands "don't care" variables in linear time.
-     * @param cursor
-     * @return
-     */
-    static Collection<List<String>> expandDontCares(Iterator<String> cursor) {
-        Set<List<String>> expanded = new HashSet<List<String>>();
-        List<String> prefix = new LinkedList<String>();
-        while (cursor.hasNext()) {
-            String variable = cursor.next();
-            if (variable.startsWith("(")) {
-                // We must generate two alternative prefixes: one with the
-                // variable in positive form and another with it in negative
-                // form (i.e., omitted).
-                List<String> complementedPrefix = new LinkedList<String>(prefix);
-                String deparenthesized = variable.substring(1, variable.length()-1);
-                prefix.add(deparenthesized);
-                // Then we must expand the rest of the configuration and append
-                // each of the expanded sub-configurations to the alternative prefixes.
-                Collection<List<String>> expandedTail = expandDontCares(cursor);
-                for (List<String> expandedSubconfig : expandedTail) {
-                    List<String> positive = new LinkedList<String>(prefix);
-                    List<String> complemented = new LinkedList<String>(complementedPrefix);
-                    positive.addAll(expandedSubconfig);
-                    complemented.addAll(expandedSubconfig);
-                    expanded.add(positive);
-                    expanded.add(complemented);
-                }
-                return expanded;
-            } else {
-                prefix.add(variable);
-            }
-        }
-        expanded.add(prefix);
-        return expanded;
+        return manager.call(() -> 1 != BigcuddLibrary.Cudd_IsNonConstant(function));
     }
 
     /* (non-Javadoc)
@@ -266,39 +387,47 @@ public class ADD {
         }
         ADD other = (ADD) obj;
         return this.function.equals(other.function)
-                || (BigcuddLibrary.Cudd_EqualSupNorm(dd,
-                                                     this.function,
-                                                     other.function,
-                                                     ADD.FLOATING_POINT_PRECISION,
-                                                     1) == 1);
+                || manager.call(() -> BigcuddLibrary.Cudd_EqualSupNorm(dd,
+                                                                       this.function,
+                                                                       other.function,
+                                                                       ADD.FLOATING_POINT_PRECISION,
+                                                                       1) == 1);
     }
 
     public int getDeadNodesCount() {
-    	return BigcuddLibrary.Cudd_ReadDead(dd);
+    	return manager.call(references::getDeadNodesCount);
+    }
+
+    /**
+     * @return the number of dead nodes in the manager at each phase recorded
+     *      with {@link JADD#snapshotDeadNodes(String)}, in order.
+     */
+    public Map<String, Integer> getDeadNodesSnapshots() {
+        return references.getDeadNodesSnapshots();
     }
 
     public int getTerminalsDifferentThanZeroCount() {
-    	return BigcuddLibrary.Cudd_CountLeaves(function) - 1;
+    	return manager.call(() -> BigcuddLibrary.Cudd_CountLeaves(function) - 1);
     }
 
     public double getPathsToNonZeroTerminalsCount() {
-    	return BigcuddLibrary.Cudd_CountPathsToNonZero(function);
+    	return manager.call(() -> BigcuddLibrary.Cudd_CountPathsToNonZero(function));
     }
 
     public double getPathsToZeroTerminalCount() {
-    	return BigcuddLibrary.Cudd_CountPath(function) - getPathsToNonZeroTerminalsCount();
+    	return manager.call(() -> BigcuddLibrary.Cudd_CountPath(function)) - getPathsToNonZeroTerminalsCount();
     }
 
     public int getReorderingsCount() {
-    	return BigcuddLibrary.Cudd_ReadReorderings(dd);
+    	return manager.call(() -> BigcuddLibrary.Cudd_ReadReorderings(dd));
     }
 
     public int getGarbageCollectionsCount() {
-    	return BigcuddLibrary.Cudd_ReadGarbageCollections(dd);
+    	return manager.call(() -> BigcuddLibrary.Cudd_ReadGarbageCollections(dd));
     }
 
     public long getAddSizeInBytes() {
-    	return BigcuddLibrary.Cudd_ReadMemoryInUse(dd);
+    	return manager.call(() -> BigcuddLibrary.Cudd_ReadMemoryInUse(dd));
     }
 
     @Override
@@ -359,64 +488,4 @@ public class ADD {
         }
     };
 
-    private class CubeSpliterator extends AbstractSpliterator<Collection<String>> {
-
-        private Pointer<Pointer<Integer>> cubePtr;
-        private Pointer<Double> valuePtr;
-        private Pointer<DdGen> generator;
-        private int numVars;
-        private Iterator<List<String>> expandedIterator;
-
-        protected CubeSpliterator() {
-            super((long) BigcuddLibrary.Cudd_CountPathsToNonZero(function),
-                  Spliterator.SIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED);
-
-            Pointer<Integer> dummy = Pointer.allocateInt();
-            // A pointer to a freshly allocated pointer to int.
-            // As Cudd_FirstCube and Cudd_NextCube allocate the returned cubes,
-            // allocating a whole int[] here makes no sense. Thus, we allocate
-            // only the position where the address to the generated cubes are
-            // to be stored.
-            cubePtr = Pointer.pointerToPointer(dummy);
-            // A pointer to a freshly allocated double.
-            valuePtr = Pointer.pointerToDouble(0);
-
-            // So let's start the iteration!
-            generator = BigcuddLibrary.Cudd_FirstCube(dd,
-                                                      function,
-                                                      cubePtr,
-                                                      valuePtr);
-            numVars = BigcuddLibrary.Cudd_ReadSize(dd);
-
-        }
-
-        @Override
-        public boolean tryAdvance(Consumer<? super Collection<String>> action) {
-            if (expandedIterator == null || !expandedIterator.hasNext()) {
-                if (BigcuddLibrary.Cudd_IsGenEmpty(generator) == 0) {
-                    Pointer<Integer> cube = cubePtr.getPointer(Integer.class);
-                    int[] presenceVector = cube.getInts(numVars);
-                    List<String> configuration = variableStore.fromPresenceVector(presenceVector);
-
-                    Collection<List<String>> expanded = expandDontCares(configuration);
-                    expandedIterator = expanded.iterator();
-
-                    BigcuddLibrary.Cudd_NextCube(generator,
-                            cubePtr,
-                            valuePtr);
-                } else {
-                    if (generator != null) {
-                        BigcuddLibrary.Cudd_GenFree(generator);
-                        generator = null;
-                    }
-                    return false;
-                }
-            }
-
-            action.accept(expandedIterator.next());
-            return true;
-        }
-
-    }
-
 }
@@ -0,0 +1,77 @@
+package jadd;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Scope for intermediate ADDs. Every ADD created while an arena is open
+ * belongs to it, and is released when the arena is closed, unless it is
+ * explicitly kept.
+ *
+ * Arenas can be nested: kept ADDs are handed over to the enclosing arena,
+ * if any.
+ *
+ * As ADDs are all created by the manager thread, an arena also collects
+ * the ADDs created on behalf of other threads. If the manager is shared
+ * by concurrent threads, each arena should thus be opened and closed
+ * within a single {@link JADD#call(JADD.Task)}.
+ *
+ * <pre>
+ * try (ADDArena arena = jadd.openArena()) {
+ *     ADD result = ...;
+ *     return arena.keep(result);
+ * }
+ * </pre>
+ */
+public class ADDArena implements AutoCloseable {
+
+    private NodeReferences references;
+    private ADDArena parent;
+    // ADD.equals() compares functions, so identity is needed here.
+    private Set<ADD> owned = Collections.newSetFromMap(new IdentityHashMap<ADD, Boolean>());
+
+    ADDArena(NodeReferences references, ADDArena parent) {
+        this.references = references;
+        this.parent = parent;
+    }
+
+    void add(ADD add) {
+        owned.add(add);
+    }
+
+    /**
+     * Prevents {@code add} from being released when this arena is closed.
+     * It then belongs to the enclosing arena, if there is one.
+     *
+     * @return {@code add} itself, for convenience.
+     */
+    public ADD keep(ADD add) {
+        return references.getManager().call(() -> {
+            if (add != null && owned.remove(add) && parent != null) {
+                parent.add(add);
+            }
+            return add;
+        });
+    }
+
+    /**
+     * @return the number of ADDs to be released by this arena.
+     */
+    public int size() {
+        return references.getManager().call(owned::size);
+    }
+
+    @Override
+    public void close() {
+        references.getManager().call(() -> {
+            references.closeArena(this, parent);
+            for (ADD add: owned) {
+                add.close();
+            }
+            owned.clear();
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,626 @@
+package jadd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, Java-side copy of an ADD, meant for evaluating the same
+ * function on large numbers of configurations.
+ *
+ * Nodes are kept in primitive arrays, indexed by position. Children which
+ * are internal nodes are referred to by their position and terminals, by
+ * the bitwise complement of their position in the terminals array (so that
+ * a negative child always denotes a terminal).
+ *
+ * Configurations are given as bitsets in which the bit of each present
+ * variable is set. Bits are numbered after the indices of the variables in
+ * the manager the ADD was compiled from (see {@link #toBitSet(String[])}).
+ *
+ * Instances are never modified after construction, so evaluation needs no
+ * locking and is safe from any number of threads.
+ *
+ * @see ADD#compile()
+ */
+public final class CompiledADD {
+
+    // Shared with ConfigurationSpliterator.
+    final int[] variables;
+    final int[] thenChildren;
+    final int[] elseChildren;
+    final double[] terminals;
+    final int root;
+    final int[] variablesByLevel;
+    // Number of non-zero assignments to the variables from the level of each
+    // internal node downwards, saturated at Long.MAX_VALUE.
+    private final long[] minterms;
+
+    private final String[] variableNames;
+    private final Map<String, Integer> variableIndices;
+    private final int[] levels;
+
+    /**
+     * @param variableNames Names of all the variables of the manager, by index.
+     * @param levels Level of each variable in the manager's order, by index.
+     * @param variables Variable index of each internal node. Nodes are
+     *      numbered children first, so the root comes last.
+     * @param root Position of the root node, or complement of the position
+     *      of the root terminal.
+     */
+    private CompiledADD(String[] variableNames,
+                        int[] levels,
+                        int[] variables,
+                        int[] thenChildren,
+                        int[] elseChildren,
+                        double[] terminals,
+                        int root) {
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        for (int i = 0; i < variableNames.length; i++) {
+            indices.put(variableNames[i], i);
+        }
+        this.variableNames = variableNames;
+        this.variableIndices = Collections.unmodifiableMap(indices);
+        this.levels = levels;
+        this.variablesByLevel = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            variablesByLevel[levels[i]] = i;
+        }
+
+        this.variables = variables;
+        this.thenChildren = thenChildren;
+        this.elseChildren = elseChildren;
+        this.terminals = terminals;
+        this.root = root;
+        this.minterms = new long[variables.length];
+        for (int node = 0; node < variables.length; node++) {
+            int level = levels[variables[node]];
+            minterms[node] = saturatedAdd(countMinterms(thenChildren[node], level + 1),
+                                          countMinterms(elseChildren[node], level + 1));
+        }
+    }
+
+    /**
+     * @param variableNames Names of all the variables of the manager, by index.
+     * @param levels Level of each variable in the manager's order, by index.
+     * @param nodeVariables Variable of each node, listed children first,
+     *      or {@code null} for terminals.
+     * @param nodeValues Value of each terminal node.
+     * @param nodeChildren Positions of the then and else children of
+     *      each internal node.
+     */
+    static CompiledADD fromNodes(String[] variableNames, int[] levels, List<String> nodeVariables, List<Double> nodeValues, List<int[]> nodeChildren) {
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        for (int i = 0; i < variableNames.length; i++) {
+            indices.put(variableNames[i], i);
+        }
+        int numNodes = nodeVariables.size();
+        int numTerminals = 0;
+        for (String variable: nodeVariables) {
+            if (variable == null) {
+                numTerminals++;
+            }
+        }
+        int[] variables = new int[numNodes - numTerminals];
+        int[] thenChildren = new int[variables.length];
+        int[] elseChildren = new int[variables.length];
+        double[] terminals = new double[numTerminals];
+
+        // Since nodes are listed children first, children are always
+        // renumbered before their parents.
+        int[] renumbered = new int[numNodes];
+        int nextInternal = 0;
+        int nextTerminal = 0;
+        for (int i = 0; i < numNodes; i++) {
+            String variable = nodeVariables.get(i);
+            if (variable == null) {
+                terminals[nextTerminal] = nodeValues.get(i);
+                renumbered[i] = ~nextTerminal++;
+            } else {
+                int[] thenElse = nodeChildren.get(i);
+                variables[nextInternal] = indices.get(variable);
+                thenChildren[nextInternal] = renumbered[thenElse[0]];
+                elseChildren[nextInternal] = renumbered[thenElse[1]];
+                renumbered[i] = nextInternal++;
+            }
+        }
+        return new CompiledADD(variableNames,
+                               levels,
+                               variables,
+                               thenChildren,
+                               elseChildren,
+                               terminals,
+                               renumbered[numNodes - 1]);
+    }
+
+    /**
+     * Writes this ADD in a compact binary form, which embeds the names and
+     * order of the variables.
+     *
+     * @see #readFrom(DataInput)
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(variableNames.length);
+        for (int i = 0; i < variableNames.length; i++) {
+            output.writeUTF(variableNames[i]);
+            output.writeInt(levels[i]);
+        }
+        output.writeInt(terminals.length);
+        for (double terminal: terminals) {
+            output.writeDouble(terminal);
+        }
+        output.writeInt(variables.length);
+        for (int node = 0; node < variables.length; node++) {
+            output.writeInt(variables[node]);
+            output.writeInt(thenChildren[node]);
+            output.writeInt(elseChildren[node]);
+        }
+        output.writeInt(root);
+    }
+
+    /**
+     * Reads an ADD written by {@link #writeTo(DataOutput)}.
+     */
+    public static CompiledADD readFrom(DataInput input) throws IOException {
+        int numVariables = input.readInt();
+        String[] variableNames = new String[numVariables];
+        int[] levels = new int[numVariables];
+        for (int i = 0; i < numVariables; i++) {
+            variableNames[i] = input.readUTF();
+            levels[i] = input.readInt();
+        }
+        double[] terminals = new double[input.readInt()];
+        for (int i = 0; i < terminals.length; i++) {
+            terminals[i] = input.readDouble();
+        }
+        int numNodes = input.readInt();
+        int[] variables = new int[numNodes];
+        int[] thenChildren = new int[numNodes];
+        int[] elseChildren = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            variables[node] = input.readInt();
+            thenChildren[node] = input.readInt();
+            elseChildren[node] = input.readInt();
+        }
+        return new CompiledADD(variableNames,
+                               levels,
+                               variables,
+                               thenChildren,
+                               elseChildren,
+                               terminals,
+                               input.readInt());
+    }
+
+    /**
+     * Rebuilds this function as an ADD of the given manager. Variables are
+     * matched by name (and created if needed).
+     */
+    ADD rebuild(JADD target) {
+        return target.call(() -> {
+            try (ADDArena arena = target.openArena()) {
+                ADD[] constants = new ADD[terminals.length];
+                for (int i = 0; i < terminals.length; i++) {
+                    constants[i] = target.makeConstant(terminals[i]);
+                }
+                if (root < 0) {
+                    return arena.keep(constants[~root]);
+                }
+                ADD[] nodes = new ADD[variables.length];
+                for (int node = 0; node < variables.length; node++) {
+                    int thenChild = thenChildren[node];
+                    int elseChild = elseChildren[node];
+                    nodes[node] = target.getVariable(variableNames[variables[node]])
+                            .ifThenElse((thenChild < 0) ? constants[~thenChild] : nodes[thenChild],
+                                        (elseChild < 0) ? constants[~elseChild] : nodes[elseChild]);
+                }
+                return arena.keep(nodes[root]);
+            }
+        });
+    }
+
+    /**
+     * @return the names of all variables, from the topmost to the bottommost one.
+     */
+    public List<String> getVariableOrder() {
+        List<String> order = new ArrayList<String>(variablesByLevel.length);
+        for (int variable: variablesByLevel) {
+            order.add(variableNames[variable]);
+        }
+        return order;
+    }
+
+    /**
+     * @return the number of configurations for which the function is not zero,
+     *      or {@link Long#MAX_VALUE} if there are too many to count.
+     */
+    public long countConfigurations() {
+        return countMinterms(root, 0);
+    }
+
+    /**
+     * Returns a stream of the configurations for which the function is not zero.
+     *
+     * The stream is sized exactly (unless there are more than
+     * {@link Long#MAX_VALUE} configurations) and splits into independent
+     * sub-diagrams, so it is meant to be consumed in parallel.
+     * The returned bitsets are never reused, so they may be kept.
+     */
+    public Stream<BitSet> configurations() {
+        return StreamSupport.stream(new ConfigurationSpliterator(this), true);
+    }
+
+    /**
+     * @return the distinct values of the function (i.e., its terminals).
+     */
+    public double[] getTerminalValues() {
+        return terminals.clone();
+    }
+
+    /**
+     * Counts the configurations which lead to each terminal, i.e., for which
+     * the function takes each of its values. This takes a single pass over
+     * the nodes, regardless of the number of configurations.
+     *
+     * @return the counts, in the same order as {@link #getTerminalValues()}.
+     */
+    public double[] countConfigurationsByTerminal() {
+        int numLevels = levels.length;
+        double[] terminalCounts = new double[terminals.length];
+        if (root < 0) {
+            terminalCounts[~root] = Math.scalb(1.0, numLevels);
+            return terminalCounts;
+        }
+        // Parents always come after their children, so this goes top-down.
+        double[] reaching = new double[variables.length];
+        reaching[root] = Math.scalb(1.0, levels[variables[root]]);
+        for (int node = root; node >= 0; node--) {
+            if (reaching[node] == 0) {
+                continue;
+            }
+            int level = levels[variables[node]];
+            for (int child: new int[]{thenChildren[node], elseChildren[node]}) {
+                int childLevel = (child < 0) ? numLevels : levels[variables[child]];
+                double count = Math.scalb(reaching[node], childLevel - level - 1);
+                if (child < 0) {
+                    terminalCounts[~child] += count;
+                } else {
+                    reaching[child] += count;
+                }
+            }
+        }
+        return terminalCounts;
+    }
+
+    /**
+     * Finds a configuration for which the function takes the value of the
+     * given terminal. Variables which do not matter are left absent.
+     *
+     * @param terminal Position of the terminal in {@link #getTerminalValues()}.
+     */
+    public BitSet findConfiguration(int terminal) {
+        // Children always come before their parents, so this goes bottom-up.
+        boolean[] reaches = new boolean[variables.length];
+        for (int node = 0; node < variables.length; node++) {
+            reaches[node] = reaches(thenChildren[node], terminal, reaches)
+                    || reaches(elseChildren[node], terminal, reaches);
+        }
+        BitSet configuration = new BitSet(variableNames.length);
+        int node = root;
+        while (node >= 0) {
+            if (reaches(thenChildren[node], terminal, reaches)) {
+                configuration.set(variables[node]);
+                node = thenChildren[node];
+            } else {
+                node = elseChildren[node];
+            }
+        }
+        return configuration;
+    }
+
+    private static boolean reaches(int node, int terminal, boolean[] reaches) {
+        return (node < 0) ? ~node == terminal : reaches[node];
+    }
+
+    /**
+     * Finds the {@code k} configurations for which the function takes the
+     * lowest (or highest) values, among the ones leading to an accepted
+     * value. Ties are broken arbitrarily.
+     *
+     * This is a best-first search over the nodes, guided by the best value
+     * reachable from each one, so it takes time proportional to {@code k}
+     * and to the size of the ADD, but not to the number of configurations.
+     *
+     * @param ascending whether the lowest values come first.
+     * @param accepted values whose configurations may be returned.
+     * @return up to {@code k} configurations, from the best to the worst.
+     */
+    public List<BitSet> findTopConfigurations(int k, boolean ascending, DoublePredicate accepted) {
+        int sign = ascending ? 1 : -1;
+        // Best accepted value reachable from each node, or NaN if there is none.
+        double[] bounds = new double[variables.length];
+        for (int node = 0; node < variables.length; node++) {
+            bounds[node] = better(bound(thenChildren[node], bounds, accepted),
+                                  bound(elseChildren[node], bounds, accepted),
+                                  sign);
+        }
+
+        List<BitSet> top = new ArrayList<BitSet>(k);
+        PriorityQueue<Candidate> frontier = new PriorityQueue<Candidate>();
+        long sequence = 0;
+        double rootBound = bound(root, bounds, accepted);
+        if (k > 0 && !Double.isNaN(rootBound)) {
+            frontier.add(new Candidate(root, 0, new BitSet(), new int[0], sign * rootBound, sequence++));
+        }
+        while (top.size() < k && !frontier.isEmpty()) {
+            Candidate candidate = frontier.poll();
+            int node = candidate.node;
+            int nodeLevel = (node < 0) ? levels.length : levels[variables[node]];
+            int[] dontCares = candidate.withDontCares(variablesByLevel, nodeLevel);
+            if (node < 0) {
+                expandDontCares(candidate.assignment, dontCares, k - top.size(), top);
+                continue;
+            }
+            int[] children = {thenChildren[node], elseChildren[node]};
+            for (int i = 0; i < children.length; i++) {
+                double childBound = bound(children[i], bounds, accepted);
+                if (Double.isNaN(childBound)) {
+                    continue;
+                }
+                BitSet assignment = candidate.assignment;
+                if (i == 0) {
+                    assignment = (BitSet) assignment.clone();
+                    assignment.set(variables[node]);
+                }
+                frontier.add(new Candidate(children[i], nodeLevel + 1, assignment, dontCares, sign * childBound, sequence++));
+            }
+        }
+        return top;
+    }
+
+    private double bound(int node, double[] bounds, DoublePredicate accepted) {
+        if (node < 0) {
+            double value = terminals[~node];
+            return accepted.test(value) ? value : Double.NaN;
+        }
+        return bounds[node];
+    }
+
+    private static double better(double a, double b, int sign) {
+        if (Double.isNaN(a)) {
+            return b;
+        }
+        if (Double.isNaN(b)) {
+            return a;
+        }
+        return (sign * Double.compare(a, b) <= 0) ? a : b;
+    }
+
+    /**
+     * Adds up to {@code count} configurations obtained by choosing values
+     * for the "don't care" variables on top of {@code assignment}.
+     */
+    private static void expandDontCares(BitSet assignment, int[] dontCares, int count, List<BitSet> configurations) {
+        for (long choice = 0; count > 0 && (dontCares.length >= 63 || choice < (1L << dontCares.length)); choice++, count--) {
+            BitSet configuration = (BitSet) assignment.clone();
+            for (int i = 0; i < dontCares.length && i < 63; i++) {
+                if ((choice & (1L << i)) != 0) {
+                    configuration.set(dontCares[i]);
+                }
+            }
+            configurations.add(configuration);
+        }
+    }
+
+    /**
+     * Partial path of the best-first search, ordered by the best value
+     * reachable from it (negated when looking for the highest values).
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        private final int node;
+        // Level of the first variable not yet decided by the path.
+        private final int level;
+        private final BitSet assignment;
+        private final int[] dontCares;
+        private final double key;
+        private final long sequence;
+
+        Candidate(int node, int level, BitSet assignment, int[] dontCares, double key, long sequence) {
+            this.node = node;
+            this.level = level;
+            this.assignment = assignment;
+            this.dontCares = dontCares;
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the "don't care" variables of the path, including the ones
+         *      skipped between its last decided level and {@code nodeLevel}.
+         */
+        int[] withDontCares(int[] variablesByLevel, int nodeLevel) {
+            int[] extended = Arrays.copyOf(dontCares, dontCares.length + nodeLevel - level);
+            for (int l = level; l < nodeLevel; l++) {
+                extended[dontCares.length + l - level] = variablesByLevel[l];
+            }
+            return extended;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byKey = Double.compare(key, other.key);
+            return (byKey != 0) ? byKey : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Counts the non-zero assignments to the variables from {@code level}
+     * downwards, in the sub-diagram rooted at {@code node}.
+     */
+    long countMinterms(int node, int level) {
+        if (node < 0) {
+            return (terminals[~node] == 0) ? 0 : saturatedPowerOfTwo(1, levels.length - level);
+        }
+        return saturatedPowerOfTwo(minterms[node], levels[variables[node]] - level);
+    }
+
+    boolean isZero(int node) {
+        return node < 0 && terminals[~node] == 0;
+    }
+
+    static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return (sum < 0) ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * @return {@code count * 2^exponent}, saturated at {@link Long#MAX_VALUE}.
+     */
+    private static long saturatedPowerOfTwo(long count, int exponent) {
+        if (count == 0) {
+            return 0;
+        }
+        if (exponent >= Long.numberOfLeadingZeros(count)) {
+            return Long.MAX_VALUE;
+        }
+        return count << exponent;
+    }
+
+    /**
+     * Evaluates the function for the configuration in which exactly the
+     * variables whose bits are set are present.
+     */
+    public double eval(BitSet configuration) {
+        int node = root;
+        while (node >= 0) {
+            node = configuration.get(variables[node]) ? thenChildren[node] : elseChildren[node];
+        }
+        return terminals[~node];
+    }
+
+    /**
+     * Evaluates the function for the configuration in which exactly the
+     * variables (by index) accepted by {@code isPresent} are present.
+     * Only the variables along the evaluated path are tested.
+     */
+    public double eval(IntPredicate isPresent) {
+        int node = root;
+        while (node >= 0) {
+            node = isPresent.test(variables[node]) ? thenChildren[node] : elseChildren[node];
+        }
+        return terminals[~node];
+    }
+
+    /**
+     * Evaluates the function for many configurations at once, 64 of them
+     * per machine word: each configuration is a bit position across the
+     * columns of the variables. Nodes are combined bottom-up, so the cost
+     * depends on the size of the ADD, not on the paths taken.
+     *
+     * @param variableColumns Bit column of each variable, by index, or
+     *      {@code null} for variables absent from all configurations.
+     * @param words Length of each column.
+     * @param value Terminal value of interest.
+     * @return the bit column of the configurations for which the function
+     *      evaluates to {@code value}.
+     */
+    public long[] evalColumns(long[][] variableColumns, int words, double value) {
+        long[] none = new long[words];
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        if (root < 0) {
+            return (terminals[~root] == value) ? all : none;
+        }
+        long[][] columns = new long[variables.length][];
+        for (int node = 0; node < variables.length; node++) {
+            long[] thenColumn = column(thenChildren[node], columns, all, none, value);
+            long[] elseColumn = column(elseChildren[node], columns, all, none, value);
+            long[] variableColumn = variableColumns[variables[node]];
+            if (variableColumn == null) {
+                columns[node] = elseColumn;
+                continue;
+            }
+            long[] result = new long[words];
+            for (int i = 0; i < words; i++) {
+                result[i] = (variableColumn[i] & thenColumn[i]) | (~variableColumn[i] & elseColumn[i]);
+            }
+            columns[node] = result;
+        }
+        return columns[root];
+    }
+
+    private long[] column(int node, long[][] columns, long[] all, long[] none, double value) {
+        if (node >= 0) {
+            return columns[node];
+        }
+        return (terminals[~node] == value) ? all : none;
+    }
+
+    public double eval(String[] configuration) throws UnrecognizedVariableException {
+        return eval(toBitSet(configuration));
+    }
+
+    /**
+     * Converts a configuration, given by the names of its present
+     * variables, into the bitset expected by {@link #eval(BitSet)}.
+     */
+    public BitSet toBitSet(String[] configuration) throws UnrecognizedVariableException {
+        BitSet bits = new BitSet(variableNames.length);
+        for (String variable: configuration) {
+            bits.set(getVariableIndex(variable));
+        }
+        return bits;
+    }
+
+    /**
+     * Converts a configuration given as a bitset back into the names of
+     * its present variables, by increasing index.
+     */
+    public List<String> toNames(BitSet configuration) {
+        List<String> names = new ArrayList<String>(configuration.cardinality());
+        for (int i = configuration.nextSetBit(0); i >= 0; i = configuration.nextSetBit(i + 1)) {
+            names.add(variableNames[i]);
+        }
+        return names;
+    }
+
+    /**
+     * @return the bit which stands for {@code variable} in configurations.
+     */
+    public int getVariableIndex(String variable) throws UnrecognizedVariableException {
+        Integer index = variableIndices.get(variable);
+        if (index == null) {
+            throw new UnrecognizedVariableException(variable);
+        }
+        return index;
+    }
+
+    /**
+     * @return the name of the variable which stands for bit {@code index}.
+     */
+    public String getVariableName(int index) {
+        return variableNames[index];
+    }
+
+    public int getNumberOfVariables() {
+        return variableNames.length;
+    }
+
+    /**
+     * @return the number of internal (i.e., non-terminal) nodes.
+     */
+    public int getNodeCount() {
+        return variables.length;
+    }
+
+}
@@ -0,0 +1,222 @@
+package jadd;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Enumerates the non-zero configurations of a {@link CompiledADD}.
+ *
+ * Pending work is a stack of sub-diagrams, each given by a node, the level
+ * from which its variables are still free and the assignment to the
+ * variables above. They are explored depth-first, one level at a time,
+ * so that only as many of them are kept as there are levels.
+ *
+ * Splitting hands over the shallowest pending sub-diagrams (i.e., the
+ * cofactors of the topmost variables), descending one level whenever a
+ * single one is left. Once a non-zero terminal is reached, the remaining
+ * variables are "don't cares", which are expanded lazily in Gray-code
+ * order: each configuration differs from the previous one in a single
+ * variable. Such an expansion may itself be split by ranges of codes.
+ */
+class ConfigurationSpliterator implements Spliterator<BitSet> {
+    // Expansions of more "don't cares" than that could not be counted.
+    private static final int MAX_EXPANDED_VARIABLES = 62;
+
+    private final CompiledADD add;
+    private final Deque<SubDiagram> pending = new ArrayDeque<SubDiagram>();
+    private Expansion expansion;
+    private long size;
+    private final boolean exact;
+
+    ConfigurationSpliterator(CompiledADD add) {
+        this.add = add;
+        this.size = add.countConfigurations();
+        this.exact = size != Long.MAX_VALUE;
+        if (size != 0) {
+            pending.push(new SubDiagram(add.root, 0, new BitSet()));
+        }
+    }
+
+    private ConfigurationSpliterator(CompiledADD add, long size, boolean exact) {
+        this.add = add;
+        this.size = size;
+        this.exact = exact;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BitSet> action) {
+        while (expansion == null || !expansion.hasNext()) {
+            expansion = null;
+            SubDiagram next = pending.poll();
+            if (next == null) {
+                return false;
+            }
+            descend(next);
+        }
+        action.accept(expansion.next());
+        if (exact) {
+            size--;
+        }
+        return true;
+    }
+
+    @Override
+    public Spliterator<BitSet> trySplit() {
+        while (pending.size() == 1 && expansion == null) {
+            descend(pending.poll());
+        }
+        if (!pending.isEmpty() && (pending.size() > 1 || expansion != null)) {
+            ConfigurationSpliterator prefix = new ConfigurationSpliterator(add, 0, exact);
+            int handedOver = Math.max(1, pending.size() / 2);
+            for (int i = 0; i < handedOver; i++) {
+                SubDiagram subDiagram = pending.pollLast();
+                prefix.pending.push(subDiagram);
+                prefix.size = CompiledADD.saturatedAdd(prefix.size, subDiagram.count());
+            }
+            transferSize(prefix);
+            return prefix;
+        }
+        if (pending.isEmpty() && expansion != null && expansion.remaining() > 1) {
+            ConfigurationSpliterator prefix = new ConfigurationSpliterator(add, 0, exact);
+            prefix.expansion = expansion.split();
+            prefix.size = prefix.expansion.remaining();
+            transferSize(prefix);
+            return prefix;
+        }
+        return null;
+    }
+
+    private void transferSize(ConfigurationSpliterator prefix) {
+        if (exact) {
+            size -= prefix.size;
+        } else {
+            prefix.size = size / 2;
+            size -= prefix.size;
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        int characteristics = Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        if (exact) {
+            characteristics |= Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+        return characteristics;
+    }
+
+    /**
+     * Fixes the variable at the top level of a sub-diagram, pushing the
+     * resulting sub-diagrams, or starts expanding it if it is a non-zero
+     * terminal.
+     */
+    private void descend(SubDiagram subDiagram) {
+        int node = subDiagram.node;
+        int level = subDiagram.level;
+        int numLevels = add.variablesByLevel.length;
+        if (node < 0 && numLevels - level <= MAX_EXPANDED_VARIABLES) {
+            int[] dontCares = new int[numLevels - level];
+            for (int i = 0; i < dontCares.length; i++) {
+                dontCares[i] = add.variablesByLevel[level + i];
+            }
+            expansion = new Expansion(subDiagram.assignment, dontCares, 0, 1L << dontCares.length);
+            return;
+        }
+
+        int variable = add.variablesByLevel[level];
+        int thenChild = node;
+        int elseChild = node;
+        if (node >= 0 && add.variables[node] == variable) {
+            thenChild = add.thenChildren[node];
+            elseChild = add.elseChildren[node];
+        }
+        if (!add.isZero(elseChild)) {
+            pending.push(new SubDiagram(elseChild, level + 1, subDiagram.assignment));
+        }
+        if (!add.isZero(thenChild)) {
+            BitSet assignment = (BitSet) subDiagram.assignment.clone();
+            assignment.set(variable);
+            pending.push(new SubDiagram(thenChild, level + 1, assignment));
+        }
+    }
+
+    private class SubDiagram {
+        private final int node;
+        private final int level;
+        // Never modified once the sub-diagram is created, so it may be shared.
+        private final BitSet assignment;
+
+        SubDiagram(int node, int level, BitSet assignment) {
+            this.node = node;
+            this.level = level;
+            this.assignment = assignment;
+        }
+
+        long count() {
+            return add.countMinterms(node, level);
+        }
+    }
+
+    /**
+     * Gray-code expansion of "don't care" variables, from code {@code next}
+     * (inclusive) to {@code end} (exclusive).
+     */
+    private static class Expansion {
+        private final BitSet base;
+        private final int[] dontCares;
+        private BitSet current;
+        private long next;
+        private long end;
+
+        Expansion(BitSet base, int[] dontCares, long next, long end) {
+            this.base = base;
+            this.dontCares = dontCares;
+            this.next = next;
+            this.end = end;
+        }
+
+        boolean hasNext() {
+            return next < end;
+        }
+
+        long remaining() {
+            return end - next;
+        }
+
+        BitSet next() {
+            if (current == null) {
+                current = (BitSet) base.clone();
+                long code = next ^ (next >>> 1);
+                for (int i = 0; i < dontCares.length; i++) {
+                    if ((code & (1L << i)) != 0) {
+                        current.set(dontCares[i]);
+                    }
+                }
+            } else {
+                // Consecutive Gray codes differ in the lowest set bit of the latter's index.
+                current.flip(dontCares[Long.numberOfTrailingZeros(next)]);
+            }
+            next++;
+            return (BitSet) current.clone();
+        }
+
+        /**
+         * Hands over the first half of the remaining codes.
+         */
+        Expansion split() {
+            long middle = next + remaining() / 2;
+            Expansion prefix = new Expansion(base, dontCares, next, middle);
+            next = middle;
+            current = null;
+            return prefix;
+        }
+    }
+
+}
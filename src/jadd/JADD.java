@@ -1,50 +1,210 @@
 package jadd;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.bridj.IntValuedEnum;
 import org.bridj.Pointer;
 
 import bigcudd.BigcuddLibrary;
-import bigcudd.BigcuddLibrary.Cudd_ReorderingType;
 import bigcudd.DdNode;
 
 /**
  * Interface to basic ADD operations.
  *
+ * CUDD is not thread-safe, so every operation on a manager (including the
+ * ones on its ADDs) is run by a dedicated thread. Hence, a manager can be
+ * safely shared among threads. As each operation costs a hand-off to that
+ * thread, though, sequences of operations should be batched with
+ * {@link #call(Task)} or {@link #submit(Supplier)}.
+ *
  * @author thiago
  *
  */
-public class JADD {
+public class JADD implements AutoCloseable {
+    // "JADD" in ASCII.
+    private static final int BINARY_MAGIC = 0x4A414444;
+    private static final int BINARY_VERSION = 1;
 
     private Pointer<BigcuddLibrary.DdManager> dd;
     private VariableStore variableStore = new VariableStore();
+    private NodeReferences references;
+    private Reorderer reorderer;
+    private ManagerThread manager = new ManagerThread();
 
     public JADD() {
-        dd = BigcuddLibrary.Cudd_Init(0,
-                                      0,
-                                      BigcuddLibrary.CUDD_UNIQUE_SLOTS,
-                                      BigcuddLibrary.CUDD_CACHE_SLOTS,
-                                      0);
-        IntValuedEnum<Cudd_ReorderingType> method = Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT;
-//        BigcuddLibrary.Cudd_AutodynEnable(dd, method);
+        manager.call(() -> {
+            dd = BigcuddLibrary.Cudd_Init(0,
+                                          0,
+                                          BigcuddLibrary.CUDD_UNIQUE_SLOTS,
+                                          BigcuddLibrary.CUDD_CACHE_SLOTS,
+                                          0);
+            references = new NodeReferences(dd, manager);
+            // Dynamic reordering is driven by a ReorderingPolicy instead of
+            // Cudd_AutodynEnable, so that it only happens between operations.
+            reorderer = new Reorderer(dd);
+            return null;
+        });
+    }
+
+    /**
+     * Frees the underlying CUDD manager and its thread. Neither the manager
+     * nor its ADDs may be used afterwards, except for closing them (which
+     * then has no effect).
+     */
+    @Override
+    public void close() {
+        manager.call(() -> {
+            references.close();
+            BigcuddLibrary.Cudd_Quit(dd);
+            return null;
+        });
+        manager.shutdown();
+    }
+
+    /**
+     * A batch of ADD operations, to be run by the manager thread.
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs a batch of operations in the manager thread, waiting for its
+     * result. ADD operations issued by the task itself are run right away.
+     *
+     * The task must not wait for other threads which use this manager,
+     * or else they will deadlock.
+     *
+     * @throws E if the task does so.
+     */
+    public <T, E extends Exception> T call(Task<T, E> task) throws E {
+        return manager.call(task);
+    }
+
+    /**
+     * Runs a batch of operations in the manager thread within an arena of
+     * its own, so that every ADD the task creates is released once it is
+     * over. It is meant for tasks which compute plain values (e.g., numbers
+     * or maps) out of intermediate ADDs; tasks whose results are ADDs should
+     * open an arena themselves and {@link ADDArena#keep(ADD) keep} them.
+     *
+     * @throws E if the task does so.
+     */
+    public <T, E extends Exception> T callInArena(Task<T, E> task) throws E {
+        return manager.call(() -> {
+            ADDArena arena = references.openArena();
+            try {
+                return task.run();
+            } finally {
+                arena.close();
+            }
+        });
+    }
+
+    /**
+     * Runs a batch of operations whose ADDs belong to no open arena, so
+     * that they outlive it (e.g., to be cached). They are released by
+     * {@link ADD#close()} or once garbage-collected, as usual.
+     *
+     * @see #call(Task)
+     */
+    public <T, E extends Exception> T callOutsideArenas(Task<T, E> task) throws E {
+        return manager.call(() -> {
+            ADDArena suspended = references.suspendArena();
+            try {
+                return task.run();
+            } finally {
+                references.resumeArena(suspended);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link #call(Task)}.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return manager.submit(task);
     }
 
     public ADD makeConstant(double constant) {
-        return new ADD(dd,
-                       BigcuddLibrary.Cudd_addConst(dd,  constant),
-                       variableStore);
+        return manager.call(() -> new ADD(dd,
+                                          BigcuddLibrary.Cudd_addConst(dd,  constant),
+                                          variableStore,
+                                          references,
+                                          reorderer));
     }
 
     public ADD getVariable(String varName) {
-        if (variableStore.contains(varName)) {
-            return variableStore.get(varName);
-        } else {
-            Pointer<DdNode> var = BigcuddLibrary.Cudd_addNewVar(dd);
-            ADD varADD = new ADD(dd, var, variableStore);
-            variableStore.put(var.get().index(), varName, varADD);
-            return varADD;
-        }
+        return manager.call(() -> {
+            if (variableStore.contains(varName)) {
+                return variableStore.get(varName);
+            } else {
+                Pointer<DdNode> var = BigcuddLibrary.Cudd_addNewVar(dd);
+                // Variables are kept for as long as the manager lives.
+                ADD varADD = new ADD(dd, var, variableStore, references, reorderer, true);
+                variableStore.put(var.get().index(), varName, varADD);
+                return varADD;
+            }
+        });
+    }
+
+    /**
+     * @return whether {@code varName} is a variable of this manager.
+     */
+    public boolean hasVariable(String varName) {
+        return manager.call(() -> variableStore.contains(varName));
+    }
+
+    /**
+     * Opens a scope for intermediate ADDs. Every one of them which is not
+     * explicitly kept is released when the returned arena is closed.
+     *
+     * @see ADDArena
+     */
+    public ADDArena openArena() {
+        return manager.call(references::openArena);
+    }
+
+    /**
+     * Releases the nodes of ADDs which were garbage-collected without
+     * being closed.
+     */
+    public void releaseCollectedADDs() {
+        manager.call(() -> {
+            references.releaseCollected();
+            return null;
+        });
+    }
+
+    /**
+     * @return the number of dead (i.e., unreferenced, but not yet reclaimed)
+     *      nodes in the manager.
+     */
+    public int getDeadNodesCount() {
+        return manager.call(references::getDeadNodesCount);
+    }
+
+    /**
+     * Records the current number of dead nodes, associated with the given
+     * analysis phase (e.g., "before expression solving").
+     */
+    public void snapshotDeadNodes(String phase) {
+        manager.call(() -> {
+            references.snapshotDeadNodes(phase);
+            return null;
+        });
     }
 
     /**
@@ -52,8 +212,54 @@ public class JADD {
     * based on the sifting heuristic.
     */
     public void reorderVariables() {
-        IntValuedEnum<Cudd_ReorderingType> heuristic = Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT;
-        BigcuddLibrary.Cudd_ReduceHeap(dd, heuristic, 1);
+        reorderVariables(ReorderingMethod.SYMMETRIC_SIFT);
+    }
+
+    /**
+     * Reorders the variables for the managed ADDs using the given heuristic.
+     */
+    public void reorderVariables(ReorderingMethod method) {
+        manager.call(() -> {
+            reorderer.reorder(method);
+            return null;
+        });
+    }
+
+    /**
+     * Sets when variables are to be reordered while ADDs are built.
+     * Defaults to {@link ReorderingPolicy#NEVER}.
+     */
+    public void setReorderingPolicy(ReorderingPolicy policy) {
+        manager.call(() -> {
+            reorderer.setPolicy(policy);
+            return null;
+        });
+    }
+
+    public ReorderingPolicy getReorderingPolicy() {
+        return manager.call(reorderer::getPolicy);
+    }
+
+    /**
+     * Sets a listener to be notified of every reordering, which is
+     * called from the manager thread.
+     */
+    public void setReorderingListener(ReorderingListener listener) {
+        manager.call(() -> {
+            reorderer.setListener(listener);
+            return null;
+        });
+    }
+
+    /**
+     * Signals that a level of a hierarchical computation (e.g., of an RDG)
+     * has been completed, which triggers reordering if the policy says so.
+     */
+    public void levelCompleted() {
+        manager.call(() -> {
+            reorderer.levelCompleted();
+            return null;
+        });
     }
 
     /**
@@ -63,30 +269,35 @@ public class JADD {
      * @throws UnrecognizedVariableException
      */
     public void setVariableOrder(String[] orderedVariables) throws UnrecognizedVariableException {
-        int[] permutationVector = variableStore.toPermutationVector(orderedVariables);
-        BigcuddLibrary.Cudd_ShuffleHeap(dd, Pointer.pointerToInts(permutationVector));
+        manager.call(() -> {
+            int[] permutationVector = variableStore.toPermutationVector(orderedVariables);
+            return BigcuddLibrary.Cudd_ShuffleHeap(dd, Pointer.pointerToInts(permutationVector));
+        });
     }
 
     public void dumpDot(String[] functionNames, ADD[] functions, String fileName) {
-        Pointer<?> output = CUtils.fopen(fileName, CUtils.ACCESS_WRITE);
+        manager.call(() -> {
+            Pointer<?> output = CUtils.fopen(fileName, CUtils.ACCESS_WRITE);
 
-        @SuppressWarnings("unchecked")
-        Pointer<DdNode>[] nodes = (Pointer<DdNode>[]) new Pointer[functions.length];
-        int i = 0;
-        for (ADD function : functions) {
-            nodes[i] = function.getUnderlyingNode();
-            i++;
-        }
+            @SuppressWarnings("unchecked")
+            Pointer<DdNode>[] nodes = (Pointer<DdNode>[]) new Pointer[functions.length];
+            int i = 0;
+            for (ADD function : functions) {
+                nodes[i] = function.getUnderlyingNode();
+                i++;
+            }
 
-        String[] orderedVariableNames = variableStore.getOrderedNames();
-        BigcuddLibrary.Cudd_DumpDot(dd,
-                                    functions.length,
-                                    Pointer.pointerToPointers(nodes),
-                                    Pointer.pointerToCStrings(orderedVariableNames),
-                                    Pointer.pointerToCStrings(functionNames),
-                                    output);
+            String[] orderedVariableNames = variableStore.getOrderedNames();
+            BigcuddLibrary.Cudd_DumpDot(dd,
+                                        functions.length,
+                                        Pointer.pointerToPointers(nodes),
+                                        Pointer.pointerToCStrings(orderedVariableNames),
+                                        Pointer.pointerToCStrings(functionNames),
+                                        output);
 
-        CUtils.fclose(output);
+            CUtils.fclose(output);
+            return null;
+        });
     }
 
     public void dumpDot(Map<String, ADD> functions, String fileName) {
@@ -118,26 +329,29 @@ public class JADD {
      * @param fileName Name of the text file to be written.
      */
     public void dumpADD(String functionName, ADD add, String fileName) {
-        Pointer<?> output = CUtils.fopen(fileName, CUtils.ACCESS_WRITE);
-        
-        Pointer<Byte> ddname;
-        if (functionName == null || functionName.isEmpty()) {
-            ddname = null;
-        } else {
-            ddname = Pointer.pointerToCString(functionName);
-        }
+        manager.call(() -> {
+            Pointer<?> output = CUtils.fopen(fileName, CUtils.ACCESS_WRITE);
 
-        String[] orderedVariableNames = variableStore.getOrderedNames(); 
-        BigcuddLibrary.Dddmp_cuddAddStore(dd, 
-                                          ddname, 
-                                          add.getUnderlyingNode(), 
-                                          Pointer.pointerToCStrings(orderedVariableNames), 
-                                          null, 
-                                          BigcuddLibrary.DDDMP_MODE_TEXT, 
-                                          BigcuddLibrary.Dddmp_VarInfoType.DDDMP_VARIDS, 
-                                          Pointer.pointerToCString(fileName), 
-                                          output);
-        CUtils.fclose(output);
+            Pointer<Byte> ddname;
+            if (functionName == null || functionName.isEmpty()) {
+                ddname = null;
+            } else {
+                ddname = Pointer.pointerToCString(functionName);
+            }
+
+            String[] orderedVariableNames = variableStore.getOrderedNames(); 
+            BigcuddLibrary.Dddmp_cuddAddStore(dd, 
+                                              ddname, 
+                                              add.getUnderlyingNode(), 
+                                              Pointer.pointerToCStrings(orderedVariableNames), 
+                                              null, 
+                                              BigcuddLibrary.DDDMP_MODE_TEXT, 
+                                              BigcuddLibrary.Dddmp_VarInfoType.DDDMP_VARIDS, 
+                                              Pointer.pointerToCString(fileName), 
+                                              output);
+            CUtils.fclose(output);
+            return null;
+        });
     }
     
     public void dumpADD(ADD add, String fileName) {
@@ -150,22 +364,91 @@ public class JADD {
      * @return New ADD instance containing the read information.
      */
     public ADD readADD(String fileName) {
-        Pointer<?> input = CUtils.fopen(fileName, CUtils.ACCESS_READ);
-
-        IntValuedEnum<BigcuddLibrary.Dddmp_VarMatchType> varMatchMode = BigcuddLibrary.Dddmp_VarMatchType.DDDMP_VAR_MATCHIDS;
-        int mode = BigcuddLibrary.DDDMP_MODE_TEXT;
-        Pointer<Byte> file = Pointer.pointerToCString(fileName);
-        Pointer<DdNode> node = BigcuddLibrary.Dddmp_cuddAddLoad(dd,
-                                                                varMatchMode,
-                                                                null,
-                                                                null,
-                                                                null,
-                                                                mode,
-                                                                file,
-                                                                input);
-
-        CUtils.fclose(input);
-        
-        return new ADD(dd, node, variableStore);
+        return manager.call(() -> {
+            Pointer<?> input = CUtils.fopen(fileName, CUtils.ACCESS_READ);
+
+            IntValuedEnum<BigcuddLibrary.Dddmp_VarMatchType> varMatchMode = BigcuddLibrary.Dddmp_VarMatchType.DDDMP_VAR_MATCHIDS;
+            int mode = BigcuddLibrary.DDDMP_MODE_TEXT;
+            Pointer<Byte> file = Pointer.pointerToCString(fileName);
+            Pointer<DdNode> node = BigcuddLibrary.Dddmp_cuddAddLoad(dd,
+                                                                    varMatchMode,
+                                                                    null,
+                                                                    null,
+                                                                    null,
+                                                                    mode,
+                                                                    file,
+                                                                    input);
+
+            CUtils.fclose(input);
+
+            ADD loaded = new ADD(dd, node, variableStore, references, reorderer);
+            // The loaded node comes already referenced by dddmp.
+            BigcuddLibrary.Cudd_Deref(node);
+            return loaded;
+        });
+    }
+
+    /**
+     * Writes ADDs to a binary file, along with the names and order of
+     * their variables. Unlike {@link #dumpADD(String, ADD, String)}, this
+     * does not rely on dddmp (whose binary mode does not support ADDs), but
+     * on the compiled form of each ADD. Thus, it needs no manager, and
+     * the ADDs may even come from different ones.
+     *
+     * @param functions ADDs to be stored, by name.
+     * @param fileName Name of the binary file to be written.
+     * @see #readBinary(String)
+     */
+    public static void dumpBinary(Map<String, ADD> functions, String fileName) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            output.writeInt(BINARY_MAGIC);
+            output.writeInt(BINARY_VERSION);
+            output.writeInt(functions.size());
+            for (Map.Entry<String, ADD> function: functions.entrySet()) {
+                output.writeUTF(function.getKey());
+                function.getValue().compile().writeTo(output);
+            }
+        }
+    }
+
+    /**
+     * Reads ADDs from a binary file written by the dumpBinary method.
+     * Variables are matched by name. If this manager has no variables yet,
+     * the stored variable order is restored as well.
+     *
+     * @param fileName Name of the binary file to be read.
+     * @return the read ADDs, by name, in the order they were written.
+     */
+    public Map<String, ADD> readBinary(String fileName) throws IOException {
+        Map<String, CompiledADD> compiled = new LinkedHashMap<String, CompiledADD>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (input.readInt() != BINARY_MAGIC || input.readInt() != BINARY_VERSION) {
+                throw new IOException(fileName + " is not a binary ADD file");
+            }
+            int numFunctions = input.readInt();
+            for (int i = 0; i < numFunctions; i++) {
+                String name = input.readUTF();
+                compiled.put(name, CompiledADD.readFrom(input));
+            }
+        }
+        return manager.call(() -> {
+            if (variableStore.getNumberOfVariables() == 0 && !compiled.isEmpty()) {
+                // Building the ADDs in their original order spares reordering them.
+                List<String> order = compiled.values().iterator().next().getVariableOrder();
+                order.forEach(this::getVariable);
+                try {
+                    setVariableOrder(order.toArray(new String[order.size()]));
+                } catch (UnrecognizedVariableException e) {
+                    // Cannot happen, since all variables have just been created.
+                    throw new IllegalStateException(e);
+                }
+            }
+            Map<String, ADD> functions = new LinkedHashMap<String, ADD>();
+            for (Map.Entry<String, CompiledADD> function: compiled.entrySet()) {
+                functions.put(function.getKey(), function.getValue().rebuild(this));
+            }
+            return functions;
+        });
     }
+
 }
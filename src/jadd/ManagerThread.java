@@ -0,0 +1,111 @@
+package jadd;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Thread which owns a CUDD manager. CUDD is not thread-safe, so every
+ * operation on the manager (and on its ADDs) is run by this thread.
+ *
+ * Operations requested from the owning thread itself are run right away,
+ * so that a whole batch of ADD operations submitted as a single task
+ * incurs only one hand-off.
+ *
+ * The thread is discarded after a while without work and recreated on
+ * demand, so idle managers do not hold on to threads. There is never more
+ * than one of them at a time, though.
+ */
+class ManagerThread {
+    private static final long IDLE_TIMEOUT_SECONDS = 10;
+
+    private ThreadPoolExecutor executor;
+    private volatile Thread owner;
+
+    ManagerThread() {
+        executor = new ThreadPoolExecutor(1, 1,
+                                          IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<Runnable>(),
+                                          runnable -> {
+                                              Thread thread = new Thread(() -> {
+                                                  owner = Thread.currentThread();
+                                                  runnable.run();
+                                              }, "jadd-manager");
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    boolean isOwner() {
+        return Thread.currentThread() == owner;
+    }
+
+    /**
+     * Runs a task in the owning thread and waits for its result.
+     *
+     * @throws E if the task does so.
+     */
+    <T, E extends Exception> T call(JADD.Task<T, E> task) throws E {
+        if (isOwner()) {
+            return task.run();
+        }
+        Future<T> result = executor.submit(task::run);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    // The task cannot be abandoned halfway, so we wait for it anyway.
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw ManagerThread.<E>rethrow(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs a task in the owning thread, asynchronously.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (isOwner()) {
+            CompletableFuture<T> result = new CompletableFuture<T>();
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Lets the owning thread finish pending tasks and then terminate.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> RuntimeException rethrow(Throwable cause) throws E {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw (E) cause;
+    }
+
+}
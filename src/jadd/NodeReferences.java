@@ -0,0 +1,160 @@
+package jadd;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.BigcuddLibrary.DdManager;
+import bigcudd.DdNode;
+
+/**
+ * Bookkeeping of the CUDD references held by the ADDs of a single manager.
+ *
+ * Each ADD holds one reference to its root node, which is released either
+ * explicitly (by {@link ADD#close()} or by closing the {@link ADDArena} in
+ * which it was created) or, as a fallback, once the ADD is garbage-collected.
+ * In the latter case, the reference is released the next time an ADD is
+ * created, so that CUDD is only called from the manager thread.
+ *
+ * Except for the dead nodes snapshots, this class must only be used by the
+ * {@link ManagerThread}, so it needs no synchronization of its own.
+ */
+class NodeReferences {
+
+    private Pointer<DdManager> dd;
+    private ManagerThread manager;
+    private ReferenceQueue<ADD> collected = new ReferenceQueue<ADD>();
+    // Keeps phantom references reachable until their nodes are released.
+    private Set<NodeReference> live = Collections.newSetFromMap(new ConcurrentHashMap<NodeReference, Boolean>());
+    private ADDArena currentArena;
+    private volatile boolean closed = false;
+    private Map<String, Integer> deadNodesSnapshots = new LinkedHashMap<String, Integer>();
+
+    NodeReferences(Pointer<DdManager> dd, ManagerThread manager) {
+        this.dd = dd;
+        this.manager = manager;
+    }
+
+    ManagerThread getManager() {
+        return manager;
+    }
+
+    /**
+     * Starts tracking the (already referenced) root node of {@code add}.
+     *
+     * @param pinned Whether the reference should be kept for the lifetime of
+     *      the manager (e.g., for variables), regardless of {@link ADD#close()}.
+     */
+    NodeReference track(ADD add, Pointer<DdNode> node, boolean pinned) {
+        releaseCollected();
+        NodeReference reference = new NodeReference(add, node, collected, pinned);
+        if (!pinned) {
+            live.add(reference);
+            if (currentArena != null) {
+                currentArena.add(add);
+            }
+        }
+        return reference;
+    }
+
+    /**
+     * Releases a reference, unless it has already been released or is pinned.
+     */
+    void release(NodeReference reference) {
+        if (closed || reference.pinned || !live.remove(reference)) {
+            return;
+        }
+        reference.clear();
+        BigcuddLibrary.Cudd_RecursiveDeref(dd, reference.node);
+    }
+
+    /**
+     * Releases the references of ADDs which have been garbage-collected
+     * without being closed.
+     */
+    void releaseCollected() {
+        NodeReference reference;
+        while ((reference = (NodeReference) collected.poll()) != null) {
+            release(reference);
+        }
+    }
+
+    /**
+     * Stops tracking references, as the manager is about to be freed.
+     */
+    void close() {
+        closed = true;
+        live.clear();
+        currentArena = null;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    ADDArena openArena() {
+        currentArena = new ADDArena(this, currentArena);
+        return currentArena;
+    }
+
+    void closeArena(ADDArena arena, ADDArena parent) {
+        if (currentArena != arena) {
+            throw new IllegalStateException("ADD arenas must be closed in the reverse order they were opened");
+        }
+        currentArena = parent;
+    }
+
+    /**
+     * Detaches the current arena (if any) until {@link #resumeArena(ADDArena)},
+     * so that ADDs created meanwhile are not owned by it.
+     */
+    ADDArena suspendArena() {
+        ADDArena suspended = currentArena;
+        currentArena = null;
+        return suspended;
+    }
+
+    void resumeArena(ADDArena suspended) {
+        if (currentArena != null) {
+            throw new IllegalStateException("ADD arenas must be closed before the enclosing one is resumed");
+        }
+        currentArena = suspended;
+    }
+
+    int getDeadNodesCount() {
+        return BigcuddLibrary.Cudd_ReadDead(dd);
+    }
+
+    void snapshotDeadNodes(String phase) {
+        releaseCollected();
+        int deadNodes = getDeadNodesCount();
+        synchronized (deadNodesSnapshots) {
+            deadNodesSnapshots.put(phase, deadNodes);
+        }
+    }
+
+    Map<String, Integer> getDeadNodesSnapshots() {
+        synchronized (deadNodesSnapshots) {
+            return new LinkedHashMap<String, Integer>(deadNodesSnapshots);
+        }
+    }
+
+    static class NodeReference extends PhantomReference<ADD> {
+        private Pointer<DdNode> node;
+        private boolean pinned;
+
+        NodeReference(ADD add, Pointer<DdNode> node, ReferenceQueue<ADD> queue, boolean pinned) {
+            super(add, queue);
+            this.node = node;
+            this.pinned = pinned;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package jadd;
+
+import org.bridj.Pointer;
+
+import bigcudd.BigcuddLibrary;
+import bigcudd.BigcuddLibrary.DdManager;
+
+/**
+ * Applies the reordering policy of a single manager.
+ *
+ * As all of its state is confined to the {@link ManagerThread}, this class
+ * needs no synchronization.
+ */
+class Reorderer {
+
+    private Pointer<DdManager> dd;
+    private ReorderingPolicy policy = ReorderingPolicy.NEVER;
+    private ReorderingListener listener;
+    private long nextNodeThreshold;
+    private long nextMemoryThreshold;
+    private boolean reordering = false;
+
+    Reorderer(Pointer<DdManager> dd) {
+        this.dd = dd;
+    }
+
+    void setPolicy(ReorderingPolicy policy) {
+        this.policy = policy;
+        updateThresholds();
+    }
+
+    ReorderingPolicy getPolicy() {
+        return policy;
+    }
+
+    void setListener(ReorderingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Called after each ADD operation, once its result has been referenced.
+     */
+    void afterOperation() {
+        if (policy.getGrowthFactor() != 0 && BigcuddLibrary.Cudd_ReadNodeCount(dd) > nextNodeThreshold) {
+            reorder(policy.getMethod());
+        } else if (policy.getMemoryThreshold() != 0 && BigcuddLibrary.Cudd_ReadMemoryInUse(dd) > nextMemoryThreshold) {
+            reorder(policy.getMethod());
+        }
+    }
+
+    /**
+     * Called whenever a level of the RDG has been processed.
+     */
+    void levelCompleted() {
+        if (policy.isBetweenLevels()) {
+            reorder(policy.getMethod());
+        }
+    }
+
+    /**
+     * Reorders the variables, unless a reordering is already under way.
+     */
+    void reorder(ReorderingMethod method) {
+        if (reordering) {
+            return;
+        }
+        reordering = true;
+        try {
+            if (listener != null) {
+                listener.reorderingStarted(method);
+            }
+            BigcuddLibrary.Cudd_ReduceHeap(dd, method.getCuddType(), 1);
+            if (listener != null) {
+                listener.reorderingFinished(method);
+            }
+        } finally {
+            reordering = false;
+        }
+        updateThresholds();
+    }
+
+    private void updateThresholds() {
+        nextNodeThreshold = Math.max(ReorderingPolicy.MINIMUM_NODES,
+                                     (long) (BigcuddLibrary.Cudd_ReadNodeCount(dd) * policy.getGrowthFactor()));
+        long memoryInUse = BigcuddLibrary.Cudd_ReadMemoryInUse(dd);
+        nextMemoryThreshold = policy.getMemoryThreshold();
+        while (nextMemoryThreshold != 0 && nextMemoryThreshold < memoryInUse) {
+            nextMemoryThreshold *= 2;
+        }
+    }
+
+}
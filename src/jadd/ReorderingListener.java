@@ -0,0 +1,13 @@
+package jadd;
+
+/**
+ * Gets notified whenever the variables of a manager are reordered
+ * (e.g., for profiling).
+ */
+public interface ReorderingListener {
+
+    public void reorderingStarted(ReorderingMethod method);
+
+    public void reorderingFinished(ReorderingMethod method);
+
+}
@@ -0,0 +1,38 @@
+package jadd;
+
+import org.bridj.IntValuedEnum;
+
+import bigcudd.BigcuddLibrary.Cudd_ReorderingType;
+
+/**
+ * Variable reordering heuristics provided by CUDD.
+ */
+public enum ReorderingMethod {
+    /**
+     * Rudell's sifting: each variable is moved up and down to its best level.
+     */
+    SIFT(Cudd_ReorderingType.CUDD_REORDER_SIFT),
+    /**
+     * Sifting which keeps groups of symmetric variables together.
+     */
+    SYMMETRIC_SIFT(Cudd_ReorderingType.CUDD_REORDER_SYMM_SIFT),
+    /**
+     * Permutation of windows of three adjacent variables, until convergence.
+     */
+    WINDOW(Cudd_ReorderingType.CUDD_REORDER_WINDOW3_CONV),
+    /**
+     * Simulated annealing. Slow, but less prone to local minima.
+     */
+    ANNEALING(Cudd_ReorderingType.CUDD_REORDER_ANNEALING);
+
+    private IntValuedEnum<Cudd_ReorderingType> cuddType;
+
+    private ReorderingMethod(IntValuedEnum<Cudd_ReorderingType> cuddType) {
+        this.cuddType = cuddType;
+    }
+
+    IntValuedEnum<Cudd_ReorderingType> getCuddType() {
+        return cuddType;
+    }
+
+}
@@ -0,0 +1,63 @@
+package jadd;
+
+/**
+ * When and how to reorder the variables of a manager while ADDs are built.
+ *
+ * Reordering is only triggered between ADD operations, and never while
+ * configurations are being enumerated.
+ */
+public class ReorderingPolicy {
+
+    /**
+     * Variables are only reordered on demand.
+     */
+    public static final ReorderingPolicy NEVER = new ReorderingPolicy(ReorderingMethod.SYMMETRIC_SIFT, 0, false, 0);
+
+    /**
+     * Reordering is not triggered by growth below this number of nodes.
+     */
+    static final long MINIMUM_NODES = 4096;
+
+    private ReorderingMethod method;
+    private double growthFactor;
+    private boolean betweenLevels;
+    private long memoryThreshold;
+
+    /**
+     * @param method Heuristic to use whenever reordering is triggered.
+     * @param growthFactor Reordering is triggered once the number of live
+     *      nodes exceeds this factor times the number of nodes right after
+     *      the previous reordering. Zero disables this trigger.
+     * @param betweenLevels Whether to reorder whenever all the components
+     *      of a given height in the RDG have been processed.
+     * @param memoryThreshold Reordering is triggered once the memory used by
+     *      the manager exceeds this number of bytes. The threshold then doubles,
+     *      since CUDD does not give memory back. Zero disables this trigger.
+     */
+    public ReorderingPolicy(ReorderingMethod method, double growthFactor, boolean betweenLevels, long memoryThreshold) {
+        if (growthFactor != 0 && growthFactor <= 1) {
+            throw new IllegalArgumentException("Growth factor must be greater than 1 (or 0 to disable it)");
+        }
+        this.method = method;
+        this.growthFactor = growthFactor;
+        this.betweenLevels = betweenLevels;
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    public ReorderingMethod getMethod() {
+        return method;
+    }
+
+    public double getGrowthFactor() {
+        return growthFactor;
+    }
+
+    public boolean isBetweenLevels() {
+        return betweenLevels;
+    }
+
+    public long getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+}
@@ -0,0 +1,52 @@
+package paramwrapper;
+
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+
+/**
+ * Decorator which looks reliability formulas up in a persistent
+ * {@link FormulaCache} before resorting to the actual model checker.
+ *
+ * Formulas are keyed by the structural hash of the corresponding
+ * {@link ParamModel}, so unchanged models cost a hash lookup across runs.
+ */
+public class CachingModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(CachingModelChecker.class.getName());
+
+    private ParametricModelChecker modelChecker;
+    private FormulaCache cache;
+
+    public CachingModelChecker(ParametricModelChecker modelChecker, FormulaCache cache) {
+        this.modelChecker = modelChecker;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        return getReliability(new ParamModel(fdtmc), () -> modelChecker.getReliability(fdtmc));
+    }
+
+    @Override
+    public String getReliability(CompactFDTMC fdtmc) {
+        return getReliability(new ParamModel(fdtmc), () -> modelChecker.getReliability(fdtmc));
+    }
+
+    private String getReliability(ParamModel model, Supplier<String> modelChecking) {
+        String key = model.getStructuralHash();
+        String formula = cache.get(key);
+        if (formula != null) {
+            LOGGER.fine("Formula cache hit: " + key);
+            return formula;
+        }
+        formula = modelChecking.get();
+        // Failed model checking yields an empty formula, which must not be cached.
+        if (formula != null && !formula.isEmpty()) {
+            cache.put(key, formula);
+        }
+        return formula;
+    }
+
+}
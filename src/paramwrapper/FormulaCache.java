@@ -0,0 +1,161 @@
+package paramwrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent, content-addressed store of reliability formulas.
+ *
+ * Each formula is kept in its own file, named after the structural hash
+ * of the model it was computed from (see {@link ParamModel#getStructuralHash()}).
+ * Whenever the total size of the cache exceeds the given bound, the least
+ * recently used entries are evicted.
+ *
+ * I/O errors are never fatal: a cache which cannot be read or written
+ * just behaves as an empty one.
+ */
+public class FormulaCache {
+    private static final Logger LOGGER = Logger.getLogger(FormulaCache.class.getName());
+
+    private static final String EXTENSION = ".formula";
+
+    private Path directory;
+    private long maxSizeBytes;
+    // Total size of the entries, as last scanned and then kept up to date
+    // by this instance. Other runs sharing the directory may make it drift,
+    // which is corrected upon the next scan.
+    private long totalSize;
+
+    /**
+     * @param directory Directory where formulas are stored. It is created if needed.
+     * @param maxSizeBytes Upper bound for the total size of the stored formulas.
+     */
+    public FormulaCache(Path directory, long maxSizeBytes) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not create formula cache at " + directory, e);
+        }
+        this.totalSize = computeTotalSize();
+    }
+
+    /**
+     * @return the formula stored under the given key, or {@code null} if there is none.
+     */
+    public String get(String key) {
+        Path entry = getEntryPath(key);
+        try {
+            String formula = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+            // Touching the entry keeps track of recency for eviction.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return formula;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read cached formula " + entry, e);
+            return null;
+        }
+    }
+
+    public void put(String key, String formula) {
+        Path entry = getEntryPath(key);
+        long sizeDelta;
+        try {
+            long previousSize = Files.exists(entry) ? Files.size(entry) : 0;
+            // Writing to a temporary file first keeps concurrent readers
+            // (possibly other runs) from ever seeing partial formulas.
+            Path tempFile = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tempFile, formula.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            sizeDelta = Files.size(entry) - previousSize;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not store formula " + entry, e);
+            return;
+        }
+        evictIfNeeded(entry, sizeDelta);
+    }
+
+    private Path getEntryPath(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /**
+     * Accounts for a change in the size of the cache and, if it no longer
+     * fits its size bound, removes least recently used entries until it does.
+     * Only then is the directory scanned.
+     *
+     * @param newEntry Entry which has just been stored. It is deemed the
+     *      most recently used, regardless of timestamp granularity.
+     */
+    private synchronized void evictIfNeeded(Path newEntry, long sizeDelta) {
+        totalSize += sizeDelta;
+        if (totalSize <= maxSizeBytes) {
+            return;
+        }
+
+        List<Path> entries = new ArrayList<Path>();
+        List<BasicFileAttributes> attributes = new ArrayList<BasicFileAttributes>();
+        long scannedSize = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path entry: stream) {
+                BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                entries.add(entry);
+                attributes.add(entryAttributes);
+                scannedSize += entryAttributes.size();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list formula cache at " + directory, e);
+            return;
+        }
+        totalSize = scannedSize;
+        if (totalSize <= maxSizeBytes) {
+            return;
+        }
+
+        List<Integer> byRecency = new ArrayList<Integer>();
+        for (int i = 0; i < entries.size(); i++) {
+            byRecency.add(i);
+        }
+        Collections.sort(byRecency, Comparator.comparing((Integer i) -> entries.get(i).equals(newEntry))
+                                              .thenComparing(i -> attributes.get(i).lastModifiedTime()));
+        for (Integer i: byRecency) {
+            if (totalSize <= maxSizeBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entries.get(i));
+                totalSize -= attributes.get(i).size();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not evict cached formula " + entries.get(i), e);
+            }
+        }
+    }
+
+    private long computeTotalSize() {
+        long size = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path entry: stream) {
+                size += Files.size(entry);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list formula cache at " + directory, e);
+        }
+        return size;
+    }
+
+}
@@ -6,6 +6,11 @@ public interface IModelCollector {
 
     public void collectModel(int variables, int states);
     public void collectModelCheckingTime(long elapsedTimeNanos);
+    public void collectModelReduction(int originalStates, int reducedStates);
+    public void collectMemoHit();
+    public void collectMemoMiss();
+    public void collectProcessQueueDepth(int depth);
+    public void collectProcessLatency(long queuedTimeNanos, long runningTimeNanos);
     public void printStats(PrintStream out);
 
 }
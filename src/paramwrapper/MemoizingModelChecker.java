@@ -0,0 +1,165 @@
+package paramwrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+
+/**
+ * Decorator which model-checks structurally identical FDTMCs only once.
+ *
+ * Two FDTMCs are deemed identical if they are isomorphic modulo state
+ * numbering and parameter (e.g., interface id) names. To detect that, each
+ * model is put in a canonical form, in which states are numbered in the
+ * order they are reached by a breadth-first traversal from the initial state
+ * and parameters are named in the order they are first found. A memoized
+ * formula is then reused by renaming its parameters back to the ones in
+ * the model at hand.
+ *
+ * The memo lasts as long as this object, i.e., typically a single run.
+ */
+public class MemoizingModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(MemoizingModelChecker.class.getName());
+
+    private static final String PLACEHOLDER_PREFIX = "$";
+
+    private ParametricModelChecker modelChecker;
+    private IModelCollector modelCollector;
+    private Map<String, CompletableFuture<MemoizedFormula>> memo = new ConcurrentHashMap<String, CompletableFuture<MemoizedFormula>>();
+
+    public MemoizingModelChecker(ParametricModelChecker modelChecker) {
+        this(modelChecker, new NoopModelCollector());
+    }
+
+    public MemoizingModelChecker(ParametricModelChecker modelChecker, IModelCollector modelCollector) {
+        this.modelChecker = modelChecker;
+        this.modelCollector = modelCollector;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        return getReliability(new CanonicalForm(fdtmc.toCompact()),
+                              fdtmc.getVariableName(),
+                              () -> modelChecker.getReliability(fdtmc));
+    }
+
+    @Override
+    public String getReliability(CompactFDTMC fdtmc) {
+        return getReliability(new CanonicalForm(fdtmc),
+                              fdtmc.getVariableName(),
+                              () -> modelChecker.getReliability(fdtmc));
+    }
+
+    private String getReliability(CanonicalForm canonicalForm, String modelName, Supplier<String> modelChecking) {
+        CompletableFuture<MemoizedFormula> pending = new CompletableFuture<MemoizedFormula>();
+        CompletableFuture<MemoizedFormula> memoized = memo.putIfAbsent(canonicalForm.key, pending);
+        if (memoized == null) {
+            // Cache miss: this thread is the one in charge of model checking.
+            modelCollector.collectMemoMiss();
+            try {
+                String formula = modelChecking.get();
+                pending.complete(new MemoizedFormula(formula, canonicalForm.parameters));
+                return formula;
+            } catch (RuntimeException e) {
+                memo.remove(canonicalForm.key);
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        modelCollector.collectMemoHit();
+        MemoizedFormula formula = memoized.join();
+        LOGGER.finer("Reusing formula for model isomorphic to " + modelName);
+        return formula.renameParameters(canonicalForm.parameters);
+    }
+
+    /**
+     * A formula along with its parameters, in canonical order.
+     */
+    private static class MemoizedFormula {
+        private String formula;
+        private List<String> parameters;
+
+        MemoizedFormula(String formula, List<String> parameters) {
+            this.formula = formula;
+            this.parameters = parameters;
+        }
+
+        String renameParameters(List<String> newParameters) {
+            if (parameters.equals(newParameters)) {
+                return formula;
+            }
+            Map<String, String> renaming = new HashMap<String, String>();
+            for (int i = 0; i < parameters.size(); i++) {
+                renaming.put(parameters.get(i), newParameters.get(i));
+            }
+            // Renaming is simultaneous, so that swapped names are not mixed up.
+            return ProbabilityExpressionParser.renameVariables(formula,
+                                                               name -> renaming.getOrDefault(name, name));
+        }
+    }
+
+    /**
+     * Canonical textual representation of the part of an FDTMC which is
+     * reachable from its initial state.
+     */
+    private static class CanonicalForm {
+        private String key;
+        private List<String> parameters = new ArrayList<String>();
+
+        CanonicalForm(CompactFDTMC fdtmc) {
+            Map<String, String> placeholders = new LinkedHashMap<String, String>();
+            // Probabilities with placeholders, by probability id.
+            Map<Integer, String> renamedProbabilities = new HashMap<Integer, String>();
+            int[] canonicalIndices = new int[fdtmc.getNumberOfStates()];
+            Arrays.fill(canonicalIndices, -1);
+            int[] pending = new int[fdtmc.getNumberOfStates()];
+            int head = 0;
+            int tail = 0;
+
+            StringBuilder builder = new StringBuilder();
+            canonicalIndices[fdtmc.getInitialState()] = 0;
+            pending[tail++] = fdtmc.getInitialState();
+            while (head < tail) {
+                int state = pending[head++];
+                builder.append(canonicalIndices[state]);
+                String label = fdtmc.getLabel(state);
+                if (label != null) {
+                    builder.append('[').append(label).append(']');
+                }
+                builder.append(':');
+                for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getFirstTransition(state + 1); t++) {
+                    int target = fdtmc.getTarget(t);
+                    if (canonicalIndices[target] < 0) {
+                        canonicalIndices[target] = tail;
+                        pending[tail++] = target;
+                    }
+                    String probability = renamedProbabilities.get(fdtmc.getProbabilityId(t));
+                    if (probability == null) {
+                        probability = ProbabilityExpressionParser.renameVariables(
+                                fdtmc.getProbability(t),
+                                name -> placeholders.computeIfAbsent(name, k -> PLACEHOLDER_PREFIX + placeholders.size()))
+                            .replaceAll("\\s+", "");
+                        renamedProbabilities.put(fdtmc.getProbabilityId(t), probability);
+                    }
+                    builder.append(probability)
+                        .append("->")
+                        .append(canonicalIndices[target])
+                        .append(';');
+                }
+                builder.append('\n');
+            }
+            key = builder.toString();
+            parameters.addAll(placeholders.keySet());
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package paramwrapper;
+
+public enum ModelCheckerBackend {
+    /**
+     * External PARAM or Prism executable.
+     */
+    EXTERNAL,
+    /**
+     * Built-in state elimination, with no process spawning whatsoever.
+     */
+    IN_PROCESS
+}
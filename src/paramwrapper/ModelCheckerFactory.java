@@ -0,0 +1,99 @@
+package paramwrapper;
+
+public class ModelCheckerFactory {
+
+    private ModelCheckerFactory() {
+        // NO-OP
+    }
+
+    /**
+     * Creates a parametric model checker for the given backend.
+     *
+     * @param backend Which model checker implementation to use.
+     * @param paramPath Path to the PARAM or Prism executable (only meaningful
+     *          for the {@link ModelCheckerBackend#EXTERNAL} backend).
+     * @param modelCollector Stats collector for the checked models (may be null).
+     * @return
+     */
+    public static ParametricModelChecker createModelChecker(ModelCheckerBackend backend,
+                                                            String paramPath,
+                                                            IModelCollector modelCollector) {
+        return createModelChecker(backend,
+                                  paramPath,
+                                  modelCollector,
+                                  Runtime.getRuntime().availableProcessors(),
+                                  ParamWrapper.DEFAULT_QUEUE_CAPACITY,
+                                  ModelCheckerIO.FILES);
+    }
+
+    /**
+     * Creates a parametric model checker for the given backend.
+     *
+     * @param backend Which model checker implementation to use.
+     * @param paramPath Path to the PARAM or Prism executable (only meaningful
+     *          for the {@link ModelCheckerBackend#EXTERNAL} backend).
+     * @param modelCollector Stats collector for the checked models (may be null).
+     * @param maxProcesses Maximum number of concurrent model checker processes
+     *          (only meaningful for the {@link ModelCheckerBackend#EXTERNAL} backend).
+     * @param queueCapacity Maximum number of model checker invocations waiting
+     *          for a process slot before callers are blocked.
+     * @param ioMode How models are handed over to external model checker processes.
+     * @return
+     */
+    public static ParametricModelChecker createModelChecker(ModelCheckerBackend backend,
+                                                            String paramPath,
+                                                            IModelCollector modelCollector,
+                                                            int maxProcesses,
+                                                            int queueCapacity,
+                                                            ModelCheckerIO ioMode) {
+        IModelCollector collector = (modelCollector != null) ? modelCollector : new NoopModelCollector();
+        ParametricModelChecker modelChecker;
+        switch (backend) {
+        case IN_PROCESS:
+            modelChecker = new StateEliminationModelChecker(collector);
+            break;
+        case EXTERNAL:
+        default:
+            ProcessScheduler scheduler = new ProcessScheduler(maxProcesses, queueCapacity, collector);
+            modelChecker = new ParamWrapper(paramPath, collector, scheduler, ioMode);
+            break;
+        }
+        // Parameter-free models are always solved numerically, in process.
+        return new NumericFastPathModelChecker(modelChecker, collector);
+    }
+
+    /**
+     * Decorates a model checker so that structurally identical models
+     * are model-checked only once.
+     *
+     * @param modelChecker The model checker to be decorated.
+     * @param modelCollector Stats collector for memo hits and misses (may be null).
+     * @return
+     */
+    public static ParametricModelChecker withMemoization(ParametricModelChecker modelChecker,
+                                                         IModelCollector modelCollector) {
+        IModelCollector collector = (modelCollector != null) ? modelCollector : new NoopModelCollector();
+        return new MemoizingModelChecker(modelChecker, collector);
+    }
+
+    /**
+     * Decorates a model checker so that models are reduced before
+     * being model-checked.
+     *
+     * @param modelChecker The model checker to be decorated.
+     * @param reduction Which reductions to apply.
+     * @param modelCollector Stats collector for model sizes (may be null).
+     * @return {@code modelChecker} itself if {@code reduction} is
+     *      {@link ModelReduction#NONE}.
+     */
+    public static ParametricModelChecker withReduction(ParametricModelChecker modelChecker,
+                                                       ModelReduction reduction,
+                                                       IModelCollector modelCollector) {
+        if (reduction == ModelReduction.NONE) {
+            return modelChecker;
+        }
+        IModelCollector collector = (modelCollector != null) ? modelCollector : new NoopModelCollector();
+        return new ReducingModelChecker(modelChecker, reduction, collector);
+    }
+
+}
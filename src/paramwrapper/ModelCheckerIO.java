@@ -0,0 +1,18 @@
+package paramwrapper;
+
+/**
+ * How models are handed over to an external model checker.
+ */
+public enum ModelCheckerIO {
+    /**
+     * Models are written to files in a RAM-backed work directory
+     * (whenever one is available), which are deleted right after use.
+     */
+    FILES,
+    /**
+     * Models are streamed to the model checker through named pipes,
+     * so that they never reach the file system. Falls back to {@link #FILES}
+     * if named pipes are not supported by the platform.
+     */
+    NAMED_PIPES
+}
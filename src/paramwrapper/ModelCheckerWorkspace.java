@@ -0,0 +1,258 @@
+package paramwrapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Work directory for the files exchanged with an external model checker.
+ *
+ * The directory is created once, preferably in RAM-backed storage, and reused
+ * by every invocation. Per-invocation files are deleted as soon as the
+ * invocation is over, and the directory itself is deleted on {@link #close()}
+ * (or when the JVM shuts down, at the latest, by a single hook shared by all
+ * workspaces which are still open).
+ *
+ * In {@link ModelCheckerIO#NAMED_PIPES} mode, models are streamed through
+ * named pipes, which are pooled and reused across invocations.
+ */
+public class ModelCheckerWorkspace implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ModelCheckerWorkspace.class.getName());
+
+    private static final Path RAM_BACKED_DIRECTORY = Paths.get("/dev/shm");
+
+    private static final Set<ModelCheckerWorkspace> OPEN_WORKSPACES = ConcurrentHashMap.newKeySet();
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (ModelCheckerWorkspace workspace: OPEN_WORKSPACES) {
+                workspace.close();
+            }
+        }, "model-checker-workspace-cleanup"));
+    }
+
+    private Path directory;
+    private boolean useNamedPipes;
+    private AtomicLong invocationCounter = new AtomicLong();
+    private ConcurrentLinkedQueue<Path> idlePipes = new ConcurrentLinkedQueue<Path>();
+    private Map<String, Path> propertyFiles = new HashMap<String, Path>();
+    private ExecutorService pipeWriters;
+
+    public ModelCheckerWorkspace(ModelCheckerIO mode) throws IOException {
+        Path baseDirectory = (Files.isDirectory(RAM_BACKED_DIRECTORY) && Files.isWritable(RAM_BACKED_DIRECTORY))
+                ? RAM_BACKED_DIRECTORY
+                : Paths.get(System.getProperty("java.io.tmpdir"));
+        directory = Files.createTempDirectory(baseDirectory, "reana");
+        OPEN_WORKSPACES.add(this);
+
+        if (mode == ModelCheckerIO.NAMED_PIPES) {
+            try {
+                idlePipes.add(createNamedPipe());
+                useNamedPipes = true;
+                pipeWriters = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "model-checker-pipe-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Named pipes are not supported; falling back to files.", e);
+            }
+        }
+        LOGGER.fine("Model checker workspace at " + directory);
+    }
+
+    /**
+     * @return a file with the given property, which is written only once.
+     */
+    public synchronized Path getPropertyFile(String property) throws IOException {
+        Path propertyFile = propertyFiles.get(property);
+        if (propertyFile == null) {
+            propertyFile = directory.resolve("property" + propertyFiles.size() + ".prop");
+            try (Writer writer = Files.newBufferedWriter(propertyFile, StandardCharsets.UTF_8)) {
+                writer.write(property);
+            }
+            propertyFiles.put(property, propertyFile);
+        }
+        return propertyFile;
+    }
+
+    /**
+     * Reserves the files for a model checker invocation.
+     * The returned slot must be closed once the invocation is over.
+     */
+    public Slot newSlot() {
+        long id = invocationCounter.incrementAndGet();
+        Path resultFile = directory.resolve("result" + id);
+        Path outputFile = directory.resolve("output" + id);
+        if (useNamedPipes) {
+            Path pipe = idlePipes.poll();
+            if (pipe == null) {
+                try {
+                    pipe = createNamedPipe();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not create named pipe; using a file instead.", e);
+                }
+            }
+            if (pipe != null) {
+                return new Slot(pipe, resultFile, outputFile, true);
+            }
+        }
+        return new Slot(directory.resolve("model" + id + ".param"), resultFile, outputFile, false);
+    }
+
+    /**
+     * Deletes the work directory and everything in it.
+     */
+    @Override
+    public synchronized void close() {
+        if (directory == null) {
+            return;
+        }
+        OPEN_WORKSPACES.remove(this);
+        if (pipeWriters != null) {
+            pipeWriters.shutdownNow();
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry: entries) {
+                Files.deleteIfExists(entry);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not clean up model checker workspace " + directory, e);
+        }
+        directory = null;
+    }
+
+    private Path createNamedPipe() throws IOException {
+        Path pipe = directory.resolve("model" + invocationCounter.incrementAndGet() + ".pipe");
+        Process mkfifo = new ProcessBuilder("mkfifo", pipe.toString()).start();
+        try {
+            if (mkfifo.waitFor() != 0) {
+                throw new IOException("mkfifo exited with code " + mkfifo.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return pipe;
+    }
+
+    /**
+     * Reads the last non-empty line of a file, one line at a time.
+     *
+     * @return the last non-empty line or {@code null} if there is none.
+     */
+    public static String readLastNonEmptyLine(Path file) throws IOException {
+        String lastLine = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lastLine = line;
+                }
+            }
+        }
+        return lastLine;
+    }
+
+    /**
+     * Files for a single model checker invocation.
+     */
+    public class Slot implements AutoCloseable {
+        private Path modelFile;
+        private Path resultFile;
+        private Path outputFile;
+        private boolean isNamedPipe;
+        private CompletableFuture<Void> modelWriting = CompletableFuture.completedFuture(null);
+
+        private Slot(Path modelFile, Path resultFile, Path outputFile, boolean isNamedPipe) {
+            this.modelFile = modelFile;
+            this.resultFile = resultFile;
+            this.outputFile = outputFile;
+            this.isNamedPipe = isNamedPipe;
+        }
+
+        public Path getModelFile() {
+            return modelFile;
+        }
+
+        public Path getResultFile() {
+            return resultFile;
+        }
+
+        /**
+         * @return a file to which the model checker's console output
+         *      (both stdout and stderr) may be redirected.
+         */
+        public Path getOutputFile() {
+            return outputFile;
+        }
+
+        /**
+         * Writes the model to be checked. This must be called before the
+         * model checker is launched. If the model file is a named pipe,
+         * writing proceeds in the background while the model checker reads it.
+         */
+        public void writeModel(String model) throws IOException {
+            if (isNamedPipe) {
+                modelWriting = CompletableFuture.runAsync(() -> {
+                    try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(modelFile),
+                                                                                   StandardCharsets.UTF_8))) {
+                        writer.write(model);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not stream model to " + modelFile, e);
+                    }
+                }, pipeWriters);
+            } else {
+                try (Writer writer = Files.newBufferedWriter(modelFile, StandardCharsets.UTF_8)) {
+                    writer.write(model);
+                }
+            }
+        }
+
+        /**
+         * Deletes the files of this invocation. A named pipe is returned to the
+         * pool instead, after unblocking any writer the model checker may have
+         * left behind (e.g., if it crashed before reading the whole model).
+         */
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(resultFile);
+            Files.deleteIfExists(Paths.get(resultFile + ".out"));
+            Files.deleteIfExists(outputFile);
+            if (!isNamedPipe) {
+                Files.deleteIfExists(modelFile);
+                return;
+            }
+            if (!modelWriting.isDone()) {
+                try (InputStream drain = Files.newInputStream(modelFile)) {
+                    byte[] buffer = new byte[8192];
+                    while (drain.read(buffer) >= 0) {
+                        // Just discard unread model contents.
+                    }
+                }
+            }
+            modelWriting.join();
+            idlePipes.add(modelFile);
+        }
+    }
+
+}
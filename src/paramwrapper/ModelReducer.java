@@ -0,0 +1,312 @@
+package paramwrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+
+/**
+ * Reductions of FDTMCs which preserve the probability of reaching a
+ * success state, meant to shrink the models sent to the model checker.
+ *
+ * Reduced models keep only the "initial", "success" and "error" labels,
+ * and have no interfaces.
+ */
+class ModelReducer {
+
+    private static final Pattern SIMPLE_TERM = Pattern.compile("[A-Za-z0-9_.]+");
+
+    private ModelReducer() {
+        // NO-OP
+    }
+
+    /**
+     * Applies the given reduction to an FDTMC.
+     *
+     * @return the reduced FDTMC, or {@code fdtmc} itself if it cannot be
+     *      reduced (e.g., if its success state is not reachable at all).
+     */
+    static CompactFDTMC reduce(CompactFDTMC fdtmc, ModelReduction reduction) {
+        if (reduction == ModelReduction.NONE) {
+            return fdtmc;
+        }
+        CompactFDTMC reduced = collapseChains(fdtmc);
+        if (reduction == ModelReduction.BISIMULATION) {
+            reduced = minimizeBisimulation(reduced);
+        }
+        return reduced;
+    }
+
+    /**
+     * Removes states which are unreachable from the initial one, merges the
+     * ones which cannot reach success into a single sink state and replaces
+     * every chain of single-successor states by a single transition whose
+     * probability is the product of the ones along the chain.
+     */
+    static CompactFDTMC collapseChains(CompactFDTMC fdtmc) {
+        int numberOfStates = fdtmc.getNumberOfStates();
+        int initial = fdtmc.getInitialState();
+        boolean[] targets = new boolean[numberOfStates];
+        for (int state = 0; state < numberOfStates; state++) {
+            targets[state] = FDTMC.SUCCESS_LABEL.equals(fdtmc.getLabel(state));
+        }
+        if (initial == CompactFDTMC.NO_STATE || targets[initial]) {
+            return fdtmc;
+        }
+        boolean[] relevant = getRelevantStates(fdtmc, targets);
+        if (!relevant[initial]) {
+            return fdtmc;
+        }
+
+        // States to be collapsed, along with where their chains end and their probabilities.
+        boolean[] collapsible = new boolean[numberOfStates];
+        for (int state = 0; state < numberOfStates; state++) {
+            int first = fdtmc.getFirstTransition(state);
+            collapsible[state] = relevant[state]
+                    && !targets[state]
+                    && state != initial
+                    && fdtmc.getFirstTransition(state + 1) - first == 1
+                    && fdtmc.getTarget(first) != state;
+        }
+        int[] chainEnds = new int[numberOfStates];
+        String[] chainProbabilities = new String[numberOfStates];
+        Arrays.fill(chainEnds, CompactFDTMC.NO_STATE);
+        for (int state = 0; state < numberOfStates; state++) {
+            if (collapsible[state]) {
+                resolveChain(fdtmc, state, collapsible, chainEnds, chainProbabilities);
+            }
+        }
+
+        int[] newIndices = new int[numberOfStates];
+        Arrays.fill(newIndices, CompactFDTMC.NO_STATE);
+        CompactFDTMC.Builder builder = new CompactFDTMC.Builder(fdtmc.getVariableName());
+        for (int state = 0; state < numberOfStates; state++) {
+            if (relevant[state] && !collapsible[state]) {
+                String label = null;
+                if (targets[state]) {
+                    label = FDTMC.SUCCESS_LABEL;
+                } else if (state == initial) {
+                    label = FDTMC.INITIAL_LABEL;
+                }
+                newIndices[state] = builder.addState(label);
+            }
+        }
+        builder.setInitialState(newIndices[initial]);
+        int success = fdtmc.getSuccessState();
+        builder.setSuccessState((success != CompactFDTMC.NO_STATE) ? newIndices[success] : CompactFDTMC.NO_STATE);
+
+        int sink = CompactFDTMC.NO_STATE;
+        for (int state = 0; state < numberOfStates; state++) {
+            // Success states are absorbing as far as reachability is concerned.
+            if (newIndices[state] == CompactFDTMC.NO_STATE || targets[state]) {
+                continue;
+            }
+            for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getFirstTransition(state + 1); t++) {
+                int target = fdtmc.getTarget(t);
+                String probability = fdtmc.getProbability(t);
+                int newTarget;
+                if (!relevant[target]) {
+                    if (sink == CompactFDTMC.NO_STATE) {
+                        sink = builder.addState(FDTMC.ERROR_LABEL);
+                        builder.setErrorState(sink);
+                    }
+                    newTarget = sink;
+                } else if (collapsible[target]) {
+                    newTarget = newIndices[chainEnds[target]];
+                    probability = multiply(probability, chainProbabilities[target]);
+                } else {
+                    newTarget = newIndices[target];
+                }
+                builder.addTransition(newIndices[state], newTarget, probability, fdtmc.getActionName(t));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Merges states which are probabilistically bisimilar with respect to
+     * reaching success. Two states are merged if, for every equivalence
+     * class, they reach it with the same multiset of (syntactically equal)
+     * transition probabilities, which is a sufficient (though not necessary)
+     * condition for symbolic probabilities.
+     */
+    static CompactFDTMC minimizeBisimulation(CompactFDTMC fdtmc) {
+        int numberOfStates = fdtmc.getNumberOfStates();
+        int[] blocks = new int[numberOfStates];
+        int numberOfBlocks = 0;
+        for (int state = 0; state < numberOfStates; state++) {
+            blocks[state] = FDTMC.SUCCESS_LABEL.equals(fdtmc.getLabel(state)) ? 0 : 1;
+            numberOfBlocks = Math.max(numberOfBlocks, blocks[state] + 1);
+        }
+        // Partition refinement, until no block is split anymore.
+        while (true) {
+            Map<String, Integer> signatures = new HashMap<String, Integer>();
+            int[] refined = new int[numberOfStates];
+            for (int state = 0; state < numberOfStates; state++) {
+                String signature = getSignature(fdtmc, state, blocks);
+                Integer block = signatures.get(signature);
+                if (block == null) {
+                    block = signatures.size();
+                    signatures.put(signature, block);
+                }
+                refined[state] = block;
+            }
+            boolean isStable = signatures.size() == numberOfBlocks;
+            blocks = refined;
+            numberOfBlocks = signatures.size();
+            if (isStable) {
+                break;
+            }
+        }
+        if (numberOfBlocks == numberOfStates) {
+            return fdtmc;
+        }
+
+        CompactFDTMC.Builder builder = new CompactFDTMC.Builder(fdtmc.getVariableName());
+        int[] representatives = new int[numberOfBlocks];
+        Arrays.fill(representatives, CompactFDTMC.NO_STATE);
+        for (int state = 0; state < numberOfStates; state++) {
+            if (representatives[blocks[state]] == CompactFDTMC.NO_STATE) {
+                representatives[blocks[state]] = state;
+            }
+        }
+        int initialBlock = blocks[fdtmc.getInitialState()];
+        for (int block = 0; block < numberOfBlocks; block++) {
+            String label = fdtmc.getLabel(representatives[block]);
+            if (block == initialBlock) {
+                label = FDTMC.INITIAL_LABEL;
+            } else if (FDTMC.INITIAL_LABEL.equals(label)) {
+                label = null;
+            }
+            builder.addState(label);
+        }
+        builder.setInitialState(initialBlock);
+        if (fdtmc.getSuccessState() != CompactFDTMC.NO_STATE) {
+            builder.setSuccessState(blocks[fdtmc.getSuccessState()]);
+        }
+        if (fdtmc.getErrorState() != CompactFDTMC.NO_STATE) {
+            builder.setErrorState(blocks[fdtmc.getErrorState()]);
+        }
+        for (int block = 0; block < numberOfBlocks; block++) {
+            int representative = representatives[block];
+            for (int t = fdtmc.getFirstTransition(representative); t < fdtmc.getFirstTransition(representative + 1); t++) {
+                builder.addTransition(block,
+                                      blocks[fdtmc.getTarget(t)],
+                                      fdtmc.getProbability(t),
+                                      fdtmc.getActionName(t));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * States which are reachable from the initial state and from which
+     * some success state is reachable.
+     */
+    private static boolean[] getRelevantStates(CompactFDTMC fdtmc, boolean[] targets) {
+        int numberOfStates = fdtmc.getNumberOfStates();
+        boolean[] reachable = new boolean[numberOfStates];
+        int[] pending = new int[numberOfStates];
+        int top = 0;
+        reachable[fdtmc.getInitialState()] = true;
+        pending[top++] = fdtmc.getInitialState();
+        List<List<Integer>> predecessors = new ArrayList<List<Integer>>(numberOfStates);
+        for (int state = 0; state < numberOfStates; state++) {
+            predecessors.add(new ArrayList<Integer>());
+        }
+        while (top > 0) {
+            int state = pending[--top];
+            if (targets[state]) {
+                continue;
+            }
+            for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getFirstTransition(state + 1); t++) {
+                int target = fdtmc.getTarget(t);
+                predecessors.get(target).add(state);
+                if (!reachable[target]) {
+                    reachable[target] = true;
+                    pending[top++] = target;
+                }
+            }
+        }
+
+        boolean[] relevant = new boolean[numberOfStates];
+        for (int state = 0; state < numberOfStates; state++) {
+            if (targets[state] && reachable[state]) {
+                relevant[state] = true;
+                pending[top++] = state;
+            }
+        }
+        while (top > 0) {
+            int state = pending[--top];
+            for (int predecessor: predecessors.get(state)) {
+                if (!relevant[predecessor]) {
+                    relevant[predecessor] = true;
+                    pending[top++] = predecessor;
+                }
+            }
+        }
+        return relevant;
+    }
+
+    /**
+     * Follows the chain of collapsible states starting at {@code state},
+     * recording where it ends and the product of its probabilities for
+     * every state along it. Relevant chains cannot be cyclic, since a cycle
+     * of single-successor states never reaches success.
+     */
+    private static void resolveChain(CompactFDTMC fdtmc, int state, boolean[] collapsible, int[] chainEnds, String[] chainProbabilities) {
+        List<Integer> chain = new ArrayList<Integer>();
+        int current = state;
+        while (collapsible[current] && chainEnds[current] == CompactFDTMC.NO_STATE) {
+            chain.add(current);
+            current = fdtmc.getTarget(fdtmc.getFirstTransition(current));
+        }
+        int end = collapsible[current] ? chainEnds[current] : current;
+        String probability = collapsible[current] ? chainProbabilities[current] : "1";
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            int link = chain.get(i);
+            probability = multiply(fdtmc.getProbability(fdtmc.getFirstTransition(link)), probability);
+            chainEnds[link] = end;
+            chainProbabilities[link] = probability;
+        }
+    }
+
+    private static String getSignature(CompactFDTMC fdtmc, int state, int[] blocks) {
+        int first = fdtmc.getFirstTransition(state);
+        int end = fdtmc.getFirstTransition(state + 1);
+        long[] successors = new long[end - first];
+        for (int t = first; t < end; t++) {
+            successors[t - first] = ((long) blocks[fdtmc.getTarget(t)] << 32) | (fdtmc.getProbabilityId(t) & 0xFFFFFFFFL);
+        }
+        Arrays.sort(successors);
+        return blocks[state] + ":" + Arrays.toString(successors);
+    }
+
+    private static String multiply(String first, String second) {
+        if (isOne(first)) {
+            return second;
+        }
+        if (isOne(second)) {
+            return first;
+        }
+        return parenthesize(first) + "*" + parenthesize(second);
+    }
+
+    private static String parenthesize(String term) {
+        return SIMPLE_TERM.matcher(term).matches() ? term : "(" + term + ")";
+    }
+
+    private static boolean isOne(String probability) {
+        try {
+            return Double.parseDouble(probability) == 1;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package paramwrapper;
+
+/**
+ * Reductions applied to models before they are model-checked.
+ * All of them preserve the probability of reaching a success state.
+ */
+public enum ModelReduction {
+    /**
+     * Models are checked as derived.
+     */
+    NONE,
+    /**
+     * Unreachable states are removed, states which cannot reach success
+     * are merged into a single sink and chains of single-successor states
+     * are collapsed into single transitions.
+     */
+    BASIC,
+    /**
+     * {@link #BASIC} reductions followed by probabilistic bisimulation
+     * minimization.
+     */
+    BISIMULATION
+}
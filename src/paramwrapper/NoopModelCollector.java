@@ -14,6 +14,31 @@ public class NoopModelCollector implements IModelCollector {
         // NO-OP
     }
 
+    @Override
+    public void collectModelReduction(int originalStates, int reducedStates) {
+        // NO-OP
+    }
+
+    @Override
+    public void collectMemoHit() {
+        // NO-OP
+    }
+
+    @Override
+    public void collectMemoMiss() {
+        // NO-OP
+    }
+
+    @Override
+    public void collectProcessQueueDepth(int depth) {
+        // NO-OP
+    }
+
+    @Override
+    public void collectProcessLatency(long queuedTimeNanos, long runningTimeNanos) {
+        // NO-OP
+    }
+
     @Override
     public void printStats(PrintStream out) {
         // NO-OP
@@ -0,0 +1,64 @@
+package paramwrapper;
+
+import java.math.BigDecimal;
+import java.util.logging.Logger;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+
+/**
+ * Decorator which solves parameter-free models in process, with a numeric
+ * sparse solver, and only delegates parametric ones to the actual model checker.
+ *
+ * Product-based analyses derive fully numeric models, for which a parametric
+ * model checker would just compute a constant.
+ */
+public class NumericFastPathModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(NumericFastPathModelChecker.class.getName());
+
+    private ParametricModelChecker modelChecker;
+    private IModelCollector modelCollector;
+
+    public NumericFastPathModelChecker(ParametricModelChecker modelChecker) {
+        this(modelChecker, new NoopModelCollector());
+    }
+
+    public NumericFastPathModelChecker(ParametricModelChecker modelChecker, IModelCollector modelCollector) {
+        this.modelChecker = modelChecker;
+        this.modelCollector = modelCollector;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        ParamModel model = new ParamModel(fdtmc);
+        if (!model.getParameters().isEmpty()) {
+            return modelChecker.getReliability(fdtmc);
+        }
+        long startTime = System.nanoTime();
+        return solve(SparseDTMC.fromFDTMC(fdtmc), startTime);
+    }
+
+    @Override
+    public String getReliability(CompactFDTMC fdtmc) {
+        ParamModel model = new ParamModel(fdtmc);
+        if (!model.getParameters().isEmpty()) {
+            return modelChecker.getReliability(fdtmc);
+        }
+        long startTime = System.nanoTime();
+        return solve(SparseDTMC.fromCompact(fdtmc), startTime);
+    }
+
+    private String solve(SparseDTMC dtmc, long startTime) {
+        modelCollector.collectModel(0, dtmc.getNumberOfStates());
+
+        double reliability = dtmc.getReachabilityProbability();
+
+        long elapsedTime = System.nanoTime() - startTime;
+        modelCollector.collectModelCheckingTime(elapsedTime);
+        // Plain notation, since scientific one is not understood by every expression parser.
+        String formula = BigDecimal.valueOf(reliability).toPlainString();
+        LOGGER.finer(formula);
+        return formula;
+    }
+
+}
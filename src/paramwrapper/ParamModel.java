@@ -1,5 +1,8 @@
 package paramwrapper;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -10,9 +13,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import fdtmc.CompactFDTMC;
 import fdtmc.FDTMC;
 import fdtmc.State;
 import fdtmc.Transition;
@@ -20,6 +22,8 @@ import fdtmc.Transition;
 
 
 class ParamModel {
+	private static final String CANONICAL_STATE_VARIABLE = "s";
+
 	private String stateVariable = "s";
 	// TODO Deixar nome do módulo PARAM configurável.
 	private String moduleName = "dummyModule";
@@ -47,6 +51,19 @@ class ParamModel {
 		parameters = getParameters(commands.values());
 	}
 
+	public ParamModel(CompactFDTMC fdtmc) {
+		if (fdtmc.getVariableName() != null) {
+			stateVariable = fdtmc.getVariableName();
+		}
+		initialState = fdtmc.getInitialState();
+		commands = getCommands(fdtmc);
+		labels = getLabels(fdtmc);
+		stateRangeStart = Collections.min(commands.keySet());
+		stateRangeEnd = Math.max(stateRangeStart + 1,
+								 Collections.max(commands.keySet()));
+		parameters = getParameters(commands.values());
+	}
+
     public int getParametersNumber() {
         return parameters.size();
     }
@@ -74,6 +91,36 @@ class ParamModel {
 		return labeledStates;
 	}
 
+	private Map<String, Set<Integer>> getLabels(CompactFDTMC fdtmc) {
+		Map<String, Set<Integer>> labeledStates = new TreeMap<String, Set<Integer>>();
+		for (int state = 0; state < fdtmc.getNumberOfStates(); state++) {
+			String label = fdtmc.getLabel(state);
+			if (label != null && !label.isEmpty()) {
+				labeledStates.computeIfAbsent(label, k -> new TreeSet<Integer>()).add(state);
+			}
+		}
+		return labeledStates;
+	}
+
+	private Map<Integer, Command> getCommands(CompactFDTMC fdtmc) {
+		Map<Integer, Command> tmpCommands = new TreeMap<Integer, Command>();
+		for (int state = 0; state < fdtmc.getNumberOfStates(); state++) {
+			Command command = new Command(state);
+			int first = fdtmc.getFirstTransition(state);
+			int end = fdtmc.getFirstTransition(state + 1);
+			if (first < end) {
+				for (int t = first; t < end; t++) {
+					command.addUpdate(fdtmc.getProbability(t), fdtmc.getTarget(t));
+				}
+			} else {
+				// Same workaround as for FDTMCs: self-loops for states without transitions.
+				command.addUpdate("1", state);
+			}
+			tmpCommands.put(state, command);
+		}
+		return tmpCommands;
+	}
+
 	private Map<Integer, Command> getCommands(FDTMC fdtmc) {
 		Map<Integer, Command> tmpCommands = new TreeMap<Integer, Command>();
 		for (Entry<State, List<Transition>> entry : fdtmc.getTransitions().entrySet()) {
@@ -96,21 +143,46 @@ class ParamModel {
 
 	private Set<String> getParameters(Collection<Command> commands) {
 		Set<String> tmpParameters = new HashSet<String>();
-
-		Pattern validIdentifier = Pattern.compile("(^|\\d+-)([A-Za-z_][A-Za-z0-9_]*)");
 		for (Command command : commands) {
 			for (String probability : command.getUpdatesProbabilities()) {
-				Matcher m = validIdentifier.matcher(probability);
-				while (m.find()) {
-					tmpParameters.add(m.group(2));
-				}
+				// Probabilities may be arbitrary expressions (e.g., products of reduced chains).
+				tmpParameters.addAll(ProbabilityExpressionParser.getVariables(probability));
 			}
 		}
 		return tmpParameters;
 	}
 
+	/**
+	 * Structural hash of this model, i.e., of its states, labels, transitions
+	 * and parameters. Models which differ only in the names of their state
+	 * variables (or in the order in which parameters were found) have the
+	 * same hash.
+	 *
+	 * @return SHA-256 digest of the canonical form of the model, in hexadecimal.
+	 */
+	public String getStructuralHash() {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+		byte[] hash = digest.digest(toString(CANONICAL_STATE_VARIABLE, new TreeSet<String>(parameters))
+				.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hexHash = new StringBuilder();
+		for (byte b : hash) {
+			hexHash.append(String.format("%02x", b));
+		}
+		return hexHash.toString();
+	}
+
 	@Override
 	public String toString() {
+		return toString(stateVariable, parameters);
+	}
+
+	private String toString(String stateVariable, Set<String> parameters) {
 		String params = "";
 		for (String parameter : parameters) {
 			params += "param double "+parameter+";\n";
@@ -3,39 +3,75 @@
  */
 package paramwrapper;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import fdtmc.CompactFDTMC;
 import fdtmc.FDTMC;
 
 /**
  * Façade to a PARAM executable.
  *
+ * Wrappers must be closed once they are no longer needed, so that their
+ * work directory is deleted. The process scheduler is not closed along,
+ * since it may be shared.
+ *
  * @author Thiago
  *
  */
-public class ParamWrapper implements ParametricModelChecker {
+public class ParamWrapper implements ParametricModelChecker, AutoCloseable {
     private static final Logger LOGGER = Logger.getLogger(ParamWrapper.class.getName());
 
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
 	private String paramPath;
 	private IModelCollector modelCollector;
+	private ProcessScheduler processScheduler;
+	private ModelCheckerWorkspace workspace;
 	private boolean usePrism = false;
 
     public ParamWrapper(String paramPath) {
         this(paramPath, new NoopModelCollector());
     }
 
+    /**
+     * Creates a wrapper whose processes are run by the shared
+     * {@link ProcessScheduler#getDefault() default scheduler}.
+     */
     public ParamWrapper(String paramPath, IModelCollector modelCollector) {
+        this(paramPath, modelCollector, ProcessScheduler.getDefault());
+    }
+
+    public ParamWrapper(String paramPath, IModelCollector modelCollector, ProcessScheduler processScheduler) {
+        this(paramPath, modelCollector, processScheduler, ModelCheckerIO.FILES);
+    }
+
+    public ParamWrapper(String paramPath,
+                        IModelCollector modelCollector,
+                        ProcessScheduler processScheduler,
+                        ModelCheckerIO ioMode) {
         this.paramPath = paramPath;
         this.usePrism = paramPath.contains("prism");
         this.modelCollector = modelCollector;
+        this.processScheduler = processScheduler;
+        try {
+            this.workspace = new ModelCheckerWorkspace(ioMode);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create a work directory for the model checker", e);
+        }
+    }
+
+    /**
+     * Deletes the work directory of this wrapper.
+     */
+    @Override
+    public void close() {
+        workspace.close();
     }
 
 	public String fdtmcToParam(FDTMC fdtmc) {
@@ -46,7 +82,15 @@ public class ParamWrapper implements ParametricModelChecker {
 
 	@Override
 	public String getReliability(FDTMC fdtmc) {
-	    ParamModel model = new ParamModel(fdtmc);
+	    return getReliability(new ParamModel(fdtmc));
+	}
+
+	@Override
+	public String getReliability(CompactFDTMC fdtmc) {
+	    return getReliability(new ParamModel(fdtmc));
+	}
+
+	private String getReliability(ParamModel model) {
         modelCollector.collectModel(model.getParametersNumber(), model.getStatesNumber());
 		String modelString = model.toString();
 
@@ -59,37 +103,32 @@ public class ParamWrapper implements ParametricModelChecker {
 	}
 
 	private String evaluate(String modelString, String property, ParamModel model) {
-		try {
+		try (ModelCheckerWorkspace.Slot slot = workspace.newSlot()) {
 		    LOGGER.finer(modelString);
-			File modelFile = File.createTempFile("model", "param");
-			FileWriter modelWriter = new FileWriter(modelFile);
-			modelWriter.write(modelString);
-			modelWriter.flush();
-			modelWriter.close();
-
-			File propertyFile = File.createTempFile("property", "prop");
-			FileWriter propertyWriter = new FileWriter(propertyFile);
-			propertyWriter.write(property);
-			propertyWriter.flush();
-			propertyWriter.close();
-
-			File resultsFile = File.createTempFile("result", null);
+			slot.writeModel(modelString);
+			String modelPath = slot.getModelFile().toString();
+			String propertyPath = workspace.getPropertyFile(property).toString();
+			String resultsPath = slot.getResultFile().toString();
+			Path outputFile = slot.getOutputFile();
 
 			String formula;
 			long startTime = System.nanoTime();
 			if (usePrism && !modelString.contains("const")) {
-			    formula = invokeModelChecker(modelFile.getAbsolutePath(),
-			                                 propertyFile.getAbsolutePath(),
-			                                 resultsFile.getAbsolutePath());
+			    formula = invokeModelChecker(modelPath,
+			                                 propertyPath,
+			                                 resultsPath,
+			                                 outputFile);
 			} else if(usePrism) {
 			    formula = invokeParametricPRISM(model,
-			                                    modelFile.getAbsolutePath(),
-                                                propertyFile.getAbsolutePath(),
-                                                resultsFile.getAbsolutePath());
+			                                    modelPath,
+                                                propertyPath,
+                                                resultsPath,
+                                                outputFile);
 			} else {
-			    formula = invokeParametricModelChecker(modelFile.getAbsolutePath(),
-			                                           propertyFile.getAbsolutePath(),
-			                                           resultsFile.getAbsolutePath());
+			    formula = invokeParametricModelChecker(modelPath,
+			                                           propertyPath,
+			                                           resultsPath,
+			                                           outputFile);
 			}
 			long elapsedTime = System.nanoTime() - startTime;
             modelCollector.collectModelCheckingTime(elapsedTime);
@@ -102,24 +141,26 @@ public class ParamWrapper implements ParametricModelChecker {
 
 	private String invokeParametricModelChecker(String modelPath,
 												String propertyPath,
-												String resultsPath) throws IOException {
+												String resultsPath,
+												Path outputFile) throws IOException {
 		String commandLine = paramPath+" "
 							 +modelPath+" "
 							 +propertyPath+" "
 							 +"--result-file "+resultsPath;
-		return invokeAndGetResult(commandLine, resultsPath+".out");
+		return invokeAndGetResult(commandLine, resultsPath+".out", outputFile);
 	}
 
     private String invokeParametricPRISM(ParamModel model,
                                          String modelPath,
                                          String propertyPath,
-                                         String resultsPath) throws IOException {
+                                         String resultsPath,
+                                         Path outputFile) throws IOException {
         String commandLine = paramPath+" "
                              +modelPath+" "
                              +propertyPath+" "
                              +"-exportresults "+resultsPath+" "
                              +"-param "+String.join(",", model.getParameters());
-        String rawResult = invokeAndGetResult(commandLine, resultsPath);
+        String rawResult = invokeAndGetResult(commandLine, resultsPath, outputFile);
         int openBracket = rawResult.indexOf("{");
         int closeBracket = rawResult.indexOf("}");
         String expression = rawResult.substring(openBracket+1, closeBracket);
@@ -128,28 +169,43 @@ public class ParamWrapper implements ParametricModelChecker {
 
 	private String invokeModelChecker(String modelPath,
 									  String propertyPath,
-									  String resultsPath) throws IOException {
+									  String resultsPath,
+									  Path outputFile) throws IOException {
 		String commandLine = paramPath+" "
 				 			 +modelPath+" "
 				 			 +propertyPath+" "
 				 			 +"-exportresults "+resultsPath;
-		return invokeAndGetResult(commandLine, resultsPath);
+		return invokeAndGetResult(commandLine, resultsPath, outputFile);
 	}
 
-	private String invokeAndGetResult(String commandLine, String resultsPath) throws IOException {
+	private String invokeAndGetResult(String commandLine, String resultsPath, Path outputFile) throws IOException {
 	    LOGGER.fine(commandLine);
-		Process program = Runtime.getRuntime().exec(commandLine);
 		int exitCode = 0;
 		try {
-			exitCode = program.waitFor();
+			// Console output is never read, so it must not be left in a pipe
+			// which the model checker could fill up and block on.
+			ProcessBuilder processBuilder = new ProcessBuilder(commandLine.split("\\s+"))
+			        .redirectErrorStream(true)
+			        .redirectOutput(outputFile.toFile());
+			ProcessScheduler.Invocation program = processScheduler.submit(processBuilder);
+			exitCode = program.getExitCode().get();
 		} catch (InterruptedException e) {
 			LOGGER.severe("Exit code: " + exitCode);
 			LOGGER.log(Level.SEVERE, e.toString(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Model checker invocation failed", e.getCause());
+		} catch (CancellationException e) {
+			throw new IOException("Model checker invocation cancelled", e);
 		}
-		List<String> lines = Files.readAllLines(Paths.get(resultsPath), Charset.forName("UTF-8"));
-		lines.removeIf(String::isEmpty);
 		// Formula
-		return lines.get(lines.size()-1);
+		String formula = ModelCheckerWorkspace.readLastNonEmptyLine(Paths.get(resultsPath));
+		if (formula == null) {
+			throw new IOException("No formula found in " + resultsPath);
+		}
+		return formula;
 	}
 
 }
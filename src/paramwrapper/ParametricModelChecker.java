@@ -3,6 +3,7 @@
  */
 package paramwrapper;
 
+import fdtmc.CompactFDTMC;
 import fdtmc.FDTMC;
 
 /**
@@ -21,4 +22,16 @@ public interface ParametricModelChecker {
 	 * @return Formula parameterized on the transition probabilities.
 	 */
 	public String getReliability(FDTMC fdtmc);
+
+	/**
+	 * Evaluates the (parametric) reliability of a compact FDTMC.
+	 * Model checkers which can work on the compact representation directly
+	 * should override this method, which converts it back to an FDTMC.
+	 *
+	 * @param fdtmc FDTMC to be evaluated.
+	 * @return Formula parameterized on the transition probabilities.
+	 */
+	public default String getReliability(CompactFDTMC fdtmc) {
+		return getReliability(FDTMC.fromCompact(fdtmc));
+	}
 }
@@ -0,0 +1,392 @@
+package paramwrapper;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multivariate polynomial with integer coefficients.
+ *
+ * Variables are referred to by their indices in a {@link VariablePool},
+ * so that monomials can be represented as plain exponent vectors.
+ * Instances are immutable.
+ */
+class Polynomial {
+
+    static final Polynomial ZERO = new Polynomial(new HashMap<Monomial, BigInteger>());
+    static final Polynomial ONE = constant(BigInteger.ONE);
+
+    private final Map<Monomial, BigInteger> terms;
+
+    private Polynomial(Map<Monomial, BigInteger> terms) {
+        this.terms = terms;
+    }
+
+    static Polynomial constant(BigInteger value) {
+        Map<Monomial, BigInteger> terms = new HashMap<Monomial, BigInteger>();
+        if (value.signum() != 0) {
+            terms.put(Monomial.ONE, value);
+        }
+        return new Polynomial(terms);
+    }
+
+    static Polynomial variable(int variableIndex) {
+        Map<Monomial, BigInteger> terms = new HashMap<Monomial, BigInteger>();
+        terms.put(Monomial.ONE.timesVariable(variableIndex), BigInteger.ONE);
+        return new Polynomial(terms);
+    }
+
+    boolean isZero() {
+        return terms.isEmpty();
+    }
+
+    boolean isOne() {
+        return terms.size() == 1 && BigInteger.ONE.equals(terms.get(Monomial.ONE));
+    }
+
+    boolean isConstant() {
+        return isZero() || (terms.size() == 1 && terms.containsKey(Monomial.ONE));
+    }
+
+    BigInteger getConstantValue() {
+        BigInteger value = terms.get(Monomial.ONE);
+        return (value != null) ? value : BigInteger.ZERO;
+    }
+
+    int getNumberOfTerms() {
+        return terms.size();
+    }
+
+    Polynomial plus(Polynomial other) {
+        if (this.isZero()) {
+            return other;
+        } else if (other.isZero()) {
+            return this;
+        }
+        Map<Monomial, BigInteger> sum = new HashMap<Monomial, BigInteger>(terms);
+        for (Map.Entry<Monomial, BigInteger> term: other.terms.entrySet()) {
+            addTerm(sum, term.getKey(), term.getValue());
+        }
+        return new Polynomial(sum);
+    }
+
+    Polynomial minus(Polynomial other) {
+        return plus(other.negate());
+    }
+
+    Polynomial negate() {
+        Map<Monomial, BigInteger> negated = new HashMap<Monomial, BigInteger>();
+        for (Map.Entry<Monomial, BigInteger> term: terms.entrySet()) {
+            negated.put(term.getKey(), term.getValue().negate());
+        }
+        return new Polynomial(negated);
+    }
+
+    Polynomial times(Polynomial other) {
+        if (this.isZero() || other.isZero()) {
+            return ZERO;
+        } else if (this.isOne()) {
+            return other;
+        } else if (other.isOne()) {
+            return this;
+        }
+        Map<Monomial, BigInteger> product = new HashMap<Monomial, BigInteger>();
+        for (Map.Entry<Monomial, BigInteger> term1: terms.entrySet()) {
+            for (Map.Entry<Monomial, BigInteger> term2: other.terms.entrySet()) {
+                addTerm(product,
+                        term1.getKey().times(term2.getKey()),
+                        term1.getValue().multiply(term2.getValue()));
+            }
+        }
+        return new Polynomial(product);
+    }
+
+    Polynomial pow(int exponent) {
+        Polynomial result = ONE;
+        for (int i = 0; i < exponent; i++) {
+            result = result.times(this);
+        }
+        return result;
+    }
+
+    /**
+     * Greatest common divisor of all coefficients (always non-negative).
+     */
+    BigInteger content() {
+        BigInteger gcd = BigInteger.ZERO;
+        for (BigInteger coefficient: terms.values()) {
+            gcd = gcd.gcd(coefficient);
+            if (gcd.equals(BigInteger.ONE)) {
+                break;
+            }
+        }
+        return gcd;
+    }
+
+    /**
+     * Greatest monomial which divides every term of this polynomial.
+     */
+    Monomial monomialContent() {
+        Monomial gcd = null;
+        for (Monomial monomial: terms.keySet()) {
+            gcd = (gcd == null) ? monomial : gcd.gcd(monomial);
+        }
+        return (gcd == null) ? Monomial.ONE : gcd;
+    }
+
+    Polynomial divideBy(BigInteger divisor, Monomial monomialDivisor) {
+        Map<Monomial, BigInteger> quotient = new HashMap<Monomial, BigInteger>();
+        for (Map.Entry<Monomial, BigInteger> term: terms.entrySet()) {
+            quotient.put(term.getKey().dividedBy(monomialDivisor),
+                         term.getValue().divide(divisor));
+        }
+        return new Polynomial(quotient);
+    }
+
+    /**
+     * Sign of the lowest-order coefficient (i.e., the last one printed),
+     * which usually is the constant term.
+     */
+    int signum() {
+        List<Monomial> ordered = getOrderedMonomials();
+        return ordered.isEmpty() ? 0 : terms.get(ordered.get(ordered.size()-1)).signum();
+    }
+
+    /**
+     * Exact multivariate division (lexicographic order).
+     *
+     * @return the quotient, or {@code null} if {@code divisor} does not
+     *      divide this polynomial.
+     */
+    Polynomial divideExactly(Polynomial divisor) {
+        if (divisor.isZero()) {
+            return null;
+        }
+        Monomial divisorLeading = divisor.lexLeadingMonomial();
+        BigInteger divisorCoefficient = divisor.terms.get(divisorLeading);
+
+        Map<Monomial, BigInteger> remainder = new HashMap<Monomial, BigInteger>(terms);
+        Map<Monomial, BigInteger> quotient = new HashMap<Monomial, BigInteger>();
+        while (!remainder.isEmpty()) {
+            Monomial leading = lexLeadingMonomial(remainder);
+            BigInteger coefficient = remainder.get(leading);
+            if (!leading.isDivisibleBy(divisorLeading)) {
+                return null;
+            }
+            BigInteger[] division = coefficient.divideAndRemainder(divisorCoefficient);
+            if (division[1].signum() != 0) {
+                return null;
+            }
+            Monomial factor = leading.dividedBy(divisorLeading);
+            addTerm(quotient, factor, division[0]);
+            for (Map.Entry<Monomial, BigInteger> term: divisor.terms.entrySet()) {
+                addTerm(remainder,
+                        term.getKey().times(factor),
+                        term.getValue().multiply(division[0]).negate());
+            }
+        }
+        return new Polynomial(quotient);
+    }
+
+    /**
+     * Evaluates this polynomial for the given values of the variables.
+     */
+    double evaluate(double[] values) {
+        double result = 0;
+        for (Map.Entry<Monomial, BigInteger> term: terms.entrySet()) {
+            result += term.getValue().doubleValue() * term.getKey().evaluate(values);
+        }
+        return result;
+    }
+
+    /**
+     * Formats this polynomial the way PARAM does, e.g., {@code -1*r0*rFail+1*r0}.
+     */
+    String toString(VariablePool variables) {
+        if (isZero()) {
+            return "0";
+        }
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        for (Monomial monomial: getOrderedMonomials()) {
+            BigInteger coefficient = terms.get(monomial);
+            if (!first && coefficient.signum() > 0) {
+                builder.append('+');
+            }
+            first = false;
+            builder.append(coefficient);
+            monomial.appendTo(builder, variables);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj != null && obj instanceof Polynomial) {
+            return terms.equals(((Polynomial) obj).terms);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    private Monomial lexLeadingMonomial() {
+        return lexLeadingMonomial(terms);
+    }
+
+    private static Monomial lexLeadingMonomial(Map<Monomial, BigInteger> terms) {
+        Monomial leading = null;
+        for (Monomial monomial: terms.keySet()) {
+            if (leading == null || monomial.compareLex(leading) > 0) {
+                leading = monomial;
+            }
+        }
+        return leading;
+    }
+
+    /**
+     * Monomials in decreasing degree, ties broken lexicographically.
+     */
+    private List<Monomial> getOrderedMonomials() {
+        List<Monomial> ordered = new ArrayList<Monomial>(terms.keySet());
+        Collections.sort(ordered, (m1, m2) -> {
+            int byDegree = Integer.compare(m2.getDegree(), m1.getDegree());
+            return (byDegree != 0) ? byDegree : m2.compareLex(m1);
+        });
+        return ordered;
+    }
+
+    private static void addTerm(Map<Monomial, BigInteger> terms, Monomial monomial, BigInteger coefficient) {
+        BigInteger sum = terms.containsKey(monomial) ? terms.get(monomial).add(coefficient) : coefficient;
+        if (sum.signum() == 0) {
+            terms.remove(monomial);
+        } else {
+            terms.put(monomial, sum);
+        }
+    }
+
+    /**
+     * Power product of variables, represented as an exponent vector.
+     * Trailing zeros are trimmed, so that equal monomials always have
+     * equal representations regardless of the number of known variables.
+     */
+    static class Monomial {
+        static final Monomial ONE = new Monomial(new int[0]);
+
+        private final int[] exponents;
+        private final int hash;
+
+        private Monomial(int[] exponents) {
+            int length = exponents.length;
+            while (length > 0 && exponents[length-1] == 0) {
+                length--;
+            }
+            this.exponents = (length == exponents.length) ? exponents : Arrays.copyOf(exponents, length);
+            this.hash = Arrays.hashCode(this.exponents);
+        }
+
+        int getDegree() {
+            int degree = 0;
+            for (int exponent: exponents) {
+                degree += exponent;
+            }
+            return degree;
+        }
+
+        Monomial timesVariable(int variableIndex) {
+            int[] result = Arrays.copyOf(exponents, Math.max(exponents.length, variableIndex+1));
+            result[variableIndex]++;
+            return new Monomial(result);
+        }
+
+        Monomial times(Monomial other) {
+            int[] result = Arrays.copyOf(exponents, Math.max(exponents.length, other.exponents.length));
+            for (int i = 0; i < other.exponents.length; i++) {
+                result[i] += other.exponents[i];
+            }
+            return new Monomial(result);
+        }
+
+        Monomial dividedBy(Monomial other) {
+            int[] result = Arrays.copyOf(exponents, exponents.length);
+            for (int i = 0; i < other.exponents.length; i++) {
+                result[i] -= other.exponents[i];
+            }
+            return new Monomial(result);
+        }
+
+        boolean isDivisibleBy(Monomial other) {
+            if (other.exponents.length > exponents.length) {
+                return false;
+            }
+            for (int i = 0; i < other.exponents.length; i++) {
+                if (exponents[i] < other.exponents[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Monomial gcd(Monomial other) {
+            int[] result = new int[Math.min(exponents.length, other.exponents.length)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Math.min(exponents[i], other.exponents[i]);
+            }
+            return new Monomial(result);
+        }
+
+        int compareLex(Monomial other) {
+            int length = Math.max(exponents.length, other.exponents.length);
+            for (int i = 0; i < length; i++) {
+                int mine = (i < exponents.length) ? exponents[i] : 0;
+                int theirs = (i < other.exponents.length) ? other.exponents[i] : 0;
+                if (mine != theirs) {
+                    return Integer.compare(mine, theirs);
+                }
+            }
+            return 0;
+        }
+
+        double evaluate(double[] values) {
+            double result = 1;
+            for (int i = 0; i < exponents.length; i++) {
+                if (exponents[i] != 0) {
+                    result *= Math.pow(values[i], exponents[i]);
+                }
+            }
+            return result;
+        }
+
+        void appendTo(StringBuilder builder, VariablePool variables) {
+            for (int i = 0; i < exponents.length; i++) {
+                if (exponents[i] > 0) {
+                    builder.append('*').append(variables.getName(i));
+                    if (exponents[i] > 1) {
+                        builder.append('^').append(exponents[i]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj != null && obj instanceof Monomial) {
+                return Arrays.equals(exponents, ((Monomial) obj).exponents);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package paramwrapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive-descent parser for the arithmetic expressions used as transition
+ * probabilities in FDTMCs (e.g., {@code 0.999}, {@code 1 - n3}, {@code 1.0E-4}).
+ *
+ * Grammar:
+ * <pre>
+ *   expr    := term (('+' | '-') term)*
+ *   term    := unary (('*' | '/') unary)*
+ *   unary   := '-' unary | power
+ *   power   := primary ('^' integer)?
+ *   primary := number | identifier | '(' expr ')'
+ * </pre>
+ *
+ * Numbers are converted to exact rationals, so no precision is lost.
+ */
+class ProbabilityExpressionParser {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern NUMBER = Pattern.compile("(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final VariablePool variables;
+    private String expression;
+    private int position;
+
+    public ProbabilityExpressionParser(VariablePool variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Collects the names of all variables (parameters) in an expression.
+     */
+    public static Set<String> getVariables(String expression) {
+        Set<String> names = new TreeSet<String>();
+        renameVariables(expression, name -> {
+            names.add(name);
+            return name;
+        });
+        return names;
+    }
+
+    /**
+     * Replaces every occurrence of a variable in an expression by the name
+     * given by {@code renaming}. Variables are visited from left to right.
+     */
+    public static String renameVariables(String expression, Function<String, String> renaming) {
+        StringBuilder renamed = new StringBuilder();
+        Matcher matcher = IDENTIFIER.matcher(expression);
+        int last = 0;
+        while (matcher.find()) {
+            // Skip exponent markers of numbers in scientific notation (e.g., 1.0E-4).
+            int start = matcher.start();
+            if (start > 0 && (Character.isDigit(expression.charAt(start-1)) || expression.charAt(start-1) == '.')) {
+                continue;
+            }
+            renamed.append(expression, last, start).append(renaming.apply(matcher.group()));
+            last = matcher.end();
+        }
+        return renamed.append(expression, last, expression.length()).toString();
+    }
+
+    public RationalFunction parse(String expression) {
+        this.expression = expression;
+        this.position = 0;
+        RationalFunction result = parseExpression();
+        skipWhitespace();
+        if (position != expression.length()) {
+            throw error("Unexpected character");
+        }
+        return result;
+    }
+
+    private RationalFunction parseExpression() {
+        RationalFunction result = parseTerm();
+        while (true) {
+            char next = peek();
+            if (next == '+') {
+                position++;
+                result = result.plus(parseTerm());
+            } else if (next == '-') {
+                position++;
+                result = result.minus(parseTerm());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private RationalFunction parseTerm() {
+        RationalFunction result = parseUnary();
+        while (true) {
+            char next = peek();
+            if (next == '*') {
+                position++;
+                result = result.times(parseUnary());
+            } else if (next == '/') {
+                position++;
+                result = result.dividedBy(parseUnary());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private RationalFunction parseUnary() {
+        if (peek() == '-') {
+            position++;
+            return parseUnary().negate();
+        } else if (peek() == '+') {
+            position++;
+            return parseUnary();
+        }
+        return parsePower();
+    }
+
+    private RationalFunction parsePower() {
+        RationalFunction base = parsePrimary();
+        if (peek() == '^') {
+            position++;
+            skipWhitespace();
+            Matcher matcher = NUMBER.matcher(expression).region(position, expression.length());
+            if (!matcher.lookingAt()) {
+                throw error("Expected integer exponent");
+            }
+            position = matcher.end();
+            return base.pow(Integer.parseInt(matcher.group()));
+        }
+        return base;
+    }
+
+    private RationalFunction parsePrimary() {
+        char next = peek();
+        if (next == '(') {
+            position++;
+            RationalFunction inner = parseExpression();
+            if (peek() != ')') {
+                throw error("Expected ')'");
+            }
+            position++;
+            return inner;
+        }
+        Matcher number = NUMBER.matcher(expression).region(position, expression.length());
+        if (number.lookingAt()) {
+            position = number.end();
+            return toRational(new BigDecimal(number.group()));
+        }
+        Matcher identifier = IDENTIFIER.matcher(expression).region(position, expression.length());
+        if (identifier.lookingAt()) {
+            position = identifier.end();
+            int index = variables.indexOf(identifier.group());
+            if (index < 0) {
+                throw error("Unknown variable " + identifier.group());
+            }
+            return RationalFunction.of(Polynomial.variable(index));
+        }
+        throw error("Unexpected token");
+    }
+
+    private static RationalFunction toRational(BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        int scale = value.scale();
+        if (scale <= 0) {
+            return RationalFunction.of(Polynomial.constant(unscaled.multiply(BigInteger.TEN.pow(-scale))));
+        }
+        return RationalFunction.of(Polynomial.constant(unscaled),
+                                   Polynomial.constant(BigInteger.TEN.pow(scale)));
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return (position < expression.length()) ? expression.charAt(position) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of <" + expression + ">");
+    }
+
+}
@@ -0,0 +1,195 @@
+package paramwrapper;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Bounded scheduler for external model checker processes.
+ *
+ * At most a given number of processes run at a time. Further invocations
+ * wait in a bounded queue; once it is full, {@link #submit(ProcessBuilder)}
+ * blocks the caller, thus applying back-pressure to whoever is producing
+ * models faster than they can be checked.
+ *
+ * Processes are started by a dedicated launcher thread. Their termination is
+ * handled through {@link Process#onExit()}, which frees their slots without
+ * holding a thread of this scheduler per running process. Since nobody reads
+ * the output of the processes, callers should redirect it (e.g., to a file)
+ * so that it never fills up a pipe.
+ *
+ * Schedulers must be closed once they are no longer needed, so that their
+ * launcher thread is stopped. Short-lived users may share {@link #getDefault()}.
+ */
+public class ProcessScheduler implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ProcessScheduler.class.getName());
+
+    private static ProcessScheduler defaultScheduler;
+
+    private Semaphore slots;
+    private BlockingQueue<Invocation> queue;
+    private Set<Invocation> running = ConcurrentHashMap.newKeySet();
+    private IModelCollector modelCollector;
+    private Thread launcher;
+    private volatile boolean closed = false;
+
+    /**
+     * @param maxProcesses Maximum number of processes running at the same time.
+     * @param queueCapacity Maximum number of invocations waiting for a free slot.
+     */
+    public ProcessScheduler(int maxProcesses, int queueCapacity) {
+        this(maxProcesses, queueCapacity, new NoopModelCollector());
+    }
+
+    public ProcessScheduler(int maxProcesses, int queueCapacity, IModelCollector modelCollector) {
+        this.slots = new Semaphore(maxProcesses);
+        this.queue = new ArrayBlockingQueue<Invocation>(queueCapacity);
+        this.modelCollector = modelCollector;
+
+        this.launcher = new Thread(this::launch, "model-checker-launcher");
+        launcher.setDaemon(true);
+        launcher.start();
+    }
+
+    /**
+     * @return a scheduler shared by all callers which do not provide
+     *      their own, with a slot per available processor. It is never closed.
+     */
+    public static synchronized ProcessScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new ProcessScheduler(Runtime.getRuntime().availableProcessors(),
+                                                    ParamWrapper.DEFAULT_QUEUE_CAPACITY);
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Schedules a process to be started as soon as there is a free slot.
+     * Blocks while the queue is full.
+     *
+     * @return a handle to the eventually started process.
+     * @throws IllegalStateException if this scheduler is closed.
+     */
+    public Invocation submit(ProcessBuilder processBuilder) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Process scheduler is closed");
+        }
+        Invocation invocation = new Invocation(processBuilder);
+        modelCollector.collectProcessQueueDepth(queue.size());
+        queue.put(invocation);
+        return invocation;
+    }
+
+    /**
+     * Stops the launcher thread and destroys running processes. Invocations
+     * which are queued or running fail with an {@link InterruptedException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        launcher.interrupt();
+        Invocation invocation;
+        while ((invocation = queue.poll()) != null) {
+            abort(invocation);
+        }
+        for (Invocation runningInvocation: running) {
+            abort(runningInvocation);
+        }
+    }
+
+    private void launch() {
+        while (!closed) {
+            Invocation invocation;
+            try {
+                invocation = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                abort(invocation);
+                return;
+            }
+            try {
+                invocation.process = invocation.processBuilder.start();
+            } catch (IOException e) {
+                slots.release();
+                invocation.started.completeExceptionally(e);
+                invocation.exitCode.completeExceptionally(e);
+                continue;
+            }
+            invocation.startTime = System.nanoTime();
+            running.add(invocation);
+            invocation.process.onExit().thenAccept(process -> terminated(invocation));
+            invocation.started.complete(invocation.process);
+            if (closed) {
+                // close() may have missed this invocation.
+                abort(invocation);
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a terminated process. This is the only place where
+     * slots of started processes are released.
+     */
+    private void terminated(Invocation invocation) {
+        running.remove(invocation);
+        slots.release();
+        long endTime = System.nanoTime();
+        modelCollector.collectProcessLatency(invocation.startTime - invocation.submitTime,
+                                             endTime - invocation.startTime);
+        invocation.exitCode.complete(invocation.process.exitValue());
+    }
+
+    /**
+     * Fails an invocation because this scheduler is closed, destroying its
+     * process, if any. Its slot is then freed upon termination.
+     */
+    private void abort(Invocation invocation) {
+        InterruptedException closing = new InterruptedException("Process scheduler closed");
+        invocation.started.completeExceptionally(closing);
+        invocation.exitCode.completeExceptionally(closing);
+        if (invocation.process != null) {
+            LOGGER.fine("Process scheduler closed while a model checker process was running");
+            invocation.process.destroy();
+        }
+    }
+
+    /**
+     * Handle to a scheduled process.
+     */
+    public static class Invocation {
+        private ProcessBuilder processBuilder;
+        private Process process;
+        private long submitTime = System.nanoTime();
+        private long startTime;
+        private CompletableFuture<Process> started = new CompletableFuture<Process>();
+        private CompletableFuture<Integer> exitCode = new CompletableFuture<Integer>();
+
+        private Invocation(ProcessBuilder processBuilder) {
+            this.processBuilder = processBuilder;
+        }
+
+        /**
+         * Completes with the process as soon as it is started.
+         */
+        public CompletableFuture<Process> getStarted() {
+            return started;
+        }
+
+        /**
+         * Completes with the exit code of the process as soon as it terminates.
+         */
+        public CompletableFuture<Integer> getExitCode() {
+            return exitCode;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package paramwrapper;
+
+import java.math.BigInteger;
+
+import paramwrapper.Polynomial.Monomial;
+
+/**
+ * Quotient of two integer polynomials, kept in a lightly normalized form:
+ * common integer and monomial factors are cancelled out, and so are
+ * numerators and denominators which divide one another.
+ *
+ * Instances are immutable.
+ */
+class RationalFunction {
+
+    static final RationalFunction ZERO = new RationalFunction(Polynomial.ZERO, Polynomial.ONE);
+    static final RationalFunction ONE = new RationalFunction(Polynomial.ONE, Polynomial.ONE);
+
+    /**
+     * Exact division is only attempted for denominators up to this number of
+     * terms, since multivariate division may otherwise dominate the computation.
+     */
+    private static final int EXACT_DIVISION_THRESHOLD = 32;
+
+    private final Polynomial numerator;
+    private final Polynomial denominator;
+
+    private RationalFunction(Polynomial numerator, Polynomial denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    static RationalFunction of(Polynomial numerator, Polynomial denominator) {
+        if (denominator.isZero()) {
+            throw new ArithmeticException("Division by zero in rational function");
+        }
+        return normalize(numerator, denominator);
+    }
+
+    static RationalFunction of(Polynomial polynomial) {
+        return new RationalFunction(polynomial, Polynomial.ONE);
+    }
+
+    Polynomial getNumerator() {
+        return numerator;
+    }
+
+    Polynomial getDenominator() {
+        return denominator;
+    }
+
+    boolean isZero() {
+        return numerator.isZero();
+    }
+
+    boolean isOne() {
+        return numerator.equals(denominator);
+    }
+
+    boolean isConstant() {
+        return numerator.isConstant() && denominator.isConstant();
+    }
+
+    RationalFunction plus(RationalFunction other) {
+        if (this.isZero()) {
+            return other;
+        } else if (other.isZero()) {
+            return this;
+        } else if (denominator.equals(other.denominator)) {
+            return of(numerator.plus(other.numerator), denominator);
+        }
+        return of(numerator.times(other.denominator).plus(other.numerator.times(denominator)),
+                  denominator.times(other.denominator));
+    }
+
+    RationalFunction minus(RationalFunction other) {
+        return plus(other.negate());
+    }
+
+    RationalFunction negate() {
+        return new RationalFunction(numerator.negate(), denominator);
+    }
+
+    RationalFunction times(RationalFunction other) {
+        if (this.isZero() || other.isZero()) {
+            return ZERO;
+        } else if (this.isOne()) {
+            return other;
+        } else if (other.isOne()) {
+            return this;
+        }
+        return of(numerator.times(other.numerator),
+                  denominator.times(other.denominator));
+    }
+
+    RationalFunction dividedBy(RationalFunction other) {
+        if (other.isOne()) {
+            return this;
+        }
+        return of(numerator.times(other.denominator),
+                  denominator.times(other.numerator));
+    }
+
+    RationalFunction pow(int exponent) {
+        return of(numerator.pow(exponent), denominator.pow(exponent));
+    }
+
+    /**
+     * @return {@code 1 / (1 - this)}, i.e., the geometric series of this function.
+     */
+    RationalFunction geometricSeries() {
+        return of(denominator, denominator.minus(numerator));
+    }
+
+    double evaluate(double[] values) {
+        return numerator.evaluate(values) / denominator.evaluate(values);
+    }
+
+    /**
+     * Formats the function as PARAM would, e.g., {@code (9801)/(10000)}
+     * or just the numerator, if the denominator is 1.
+     */
+    String toString(VariablePool variables) {
+        if (denominator.isOne()) {
+            return numerator.toString(variables);
+        }
+        return "(" + numerator.toString(variables) + ")/(" + denominator.toString(variables) + ")";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj != null && obj instanceof RationalFunction) {
+            RationalFunction other = (RationalFunction) obj;
+            return numerator.equals(other.numerator) && denominator.equals(other.denominator);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return numerator.hashCode() + 31*denominator.hashCode();
+    }
+
+    private static RationalFunction normalize(Polynomial numerator, Polynomial denominator) {
+        if (numerator.isZero()) {
+            return ZERO;
+        }
+        if (numerator.equals(denominator)) {
+            return ONE;
+        }
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.content().gcd(denominator.content());
+        Monomial monomialGcd = numerator.monomialContent().gcd(denominator.monomialContent());
+        if (!gcd.equals(BigInteger.ONE) || !monomialGcd.equals(Monomial.ONE)) {
+            numerator = numerator.divideBy(gcd, monomialGcd);
+            denominator = denominator.divideBy(gcd, monomialGcd);
+        }
+        if (!denominator.isConstant() && denominator.getNumberOfTerms() <= EXACT_DIVISION_THRESHOLD) {
+            Polynomial quotient = numerator.divideExactly(denominator);
+            if (quotient != null) {
+                return new RationalFunction(quotient, Polynomial.ONE);
+            }
+        }
+        return new RationalFunction(numerator, denominator);
+    }
+
+}
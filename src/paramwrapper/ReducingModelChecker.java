@@ -0,0 +1,47 @@
+package paramwrapper;
+
+import java.util.logging.Logger;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+
+/**
+ * Decorator which reduces models (see {@link ModelReduction}) before
+ * handing them over to the actual model checker.
+ *
+ * Derived models are full of single-successor chains (e.g., per-message
+ * states and the glue transitions added by inlining), and model checking
+ * cost grows superlinearly with the number of states.
+ */
+public class ReducingModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(ReducingModelChecker.class.getName());
+
+    private ParametricModelChecker modelChecker;
+    private ModelReduction reduction;
+    private IModelCollector modelCollector;
+
+    public ReducingModelChecker(ParametricModelChecker modelChecker, ModelReduction reduction) {
+        this(modelChecker, reduction, new NoopModelCollector());
+    }
+
+    public ReducingModelChecker(ParametricModelChecker modelChecker, ModelReduction reduction, IModelCollector modelCollector) {
+        this.modelChecker = modelChecker;
+        this.reduction = reduction;
+        this.modelCollector = modelCollector;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        return getReliability(fdtmc.toCompact());
+    }
+
+    @Override
+    public String getReliability(CompactFDTMC fdtmc) {
+        CompactFDTMC reduced = ModelReducer.reduce(fdtmc, reduction);
+        modelCollector.collectModelReduction(fdtmc.getNumberOfStates(), reduced.getNumberOfStates());
+        LOGGER.finer("Reduced " + fdtmc.getVariableName() + " from " + fdtmc.getNumberOfStates()
+                     + " to " + reduced.getNumberOfStates() + " states");
+        return modelChecker.getReliability(reduced);
+    }
+
+}
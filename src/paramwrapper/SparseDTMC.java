@@ -0,0 +1,288 @@
+package paramwrapper;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+import fdtmc.State;
+import fdtmc.Transition;
+
+/**
+ * Numeric DTMC in compressed sparse row (CSR) format, for models without
+ * parameters.
+ *
+ * States are numbered densely from 0, and the transitions leaving state
+ * {@code s} are stored in positions {@code rowPointers[s]} (inclusive) to
+ * {@code rowPointers[s+1]} (exclusive) of {@code columns} and {@code values}.
+ */
+class SparseDTMC {
+
+    private static final double TOLERANCE = 1E-12;
+    private static final int MAX_ITERATIONS = 100000;
+
+    private int initialState;
+    private boolean[] targets;
+    private int[] rowPointers;
+    private int[] columns;
+    private double[] values;
+
+    SparseDTMC(int initialState, boolean[] targets, int[] rowPointers, int[] columns, double[] values) {
+        this.initialState = initialState;
+        this.targets = targets;
+        this.rowPointers = rowPointers;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Builds the numeric DTMC of a parameter-free FDTMC, having its
+     * success states as targets.
+     *
+     * @throws IllegalArgumentException if some transition probability is not numeric.
+     */
+    static SparseDTMC fromFDTMC(FDTMC fdtmc) {
+        Map<State, Integer> denseIndices = new HashMap<State, Integer>();
+        for (State state: fdtmc.getStates()) {
+            denseIndices.put(state, denseIndices.size());
+        }
+        int numberOfStates = denseIndices.size();
+        boolean[] targets = new boolean[numberOfStates];
+        int[] rowPointers = new int[numberOfStates + 1];
+        Map<State, List<Transition>> transitions = fdtmc.getTransitions();
+        for (State state: fdtmc.getStates()) {
+            int index = denseIndices.get(state);
+            targets[index] = FDTMC.SUCCESS_LABEL.equals(state.getLabel());
+            List<Transition> outgoing = transitions.get(state);
+            rowPointers[index + 1] = (outgoing != null) ? outgoing.size() : 0;
+        }
+        for (int i = 0; i < numberOfStates; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+
+        int[] columns = new int[rowPointers[numberOfStates]];
+        double[] values = new double[rowPointers[numberOfStates]];
+        ProbabilityExpressionParser parser = new ProbabilityExpressionParser(new VariablePool(Collections.<String>emptySet()));
+        double[] noValues = new double[0];
+        for (State state: fdtmc.getStates()) {
+            List<Transition> outgoing = transitions.get(state);
+            if (outgoing == null) {
+                continue;
+            }
+            int position = rowPointers[denseIndices.get(state)];
+            for (Transition transition: outgoing) {
+                columns[position] = denseIndices.get(transition.getTarget());
+                values[position] = parseProbability(transition.getProbability(), parser, noValues);
+                position++;
+            }
+        }
+        return new SparseDTMC(denseIndices.get(fdtmc.getInitialState()), targets, rowPointers, columns, values);
+    }
+
+    /**
+     * Builds the numeric DTMC of a parameter-free compact FDTMC, having its
+     * success states as targets. The states keep their indices, and each
+     * distinct probability expression is parsed only once.
+     *
+     * @throws IllegalArgumentException if some transition probability is not numeric.
+     */
+    static SparseDTMC fromCompact(CompactFDTMC fdtmc) {
+        int numberOfStates = fdtmc.getNumberOfStates();
+        boolean[] targets = new boolean[numberOfStates];
+        int[] rowPointers = new int[numberOfStates + 1];
+        for (int state = 0; state < numberOfStates; state++) {
+            targets[state] = FDTMC.SUCCESS_LABEL.equals(fdtmc.getLabel(state));
+            rowPointers[state + 1] = fdtmc.getFirstTransition(state + 1);
+        }
+
+        int[] columns = new int[rowPointers[numberOfStates]];
+        double[] values = new double[rowPointers[numberOfStates]];
+        ProbabilityExpressionParser parser = new ProbabilityExpressionParser(new VariablePool(Collections.<String>emptySet()));
+        double[] noValues = new double[0];
+        Map<Integer, Double> parsedProbabilities = new HashMap<Integer, Double>();
+        for (int t = 0; t < columns.length; t++) {
+            columns[t] = fdtmc.getTarget(t);
+            int probabilityId = fdtmc.getProbabilityId(t);
+            Double value = parsedProbabilities.get(probabilityId);
+            if (value == null) {
+                value = parseProbability(fdtmc.getProbability(t), parser, noValues);
+                parsedProbabilities.put(probabilityId, value);
+            }
+            values[t] = value;
+        }
+        return new SparseDTMC(fdtmc.getInitialState(), targets, rowPointers, columns, values);
+    }
+
+    int getNumberOfStates() {
+        return targets.length;
+    }
+
+    /**
+     * Computes the probability of eventually reaching a target state from
+     * the initial one.
+     *
+     * Acyclic models (self-loops aside) are solved exactly by propagating
+     * probabilities backwards in topological order. Other models are solved
+     * by Gauss-Seidel iteration.
+     */
+    double getReachabilityProbability() {
+        if (targets[initialState]) {
+            return 1;
+        }
+        boolean[] relevant = getStatesReachingTargets();
+        if (!relevant[initialState]) {
+            return 0;
+        }
+        int[] order = getReverseTopologicalOrder(relevant);
+        if (order != null) {
+            return propagate(order);
+        }
+        return gaussSeidel(relevant);
+    }
+
+    private boolean[] getStatesReachingTargets() {
+        int numberOfStates = targets.length;
+        // Transposed adjacency, also in CSR format.
+        int[] predecessorPointers = new int[numberOfStates + 1];
+        for (int column: columns) {
+            predecessorPointers[column + 1]++;
+        }
+        for (int i = 0; i < numberOfStates; i++) {
+            predecessorPointers[i + 1] += predecessorPointers[i];
+        }
+        int[] predecessors = new int[columns.length];
+        int[] fill = Arrays.copyOf(predecessorPointers, numberOfStates);
+        for (int source = 0; source < numberOfStates; source++) {
+            for (int k = rowPointers[source]; k < rowPointers[source + 1]; k++) {
+                if (values[k] != 0) {
+                    predecessors[fill[columns[k]]++] = source;
+                }
+            }
+        }
+
+        boolean[] reaching = new boolean[numberOfStates];
+        int[] pending = new int[numberOfStates];
+        int top = 0;
+        for (int state = 0; state < numberOfStates; state++) {
+            if (targets[state]) {
+                reaching[state] = true;
+                pending[top++] = state;
+            }
+        }
+        while (top > 0) {
+            int state = pending[--top];
+            for (int k = predecessorPointers[state]; k < fill[state]; k++) {
+                int predecessor = predecessors[k];
+                if (!reaching[predecessor]) {
+                    reaching[predecessor] = true;
+                    pending[top++] = predecessor;
+                }
+            }
+        }
+        return reaching;
+    }
+
+    /**
+     * @return the relevant states reachable from the initial one, in reverse
+     *      topological order, or {@code null} if there is a cycle among them.
+     */
+    private int[] getReverseTopologicalOrder(boolean[] relevant) {
+        final byte unvisited = 0, visiting = 1, done = 2;
+        byte[] marks = new byte[targets.length];
+        int[] order = new int[targets.length];
+        int orderSize = 0;
+        // Iterative DFS, since models may be deep enough to overflow the stack.
+        Deque<Integer> stack = new ArrayDeque<Integer>();
+        stack.push(initialState);
+        while (!stack.isEmpty()) {
+            int state = stack.peek();
+            if (marks[state] == unvisited) {
+                marks[state] = visiting;
+                if (targets[state]) {
+                    continue;
+                }
+                for (int k = rowPointers[state]; k < rowPointers[state + 1]; k++) {
+                    int successor = columns[k];
+                    if (successor == state || !relevant[successor] || values[k] == 0) {
+                        continue;
+                    }
+                    if (marks[successor] == unvisited) {
+                        stack.push(successor);
+                    } else if (marks[successor] == visiting) {
+                        return null;
+                    }
+                }
+            } else {
+                stack.pop();
+                if (marks[state] == visiting) {
+                    marks[state] = done;
+                    order[orderSize++] = state;
+                }
+            }
+        }
+        return Arrays.copyOf(order, orderSize);
+    }
+
+    private double propagate(int[] reverseTopologicalOrder) {
+        double[] probabilities = new double[targets.length];
+        for (int state: reverseTopologicalOrder) {
+            probabilities[state] = targets[state] ? 1 : solveRow(state, probabilities);
+        }
+        return probabilities[initialState];
+    }
+
+    private double gaussSeidel(boolean[] relevant) {
+        double[] probabilities = new double[targets.length];
+        for (int state = 0; state < targets.length; state++) {
+            probabilities[state] = targets[state] ? 1 : 0;
+        }
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double maxDifference = 0;
+            for (int state = 0; state < targets.length; state++) {
+                if (targets[state] || !relevant[state]) {
+                    continue;
+                }
+                double updated = solveRow(state, probabilities);
+                maxDifference = Math.max(maxDifference, Math.abs(updated - probabilities[state]));
+                probabilities[state] = updated;
+            }
+            if (maxDifference < TOLERANCE) {
+                break;
+            }
+        }
+        return probabilities[initialState];
+    }
+
+    /**
+     * Probability of reaching a target from {@code state}, given the current
+     * estimates for its successors. Self-loops are accounted for by the
+     * geometric series {@code 1/(1 - p)}.
+     */
+    private double solveRow(int state, double[] probabilities) {
+        double sum = 0;
+        double selfLoop = 0;
+        for (int k = rowPointers[state]; k < rowPointers[state + 1]; k++) {
+            if (columns[k] == state) {
+                selfLoop += values[k];
+            } else {
+                sum += values[k] * probabilities[columns[k]];
+            }
+        }
+        return (selfLoop != 0 && selfLoop < 1) ? sum / (1 - selfLoop) : sum;
+    }
+
+    private static double parseProbability(String probability, ProbabilityExpressionParser parser, double[] noValues) {
+        try {
+            return Double.parseDouble(probability);
+        } catch (NumberFormatException e) {
+            // Not a plain number, but possibly a constant expression such as "1 - 0.999".
+            return parser.parse(probability).evaluate(noValues);
+        }
+    }
+
+}
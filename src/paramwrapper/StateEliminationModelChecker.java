@@ -0,0 +1,334 @@
+package paramwrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+import fdtmc.State;
+import fdtmc.Transition;
+
+/**
+ * In-process parametric model checker.
+ *
+ * Computes the rational function for {@code P=? [ F "success" ]} directly
+ * from the FDTMC's transition system, without spawning an external process.
+ * Acyclic models (self-loops aside) are solved by a path sum in reverse
+ * topological order. Other models are solved by state elimination, as
+ * done by PARAM itself.
+ *
+ * The resulting formula is formatted as PARAM's, so that both can be used
+ * interchangeably.
+ */
+public class StateEliminationModelChecker implements ParametricModelChecker {
+    private static final Logger LOGGER = Logger.getLogger(StateEliminationModelChecker.class.getName());
+
+    private IModelCollector modelCollector;
+
+    public StateEliminationModelChecker() {
+        this(new NoopModelCollector());
+    }
+
+    public StateEliminationModelChecker(IModelCollector modelCollector) {
+        this.modelCollector = modelCollector;
+    }
+
+    @Override
+    public String getReliability(FDTMC fdtmc) {
+        long startTime = System.nanoTime();
+        TransitionSystem system = new TransitionSystem(fdtmc);
+        return solve(system, fdtmc.getStates().size(), startTime);
+    }
+
+    @Override
+    public String getReliability(CompactFDTMC fdtmc) {
+        long startTime = System.nanoTime();
+        TransitionSystem system = new TransitionSystem(fdtmc);
+        return solve(system, fdtmc.getNumberOfStates(), startTime);
+    }
+
+    private String solve(TransitionSystem system, int numberOfStates, long startTime) {
+        modelCollector.collectModel(system.variables.size(), numberOfStates);
+
+        RationalFunction reliability = system.getReliability();
+
+        long elapsedTime = System.nanoTime() - startTime;
+        modelCollector.collectModelCheckingTime(elapsedTime);
+        String formula = reliability.toString(system.variables);
+        LOGGER.finer(formula);
+        return formula;
+    }
+
+    /**
+     * Sparse transition system with rational-function-valued transitions.
+     */
+    private static class TransitionSystem {
+        private VariablePool variables;
+        private int initialState;
+        private Set<Integer> successStates = new HashSet<Integer>();
+        private Map<Integer, Map<Integer, RationalFunction>> outgoing = new LinkedHashMap<Integer, Map<Integer, RationalFunction>>();
+
+        TransitionSystem(FDTMC fdtmc) {
+            Set<String> names = new HashSet<String>();
+            for (List<Transition> transitions: fdtmc.getTransitions().values()) {
+                if (transitions != null) {
+                    for (Transition transition: transitions) {
+                        names.addAll(ProbabilityExpressionParser.getVariables(transition.getProbability()));
+                    }
+                }
+            }
+            variables = new VariablePool(names);
+            ProbabilityExpressionParser parser = new ProbabilityExpressionParser(variables);
+
+            initialState = fdtmc.getInitialState().getIndex();
+            for (State state: fdtmc.getStates()) {
+                if (FDTMC.SUCCESS_LABEL.equals(state.getLabel())) {
+                    successStates.add(state.getIndex());
+                }
+                outgoing.put(state.getIndex(), new LinkedHashMap<Integer, RationalFunction>());
+            }
+            for (Map.Entry<State, List<Transition>> entry: fdtmc.getTransitions().entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                Map<Integer, RationalFunction> successors = outgoing.get(entry.getKey().getIndex());
+                for (Transition transition: entry.getValue()) {
+                    RationalFunction probability = parser.parse(transition.getProbability());
+                    if (!probability.isZero()) {
+                        successors.merge(transition.getTarget().getIndex(), probability, RationalFunction::plus);
+                    }
+                }
+            }
+        }
+
+        TransitionSystem(CompactFDTMC fdtmc) {
+            Set<String> names = new HashSet<String>();
+            Set<Integer> distinctProbabilities = new HashSet<Integer>();
+            for (int t = 0; t < fdtmc.getNumberOfTransitions(); t++) {
+                if (distinctProbabilities.add(fdtmc.getProbabilityId(t))) {
+                    names.addAll(ProbabilityExpressionParser.getVariables(fdtmc.getProbability(t)));
+                }
+            }
+            variables = new VariablePool(names);
+            ProbabilityExpressionParser parser = new ProbabilityExpressionParser(variables);
+            Map<Integer, RationalFunction> parsedProbabilities = new HashMap<Integer, RationalFunction>();
+
+            initialState = fdtmc.getInitialState();
+            for (int state = 0; state < fdtmc.getNumberOfStates(); state++) {
+                if (FDTMC.SUCCESS_LABEL.equals(fdtmc.getLabel(state))) {
+                    successStates.add(state);
+                }
+                Map<Integer, RationalFunction> successors = new LinkedHashMap<Integer, RationalFunction>();
+                outgoing.put(state, successors);
+                for (int t = fdtmc.getFirstTransition(state); t < fdtmc.getFirstTransition(state + 1); t++) {
+                    RationalFunction probability = parsedProbabilities.get(fdtmc.getProbabilityId(t));
+                    if (probability == null) {
+                        probability = parser.parse(fdtmc.getProbability(t));
+                        parsedProbabilities.put(fdtmc.getProbabilityId(t), probability);
+                    }
+                    if (!probability.isZero()) {
+                        successors.merge(fdtmc.getTarget(t), probability, RationalFunction::plus);
+                    }
+                }
+            }
+        }
+
+        RationalFunction getReliability() {
+            if (successStates.contains(initialState)) {
+                return RationalFunction.ONE;
+            }
+            Set<Integer> relevant = getStatesReachingSuccess();
+            if (!relevant.contains(initialState)) {
+                return RationalFunction.ZERO;
+            }
+            restrictTo(relevant);
+
+            List<Integer> topologicalOrder = getReverseTopologicalOrder();
+            if (topologicalOrder != null) {
+                return sumPaths(topologicalOrder);
+            }
+            return eliminateStates();
+        }
+
+        /**
+         * Backward reachability from the success states.
+         */
+        private Set<Integer> getStatesReachingSuccess() {
+            Map<Integer, List<Integer>> predecessors = new HashMap<Integer, List<Integer>>();
+            for (Map.Entry<Integer, Map<Integer, RationalFunction>> entry: outgoing.entrySet()) {
+                for (Integer target: entry.getValue().keySet()) {
+                    predecessors.computeIfAbsent(target, k -> new ArrayList<Integer>()).add(entry.getKey());
+                }
+            }
+            Set<Integer> reaching = new HashSet<Integer>(successStates);
+            Deque<Integer> pending = new ArrayDeque<Integer>(successStates);
+            while (!pending.isEmpty()) {
+                Integer state = pending.pop();
+                for (Integer predecessor: predecessors.getOrDefault(state, new ArrayList<Integer>())) {
+                    if (reaching.add(predecessor)) {
+                        pending.push(predecessor);
+                    }
+                }
+            }
+            return reaching;
+        }
+
+        /**
+         * Drops states which cannot reach success (they contribute with 0)
+         * and makes success states absorbing.
+         */
+        private void restrictTo(Set<Integer> relevant) {
+            outgoing.keySet().retainAll(relevant);
+            for (Map.Entry<Integer, Map<Integer, RationalFunction>> entry: outgoing.entrySet()) {
+                if (successStates.contains(entry.getKey())) {
+                    entry.getValue().clear();
+                } else {
+                    entry.getValue().keySet().retainAll(relevant);
+                }
+            }
+        }
+
+        /**
+         * @return states reachable from the initial one in reverse topological
+         *      order (self-loops disregarded) or {@code null} if there is a cycle.
+         */
+        private List<Integer> getReverseTopologicalOrder() {
+            List<Integer> order = new ArrayList<Integer>();
+            Map<Integer, Boolean> marks = new HashMap<Integer, Boolean>();
+            // Iterative DFS, since models may be deep enough to overflow the stack.
+            Deque<Integer> stack = new ArrayDeque<Integer>();
+            stack.push(initialState);
+            while (!stack.isEmpty()) {
+                Integer state = stack.peek();
+                if (!marks.containsKey(state)) {
+                    marks.put(state, false);
+                    for (Integer successor: outgoing.get(state).keySet()) {
+                        if (successor.equals(state)) {
+                            continue;
+                        }
+                        Boolean mark = marks.get(successor);
+                        if (mark == null) {
+                            stack.push(successor);
+                        } else if (!mark) {
+                            return null;
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    if (!marks.get(state)) {
+                        marks.put(state, true);
+                        order.add(state);
+                    }
+                }
+            }
+            return order;
+        }
+
+        private RationalFunction sumPaths(List<Integer> reverseTopologicalOrder) {
+            Map<Integer, RationalFunction> reliabilities = new HashMap<Integer, RationalFunction>();
+            for (Integer state: reverseTopologicalOrder) {
+                if (successStates.contains(state)) {
+                    reliabilities.put(state, RationalFunction.ONE);
+                    continue;
+                }
+                RationalFunction reliability = RationalFunction.ZERO;
+                RationalFunction selfLoop = RationalFunction.ZERO;
+                for (Map.Entry<Integer, RationalFunction> transition: outgoing.get(state).entrySet()) {
+                    if (transition.getKey().equals(state)) {
+                        selfLoop = transition.getValue();
+                    } else {
+                        reliability = reliability.plus(transition.getValue().times(reliabilities.get(transition.getKey())));
+                    }
+                }
+                if (!selfLoop.isZero()) {
+                    reliability = reliability.times(selfLoop.geometricSeries());
+                }
+                reliabilities.put(state, reliability);
+            }
+            return reliabilities.get(initialState);
+        }
+
+        private RationalFunction eliminateStates() {
+            Map<Integer, Set<Integer>> incoming = new HashMap<Integer, Set<Integer>>();
+            for (Integer state: outgoing.keySet()) {
+                incoming.put(state, new HashSet<Integer>());
+            }
+            for (Map.Entry<Integer, Map<Integer, RationalFunction>> entry: outgoing.entrySet()) {
+                for (Integer target: entry.getValue().keySet()) {
+                    incoming.get(target).add(entry.getKey());
+                }
+            }
+
+            Set<Integer> toEliminate = new HashSet<Integer>(outgoing.keySet());
+            toEliminate.remove(initialState);
+            toEliminate.removeAll(successStates);
+            while (!toEliminate.isEmpty()) {
+                Integer state = pickCheapest(toEliminate, incoming);
+                toEliminate.remove(state);
+                eliminate(state, incoming);
+            }
+
+            RationalFunction reliability = RationalFunction.ZERO;
+            RationalFunction selfLoop = RationalFunction.ZERO;
+            for (Map.Entry<Integer, RationalFunction> transition: outgoing.get(initialState).entrySet()) {
+                if (transition.getKey().equals(initialState)) {
+                    selfLoop = transition.getValue();
+                } else if (successStates.contains(transition.getKey())) {
+                    reliability = reliability.plus(transition.getValue());
+                }
+            }
+            if (!selfLoop.isZero()) {
+                reliability = reliability.times(selfLoop.geometricSeries());
+            }
+            return reliability;
+        }
+
+        /**
+         * Eliminating the state with the fewest predecessor-successor pairs
+         * keeps the number of new transitions (and thus fill-in) low.
+         */
+        private Integer pickCheapest(Collection<Integer> candidates, Map<Integer, Set<Integer>> incoming) {
+            Integer cheapest = null;
+            long minimumCost = Long.MAX_VALUE;
+            for (Integer candidate: candidates) {
+                long cost = (long) incoming.get(candidate).size() * outgoing.get(candidate).size();
+                if (cost < minimumCost) {
+                    minimumCost = cost;
+                    cheapest = candidate;
+                }
+            }
+            return cheapest;
+        }
+
+        private void eliminate(Integer state, Map<Integer, Set<Integer>> incoming) {
+            Map<Integer, RationalFunction> successors = outgoing.remove(state);
+            RationalFunction selfLoop = successors.remove(state);
+            RationalFunction loopFactor = (selfLoop != null) ? selfLoop.geometricSeries() : RationalFunction.ONE;
+
+            Set<Integer> predecessors = incoming.remove(state);
+            predecessors.remove(state);
+            for (Integer successor: successors.keySet()) {
+                incoming.get(successor).remove(state);
+            }
+            for (Integer predecessor: predecessors) {
+                Map<Integer, RationalFunction> predecessorTransitions = outgoing.get(predecessor);
+                RationalFunction toState = predecessorTransitions.remove(state).times(loopFactor);
+                for (Map.Entry<Integer, RationalFunction> successor: successors.entrySet()) {
+                    RationalFunction bypass = toState.times(successor.getValue());
+                    predecessorTransitions.merge(successor.getKey(), bypass, RationalFunction::plus);
+                    incoming.get(successor.getKey()).add(predecessor);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package paramwrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Indexes the parameters of a model so that polynomials can refer to
+ * variables by position.
+ *
+ * Variables are indexed in lexicographic order of their names, which
+ * makes the printed formulae independent of the order in which the
+ * parameters appear in the model.
+ */
+class VariablePool {
+
+    private List<String> names;
+    private Map<String, Integer> indices;
+
+    public VariablePool(Collection<String> variableNames) {
+        this.names = new ArrayList<String>(new TreeSet<String>(variableNames));
+        this.indices = new HashMap<String, Integer>();
+        for (int i = 0; i < names.size(); i++) {
+            indices.put(names.get(i), i);
+        }
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the index of the variable or -1 if it is unknown.
+     */
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+        return (index != null) ? index : -1;
+    }
+
+}
@@ -5,22 +5,34 @@ package tool;
 
 import jadd.ADD;
 import jadd.JADD;
+import jadd.ReorderingListener;
+import jadd.ReorderingMethod;
+import jadd.ReorderingPolicy;
+import jadd.UnrecognizedVariableException;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import paramwrapper.IModelCollector;
 import paramwrapper.ParamWrapper;
 import paramwrapper.ParametricModelChecker;
+import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IPruningStrategy;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
 import tool.analyzers.strategies.FamilyBasedAnalyzer;
 import tool.analyzers.strategies.FamilyProductBasedAnalyzer;
 import tool.analyzers.strategies.FeatureFamilyBasedAnalyzer;
 import tool.analyzers.strategies.FeatureProductBasedAnalyzer;
 import tool.analyzers.strategies.ProductBasedAnalyzer;
+import tool.ordering.IVariableOrderingHeuristic;
+import tool.ordering.VariableInteractions;
+import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import tool.stats.NoopFormulaCollector;
@@ -36,11 +48,14 @@ import expressionsolver.ExpressionSolver;
  * @author thiago
  */
 public class Analyzer {
+    private static final Logger LOGGER = Logger.getLogger(Analyzer.class.getName());
 
     private ADD featureModel;
+    private FeatureModelReduction featureModelReduction;
     private ParametricModelChecker modelChecker;
     private ExpressionSolver expressionSolver;
     private JADD jadd;
+    private FeatureSymbols featureSymbols;
 
     private ConcurrencyStrategy concurrencyStrategy = ConcurrencyStrategy.PARALLEL;
 
@@ -62,7 +77,53 @@ public class Analyzer {
      * @throws IOException if there is a problem reading the file.
      */
     public Analyzer(String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
-        this(new JADD(), featureModel, paramPath, timeCollector, formulaCollector, modelCollector);
+        this(new JADD(),
+             featureModel,
+             (modelCollector != null) ? new ParamWrapper(paramPath, modelCollector) : new ParamWrapper(paramPath),
+             timeCollector,
+             formulaCollector);
+    }
+
+    /**
+     * Creates an Analyzer which will follow the logical rules
+     * encoded in the provided feature model file and which will resort
+     * to the given parametric model checker.
+     *
+     * @param featureModel String containing a CNF view of the Feature Model
+     *          expressed using Java logical operators.
+     * @param modelChecker Parametric model checker to be used by all strategies.
+     */
+    public Analyzer(String featureModel, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector) {
+        this(new JADD(), featureModel, modelChecker, timeCollector, formulaCollector);
+    }
+
+    /**
+     * Creates an Analyzer which will follow the logical rules
+     * encoded in the provided feature model file, which will resort
+     * to the given parametric model checker and whose ADD variables
+     * are ordered by the given heuristic.
+     *
+     * @param featureModel String containing a CNF view of the Feature Model
+     *          expressed using Java logical operators.
+     * @param modelChecker Parametric model checker to be used by all strategies.
+     * @param variableOrdering Heuristic for ordering the ADD variables.
+     * @param presenceConditions Presence conditions of the RDG nodes to be
+     *          analyzed, which are taken into account by static orderings.
+     */
+    public Analyzer(String featureModel, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector, VariableOrdering variableOrdering, Collection<String> presenceConditions) {
+        this(new JADD(), featureModel, modelChecker, timeCollector, formulaCollector, VariableOrderingFactory.createHeuristic(variableOrdering), presenceConditions);
+    }
+
+    /**
+     * Creates an Analyzer whose ADD variables are statically ordered by
+     * a custom heuristic (e.g., a {@link tool.ordering.PersistedOrdering}).
+     *
+     * @param orderingHeuristic Heuristic for ordering the ADD variables, or
+     *          {@code null} for sifting them right after encoding the feature model.
+     * @see #Analyzer(String, ParametricModelChecker, ITimeCollector, IFormulaCollector, VariableOrdering, Collection)
+     */
+    public Analyzer(String featureModel, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IVariableOrderingHeuristic orderingHeuristic, Collection<String> presenceConditions) {
+        this(new JADD(), featureModel, modelChecker, timeCollector, formulaCollector, orderingHeuristic, presenceConditions);
     }
 
     /**
@@ -72,51 +133,124 @@ public class Analyzer {
      * @param featureModel
      */
     Analyzer(JADD jadd, String featureModel, String paramPath) {
-        this(jadd, featureModel, paramPath, null, null, null);
+        this(jadd, featureModel, new ParamWrapper(paramPath), null, null);
     }
 
 
+    private Analyzer(JADD jadd, String featureModel, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector) {
+        this(jadd, featureModel, modelChecker, timeCollector, formulaCollector, (IVariableOrderingHeuristic) null, Collections.<String>emptyList());
+    }
+
     /**
      * This is where true initialization happens.
      * @param jadd
      * @param featureModel
      */
-    private Analyzer(JADD jadd, String featureModel, String paramPath, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IModelCollector modelCollector) {
+    private Analyzer(JADD jadd, String featureModel, ParametricModelChecker modelChecker, ITimeCollector timeCollector, IFormulaCollector formulaCollector, IVariableOrderingHeuristic orderingHeuristic, Collection<String> presenceConditions) {
         this.jadd = jadd;
         this.expressionSolver = new ExpressionSolver(jadd);
-        this.featureModel = expressionSolver.encodeFormula(featureModel);
-        // The feature model contains all used variables, so we expect to
-        // be able to generate an optimal ordering right after parsing it.
-        jadd.reorderVariables();
-
         this.timeCollector = (timeCollector != null) ? timeCollector : new NoopTimeCollector();
         this.formulaCollector = (formulaCollector != null) ? formulaCollector : new NoopFormulaCollector();
-        this.modelChecker = (modelCollector != null) ? new ParamWrapper(paramPath, modelCollector) : new ParamWrapper(paramPath);
+        this.modelChecker = modelChecker;
+        jadd.setReorderingListener(new ReorderingListener() {
+            @Override
+            public void reorderingStarted(ReorderingMethod method) {
+                Analyzer.this.timeCollector.startTimer(CollectibleTimers.VARIABLE_REORDERING_TIME);
+            }
+
+            @Override
+            public void reorderingFinished(ReorderingMethod method) {
+                Analyzer.this.timeCollector.stopTimer(CollectibleTimers.VARIABLE_REORDERING_TIME);
+            }
+        });
+
+        if (orderingHeuristic != null) {
+            // Static orders are set before any ADD is built.
+            List<String> order = orderingHeuristic.order(VariableInteractions.fromFormulas(featureModel, presenceConditions));
+            applyVariableOrder(order);
+        }
+        this.featureModel = expressionSolver.encodeFormula(featureModel);
+        if (orderingHeuristic == null) {
+            // The feature model contains all used variables, so we expect to
+            // be able to generate an optimal ordering right after parsing it.
+            jadd.reorderVariables();
+        }
+        this.featureSymbols = new FeatureSymbols(this.featureModel.getVariableOrder());
+        // Family-wide functions are computed over the features which are not
+        // determined by the feature model, and expanded back in the end.
+        this.featureModelReduction = FeatureModelReduction.of(this.jadd, this.featureModel);
+        LOGGER.info("Feature model reduction: " + featureModelReduction);
+        ADD reducedFeatureModel = featureModelReduction.getReducedFeatureModel();
+        PresenceConditionCache presenceConditionCache = new PresenceConditionCache(this.jadd,
+                                                                                   this.featureSymbols,
+                                                                                   featureModelReduction::reduce);
 
         this.featureFamilyBasedAnalyzerImpl = new FeatureFamilyBasedAnalyzer(this.jadd,
-                                                                             this.featureModel,
+                                                                             presenceConditionCache,
+                                                                             reducedFeatureModel,
                                                                              this.modelChecker,
                                                                              this.timeCollector,
                                                                              this.formulaCollector);
         this.featureProductBasedAnalyzerImpl = new FeatureProductBasedAnalyzer(this.jadd,
+                                                                               presenceConditionCache,
                                                                                this.modelChecker,
                                                                                this.timeCollector,
                                                                                this.formulaCollector);
         this.productBasedAnalyzerImpl = new ProductBasedAnalyzer(this.jadd,
+                                                                 presenceConditionCache,
                                                                  this.modelChecker,
                                                                  this.timeCollector,
                                                                  this.formulaCollector);
         this.familyBasedAnalyzerImpl = new FamilyBasedAnalyzer(this.jadd,
-                                                               this.featureModel,
+                                                               presenceConditionCache,
+                                                               reducedFeatureModel,
                                                                this.modelChecker,
                                                                this.timeCollector,
                                                                this.formulaCollector);
         this.familyProductBasedAnalyzerImpl = new FamilyProductBasedAnalyzer(this.jadd,
+                                                                             presenceConditionCache,
+                                                                             reducedFeatureModel,
                                                                              this.modelChecker,
                                                                              this.timeCollector,
                                                                              this.formulaCollector);
     }
 
+    private void applyVariableOrder(List<String> order) {
+        LOGGER.fine("Variable order: " + order);
+        // No ADD has been built yet, so this costs next to nothing.
+        order.forEach(jadd::getVariable);
+        try {
+            jadd.setVariableOrder(order.toArray(new String[order.size()]));
+        } catch (UnrecognizedVariableException e) {
+            // Cannot happen, since all variables have just been created.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the current order of the ADD variables, from the topmost
+     * to the bottommost one.
+     */
+    public List<String> getVariableOrder() {
+        return featureModel.getVariableOrder();
+    }
+
+    /**
+     * Returns the symbol table shared by the configurations of the
+     * product-oriented analyses.
+     */
+    public FeatureSymbols getFeatureSymbols() {
+        return featureSymbols;
+    }
+
+    /**
+     * Converts a configuration given by feature names into the compact
+     * representation used by the analyses.
+     */
+    public Configuration toConfiguration(Collection<String> configuration) {
+        return featureSymbols.toConfiguration(configuration);
+    }
+
     /**
      * Returns the set of all valid configurations according to the feature model.
      * @return
@@ -153,6 +287,26 @@ public class Analyzer {
         this.concurrencyStrategy = concurrencyStrategy;
     }
 
+    /**
+     * Sets when the ADD variables are to be reordered during the analyses.
+     * Time spent reordering is collected as
+     * {@link CollectibleTimers#VARIABLE_REORDERING_TIME}.
+     */
+    public void setReorderingPolicy(ReorderingPolicy reorderingPolicy) {
+        jadd.setReorderingPolicy(reorderingPolicy);
+    }
+
+    /**
+     * Sets the number of variables to be fixed in order to split the
+     * expression solving phase of parallel feature-family-based analyses
+     * among independent ADD managers.
+     *
+     * @see FeatureFamilyBasedAnalyzer#setCofactorVariables(int)
+     */
+    public void setCofactorVariables(int cofactorVariables) {
+        this.featureFamilyBasedAnalyzerImpl.setCofactorVariables(cofactorVariables);
+    }
+
     /**
      * Evaluates the feature-family-based reliability function of an RDG node, based
      * on the reliabilities of the nodes on which it depends.
@@ -166,7 +320,11 @@ public class Analyzer {
      * @throws CyclicRdgException
      */
     public IReliabilityAnalysisResults evaluateFeatureFamilyBasedReliability(RDGNode node, String dotOutput) throws CyclicRdgException {
-        return featureFamilyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy, dotOutput);
+        IReliabilityAnalysisResults results = expand(featureFamilyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy, null));
+        if (dotOutput != null) {
+            generateDotFile(((ADDReliabilityResults) results).getReliabilityFunction(), dotOutput);
+        }
+        return results;
     }
     /**
      * Evaluates the feature-family-based reliability function of an RDG node, based
@@ -189,7 +347,7 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateFeatureProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return featureProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return featureProductBasedAnalyzerImpl.evaluateReliability(node, configurations.map(this::toConfiguration), this.concurrencyStrategy);
     }
 
     /**
@@ -202,7 +360,7 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return productBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return productBasedAnalyzerImpl.evaluateReliability(node, configurations.map(this::toConfiguration), this.concurrencyStrategy);
     }
 
     /**
@@ -215,7 +373,7 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateFamilyBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return familyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy);
+        return expand(familyBasedAnalyzerImpl.evaluateReliability(node, this.concurrencyStrategy));
     }
 
     /**
@@ -228,7 +386,23 @@ public class Analyzer {
      * @throws UnknownFeatureException
      */
     public IReliabilityAnalysisResults evaluateFamilyProductBasedReliability(RDGNode node, Stream<Collection<String>> configurations) throws CyclicRdgException, UnknownFeatureException {
-        return familyProductBasedAnalyzerImpl.evaluateReliability(node, configurations, this.concurrencyStrategy);
+        return familyProductBasedAnalyzerImpl.evaluateReliability(node, configurations.map(this::toConfiguration), this.concurrencyStrategy);
+    }
+
+    /**
+     * Expands family-wide results computed over the reduced feature model
+     * back to all features.
+     */
+    private IReliabilityAnalysisResults expand(IReliabilityAnalysisResults results) {
+        ADD reliability = ((ADDReliabilityResults) results).getReliabilityFunction();
+        return new ADDReliabilityResults(featureModelReduction.expand(reliability), featureModel);
+    }
+
+    /**
+     * @return the features collapsed by the preprocessing of the feature model.
+     */
+    public FeatureModelReduction getFeatureModelReduction() {
+        return featureModelReduction;
     }
 
     /**
@@ -0,0 +1,102 @@
+package tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable set of features, kept as a bitmask over the symbols of a
+ * {@link FeatureSymbols} table.
+ *
+ * Hashing, equality and presence tests take a few machine words, so this
+ * is meant to be used as a map key throughout the analyses. Feature names
+ * are only needed at the boundaries (e.g., for reporting).
+ */
+public final class Configuration {
+
+    private final FeatureSymbols symbols;
+    private final long[] words;
+    private final int hash;
+
+    public Configuration(FeatureSymbols symbols, BitSet features) {
+        this.symbols = symbols;
+        this.words = features.toLongArray();
+        this.hash = Arrays.hashCode(words);
+    }
+
+    public FeatureSymbols getSymbols() {
+        return symbols;
+    }
+
+    public boolean has(int symbol) {
+        int word = symbol >>> 6;
+        return word < words.length && (words[word] & (1L << symbol)) != 0;
+    }
+
+    public boolean has(String feature) {
+        int symbol = symbols.indexOf(feature);
+        return symbol >= 0 && has(symbol);
+    }
+
+    /**
+     * @return the number of features in this configuration.
+     */
+    public int size() {
+        int size = 0;
+        for (long word: words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return the names of the features in this configuration, by symbol.
+     */
+    public List<String> getFeatures() {
+        List<String> features = new ArrayList<String>(size());
+        BitSet bits = toBitSet();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            features.add(symbols.getName(i));
+        }
+        return features;
+    }
+
+    public String[] toArray() {
+        List<String> features = getFeatures();
+        return features.toArray(new String[features.size()]);
+    }
+
+    /**
+     * Configurations are equal if they have the same features of the same
+     * symbol table.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Configuration)) {
+            return false;
+        }
+        Configuration other = (Configuration) obj;
+        return hash == other.hash
+                && symbols == other.symbols
+                && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return getFeatures().toString();
+    }
+
+}
@@ -0,0 +1,171 @@
+package tool;
+
+import jadd.ADD;
+import jadd.ADDArena;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplification of the functions of an analysis by means of the features
+ * whose values are determined by the feature model:
+ * <ul>
+ *  <li>core features, which are present in every valid configuration;</li>
+ *  <li>dead features, which are present in none;</li>
+ *  <li>atomic sets, i.e., features which are present in exactly the same
+ *      valid configurations. Each set is represented by its topmost feature
+ *      in the variable order.</li>
+ * </ul>
+ *
+ * {@link #reduce(ADD)} fixes core and dead features and replaces the other
+ * members of atomic sets by their representatives, so that reduced functions
+ * only depend on the remaining features. For valid configurations, a reduced
+ * function yields the same values as the original one, and
+ * {@link #expand(ADD)} restores its values (i.e., 0) for invalid ones.
+ */
+public class FeatureModelReduction {
+
+    private List<String> coreFeatures = new ArrayList<String>();
+    private List<String> deadFeatures = new ArrayList<String>();
+    // Representative of each atomic set member which is not itself one.
+    private Map<String, String> representatives = new LinkedHashMap<String, String>();
+    private JADD jadd;
+    // Product of the literals of core and dead features.
+    private ADD fixedFeatures;
+    // Configurations in which collapsed features take their determined values.
+    private ADD consistency;
+    private ADD reducedFeatureModel;
+
+    private FeatureModelReduction(JADD jadd) {
+        this.jadd = jadd;
+    }
+
+    /**
+     * Detects the core and dead features and the atomic sets of a feature
+     * model.
+     *
+     * Two features are present in the same valid configurations if and only
+     * if the restrictions of the feature model to each of them are the same
+     * function. As ADDs are canonical, this takes a single product per
+     * feature. Core and dead features are the ones whose negated and plain
+     * restrictions, respectively, are the constant 0.
+     *
+     * @param featureModel Feature model as a 0,1-ADD of {@code jadd}.
+     */
+    public static FeatureModelReduction of(JADD jadd, ADD featureModel) {
+        FeatureModelReduction reduction = new FeatureModelReduction(jadd);
+        jadd.call(() -> {
+            Set<String> support = featureModel.getVariables();
+            Map<ADD, String> representativesByRestriction = new LinkedHashMap<ADD, String>();
+            try (ADDArena arena = jadd.openArena()) {
+                ADD fixedFeatures = jadd.makeConstant(1);
+                ADD consistency = jadd.makeConstant(1);
+                for (String feature: featureModel.getVariableOrder()) {
+                    if (!support.contains(feature)) {
+                        continue;
+                    }
+                    ADD variable = jadd.getVariable(feature);
+                    ADD restriction = featureModel.times(variable);
+                    if (featureModel.times(variable.complement()).isConstant()) {
+                        reduction.coreFeatures.add(feature);
+                        fixedFeatures = fixedFeatures.times(variable);
+                    } else if (restriction.isConstant()) {
+                        reduction.deadFeatures.add(feature);
+                        fixedFeatures = fixedFeatures.times(variable.complement());
+                    } else if (representativesByRestriction.containsKey(restriction)) {
+                        String representative = representativesByRestriction.get(restriction);
+                        reduction.representatives.put(feature, representative);
+                        ADD representativeVariable = jadd.getVariable(representative);
+                        consistency = consistency.times(variable.ifThenElse(representativeVariable,
+                                                                            representativeVariable.complement()));
+                    } else {
+                        representativesByRestriction.put(restriction, feature);
+                    }
+                }
+                reduction.fixedFeatures = arena.keep(fixedFeatures);
+                reduction.consistency = arena.keep(consistency.times(fixedFeatures));
+                reduction.reducedFeatureModel = arena.keep(reduction.reduce(featureModel));
+            }
+            return null;
+        });
+        return reduction;
+    }
+
+    /**
+     * Fixes the values of core and dead features in a function and replaces
+     * the other members of atomic sets by their representatives.
+     */
+    public ADD reduce(ADD function) {
+        if (!isEffective()) {
+            return function;
+        }
+        return jadd.call(() -> {
+            try (ADDArena arena = jadd.openArena()) {
+                ADD reduced = function.cofactor(fixedFeatures);
+                for (Map.Entry<String, String> member: representatives.entrySet()) {
+                    reduced = reduced.compose(member.getKey(), jadd.getVariable(member.getValue()));
+                }
+                return arena.keep(reduced);
+            } catch (UnrecognizedVariableException e) {
+                // Cannot happen, since members come from the feature model.
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Inverse of {@link #reduce(ADD)} with respect to the feature model:
+     * the result yields the values of the reduced function for valid
+     * configurations, and 0 for the ones in which collapsed features
+     * do not take their determined values.
+     */
+    public ADD expand(ADD reducedFunction) {
+        if (!isEffective()) {
+            return reducedFunction;
+        }
+        return consistency.times(reducedFunction);
+    }
+
+    /**
+     * @return the feature model over the features which are not collapsed.
+     */
+    public ADD getReducedFeatureModel() {
+        return reducedFeatureModel;
+    }
+
+    /**
+     * @return whether any feature is collapsed at all.
+     */
+    public boolean isEffective() {
+        return !coreFeatures.isEmpty() || !deadFeatures.isEmpty() || !representatives.isEmpty();
+    }
+
+    public List<String> getCoreFeatures() {
+        return Collections.unmodifiableList(coreFeatures);
+    }
+
+    public List<String> getDeadFeatures() {
+        return Collections.unmodifiableList(deadFeatures);
+    }
+
+    /**
+     * @return the representative of each collapsed member of an atomic set.
+     */
+    public Map<String, String> getRepresentatives() {
+        return Collections.unmodifiableMap(representatives);
+    }
+
+    @Override
+    public String toString() {
+        return coreFeatures.size() + " core, "
+                + deadFeatures.size() + " dead and "
+                + representatives.size() + " atomic set features collapsed";
+    }
+
+}
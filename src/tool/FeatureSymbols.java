@@ -0,0 +1,79 @@
+package tool;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned feature names. Each feature gets a small integer symbol, which
+ * is its bit in {@link Configuration}s.
+ *
+ * Symbols are never reassigned, and interning is thread-safe, so a single
+ * table can be shared by all configurations of an analysis.
+ */
+public class FeatureSymbols {
+
+    private Map<String, Integer> symbols = new ConcurrentHashMap<String, Integer>();
+    private List<String> names = new ArrayList<String>();
+
+    public FeatureSymbols() {
+        // NO-OP
+    }
+
+    /**
+     * Creates a table in which the given features are interned in order.
+     */
+    public FeatureSymbols(Collection<String> features) {
+        features.forEach(this::intern);
+    }
+
+    /**
+     * @return the symbol of {@code feature}, which is created if needed.
+     */
+    public int intern(String feature) {
+        Integer symbol = symbols.get(feature);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (names) {
+            return symbols.computeIfAbsent(feature, f -> {
+                names.add(f);
+                return names.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @return the symbol of {@code feature}, or -1 if it has never been interned.
+     */
+    public int indexOf(String feature) {
+        Integer symbol = symbols.get(feature);
+        return (symbol != null) ? symbol : -1;
+    }
+
+    public String getName(int symbol) {
+        synchronized (names) {
+            return names.get(symbol);
+        }
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    /**
+     * Converts a configuration given by the names of its features,
+     * interning any new ones.
+     */
+    public Configuration toConfiguration(Collection<String> features) {
+        BitSet bits = new BitSet(size());
+        for (String feature: features) {
+            bits.set(intern(feature));
+        }
+        return new Configuration(this, bits);
+    }
+
+}
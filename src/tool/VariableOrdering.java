@@ -0,0 +1,23 @@
+package tool;
+
+public enum VariableOrdering {
+    /**
+     * Variables are created as the feature model is encoded, and then
+     * reordered by CUDD's symmetric sifting.
+     */
+    SIFTING,
+    /**
+     * Order of first appearance in the feature model.
+     */
+    APPEARANCE,
+    /**
+     * Depth-first traversal of the graph of variables which occur together
+     * in feature model clauses or presence conditions.
+     */
+    DFS,
+    /**
+     * FORCE heuristic: variables are iteratively moved towards the center
+     * of gravity of the clauses and presence conditions in which they occur.
+     */
+    FORCE
+}
@@ -0,0 +1,32 @@
+package tool;
+
+import tool.ordering.AppearanceOrdering;
+import tool.ordering.DepthFirstOrdering;
+import tool.ordering.ForceOrdering;
+import tool.ordering.IVariableOrderingHeuristic;
+
+public class VariableOrderingFactory {
+
+    private VariableOrderingFactory() {
+        // NO-OP
+    }
+
+    /**
+     * @return the heuristic for computing a static variable order, or
+     *      {@code null} if the selected ordering is dynamic (i.e., SIFTING).
+     */
+    public static IVariableOrderingHeuristic createHeuristic(VariableOrdering ordering) {
+        switch (ordering) {
+        case APPEARANCE:
+            return new AppearanceOrdering();
+        case DFS:
+            return new DepthFirstOrdering();
+        case FORCE:
+            return new ForceOrdering();
+        case SIFTING:
+        default:
+            return null;
+        }
+    }
+
+}
@@ -1,28 +1,340 @@
 package tool.analyzers;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.DoublePredicate;
+import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import tool.UnknownFeatureException;
 import jadd.ADD;
+import jadd.CompiledADD;
+import jadd.JADD;
 import jadd.UnrecognizedVariableException;
 
+/**
+ * Results held by a reliability ADD.
+ *
+ * Lookups are not answered by the ADD itself, but by a compiled copy of
+ * it (built on the first lookup), so that they need no native calls and
+ * can be issued concurrently.
+ *
+ * Aggregate queries (extremes, mean, counts and histograms) are answered
+ * symbolically, by counting the valid configurations which lead to each
+ * terminal of the ADD. Thus, they take time proportional to the size of
+ * the ADD, not to the number of configurations. Counts are doubles, just
+ * like CUDD's minterm counts, so they are exact up to 2^53.
+ */
 public class ADDReliabilityResults implements IReliabilityAnalysisResults {
+    // Value of invalid configurations in the restricted ADD.
+    private static final double INVALID = Double.NEGATIVE_INFINITY;
+    private static final String RELIABILITY = "reliability";
+    private static final String FEATURE_MODEL = "feature model";
 
     private ADD results;
+    private ADD featureModel;
+    private volatile CompiledADD compiledResults;
+    private volatile Distribution distribution;
 
+    /**
+     * Creates results for which configurations are deemed valid if, and
+     * only if, their reliability is not zero (e.g., because they have
+     * already been pruned by the feature model).
+     */
     public ADDReliabilityResults(ADD results) {
+        this(results, null);
+    }
+
+    /**
+     * @param featureModel 0,1-ADD of the valid configurations, to which
+     *          aggregate queries are restricted.
+     */
+    public ADDReliabilityResults(ADD results, ADD featureModel) {
         this.results = results;
+        this.featureModel = featureModel;
+    }
+
+    /**
+     * @return the reliability function (an ADD over the features) itself.
+     */
+    public ADD getReliabilityFunction() {
+        return results;
+    }
+
+    /**
+     * Stores these results (and the feature model, if any) in a binary file,
+     * so that they can be loaded later on without re-running the analysis.
+     *
+     * @see JADD#dumpBinary(Map, String)
+     */
+    public void save(String fileName) throws IOException {
+        Map<String, ADD> functions = new LinkedHashMap<String, ADD>();
+        functions.put(RELIABILITY, results);
+        if (featureModel != null) {
+            functions.put(FEATURE_MODEL, featureModel);
+        }
+        JADD.dumpBinary(functions, fileName);
+    }
+
+    /**
+     * Loads results stored by {@link #save(String)} into a new ADD manager.
+     */
+    public static ADDReliabilityResults load(String fileName) throws IOException {
+        Map<String, ADD> functions = new JADD().readBinary(fileName);
+        ADD reliability = functions.get(RELIABILITY);
+        if (reliability == null) {
+            throw new IOException(fileName + " holds no reliability ADD");
+        }
+        return new ADDReliabilityResults(reliability, functions.get(FEATURE_MODEL));
     }
 
     @Override
     public Double getResult(String[] configuration) throws UnknownFeatureException {
         try {
-            return results.eval(configuration);
+            return getCompiledResults().eval(configuration);
         } catch (UnrecognizedVariableException e) {
             throw new UnknownFeatureException(e.getVariableName());
         }
     }
 
+    /**
+     * Gets the result for a configuration given as a bitset.
+     *
+     * @see CompiledADD#toBitSet(String[])
+     */
+    public double getResult(BitSet configuration) {
+        return getCompiledResults().eval(configuration);
+    }
+
+    /**
+     * Gets the results for many configurations at once. They are
+     * evaluated in parallel.
+     *
+     * @return the results, in the same order as the configurations.
+     * @throws UnknownFeatureException in case any configuration relies on
+     *      an unknown feature.
+     */
+    public double[] getResults(List<String[]> configurations) throws UnknownFeatureException {
+        CompiledADD compiled = getCompiledResults();
+        BitSet[] bitSets = new BitSet[configurations.size()];
+        try {
+            for (int i = 0; i < bitSets.length; i++) {
+                bitSets[i] = compiled.toBitSet(configurations.get(i));
+            }
+        } catch (UnrecognizedVariableException e) {
+            throw new UnknownFeatureException(e.getVariableName());
+        }
+        return IntStream.range(0, bitSets.length)
+                .parallel()
+                .mapToDouble(i -> compiled.eval(bitSets[i]))
+                .toArray();
+    }
+
+    /**
+     * @return the compiled copy of the results ADD, which is built if needed.
+     */
+    public CompiledADD getCompiledResults() {
+        CompiledADD compiled = compiledResults;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = compiledResults;
+                if (compiled == null) {
+                    compiled = results.compile();
+                    compiledResults = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the number of valid configurations.
+     */
+    public double countConfigurations() {
+        double count = 0;
+        for (double terminalCount: getDistribution().counts) {
+            count += terminalCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of valid configurations whose reliability is
+     *      strictly lower than {@code threshold}.
+     */
+    public double countBelow(double threshold) {
+        Distribution distribution = getDistribution();
+        double count = 0;
+        for (int i = 0; i < distribution.values.length; i++) {
+            if (distribution.values[i] < threshold) {
+                count += distribution.counts[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean reliability of the valid configurations, each one
+     *      weighting the same, or NaN if there are none.
+     */
+    public double getMean() {
+        Distribution distribution = getDistribution();
+        double sum = 0;
+        double count = 0;
+        for (int i = 0; i < distribution.values.length; i++) {
+            sum += distribution.values[i] * distribution.counts[i];
+            count += distribution.counts[i];
+        }
+        return sum / count;
+    }
+
+    /**
+     * @return a least reliable valid configuration, or {@code null} if
+     *      there are none.
+     */
+    public ConfigurationReliability getMinimum() {
+        return findExtreme(-1);
+    }
+
+    /**
+     * @return a most reliable valid configuration, or {@code null} if
+     *      there are none.
+     */
+    public ConfigurationReliability getMaximum() {
+        return findExtreme(1);
+    }
+
+    /**
+     * Counts the valid configurations whose reliability falls into each of
+     * {@code bins} equal-width intervals between {@code lower} and {@code upper}.
+     * Reliabilities out of these bounds are counted in the first or last bin.
+     */
+    public double[] getHistogram(double lower, double upper, int bins) {
+        if (bins <= 0 || !(upper > lower)) {
+            throw new IllegalArgumentException("Histograms need at least one bin over a non-empty interval");
+        }
+        Distribution distribution = getDistribution();
+        double[] histogram = new double[bins];
+        double width = (upper - lower) / bins;
+        for (int i = 0; i < distribution.values.length; i++) {
+            int bin = (int) Math.floor((distribution.values[i] - lower) / width);
+            histogram[Math.max(0, Math.min(bins - 1, bin))] += distribution.counts[i];
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the {@code k} least reliable valid configurations (or all of
+     *      them, if there are fewer), from the least reliable one up.
+     */
+    public List<ConfigurationReliability> getLeastReliable(int k) {
+        return findTop(k, true);
+    }
+
+    /**
+     * @return the {@code k} most reliable valid configurations (or all of
+     *      them, if there are fewer), from the most reliable one down.
+     */
+    public List<ConfigurationReliability> getMostReliable(int k) {
+        return findTop(k, false);
+    }
+
+    private List<ConfigurationReliability> findTop(int k, boolean ascending) {
+        CompiledADD restricted = getDistribution().restricted;
+        return restricted.findTopConfigurations(k, ascending, this::isValid).stream()
+                .map(configuration -> new ConfigurationReliability(restricted.toNames(configuration),
+                                                                   restricted.eval(configuration)))
+                .collect(Collectors.toList());
+    }
+
+    private boolean isValid(double reliability) {
+        return reliability != INVALID && (featureModel != null || reliability != 0);
+    }
+
+    /**
+     * @param sign 1 for the maximum, -1 for the minimum.
+     */
+    private ConfigurationReliability findExtreme(int sign) {
+        Distribution distribution = getDistribution();
+        int extreme = -1;
+        for (int i = 0; i < distribution.values.length; i++) {
+            if (extreme < 0 || sign * Double.compare(distribution.values[i], distribution.values[extreme]) > 0) {
+                extreme = i;
+            }
+        }
+        if (extreme < 0) {
+            return null;
+        }
+        CompiledADD restricted = distribution.restricted;
+        BitSet configuration = restricted.findConfiguration(distribution.terminals[extreme]);
+        return new ConfigurationReliability(restricted.toNames(configuration),
+                                            distribution.values[extreme]);
+    }
+
+    private Distribution getDistribution() {
+        Distribution current = distribution;
+        if (current == null) {
+            synchronized (this) {
+                current = distribution;
+                if (current == null) {
+                    current = new Distribution(restrictToFeatureModel().compile(), this::isValid);
+                    distribution = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the results ADD, with invalid configurations leading to
+     *      a distinguished terminal.
+     */
+    private ADD restrictToFeatureModel() {
+        if (featureModel == null) {
+            return results;
+        }
+        return featureModel.ifThenElse(results, INVALID);
+    }
+
+    /**
+     * Number of valid configurations for each reliability value.
+     */
+    private static class Distribution {
+        private CompiledADD restricted;
+        private double[] values;
+        private double[] counts;
+        // Position of each value among the terminals of the restricted ADD.
+        private int[] terminals;
+
+        Distribution(CompiledADD restricted, DoublePredicate isValid) {
+            this.restricted = restricted;
+            double[] allValues = restricted.getTerminalValues();
+            double[] allCounts = restricted.countConfigurationsByTerminal();
+            int numValid = 0;
+            for (int i = 0; i < allValues.length; i++) {
+                if (isValid.test(allValues[i]) && allCounts[i] != 0) {
+                    numValid++;
+                }
+            }
+            values = new double[numValid];
+            counts = new double[numValid];
+            terminals = new int[numValid];
+            int next = 0;
+            for (int i = 0; i < allValues.length; i++) {
+                if (isValid.test(allValues[i]) && allCounts[i] != 0) {
+                    values[next] = allValues[i];
+                    counts[next] = allCounts[i];
+                    terminals[next] = i;
+                    next++;
+                }
+            }
+        }
+    }
+
     @Override
     public void printStats(PrintStream output) {
         int numVariables = results.getVariables().size();
@@ -38,6 +350,9 @@ public class ADDReliabilityResults implements IReliabilityAnalysisResults {
         output.println("# variables: " + numVariables);
         output.println("# internal nodes: " + numNodes);
         output.println("# dead nodes: " + numDeadNodes);
+        for (Map.Entry<String, Integer> snapshot: results.getDeadNodesSnapshots().entrySet()) {
+            output.println("# dead nodes " + snapshot.getKey() + ": " + snapshot.getValue());
+        }
         output.println("# terminals different than zero: " + numTerminalsNonZero);
         output.println("# paths to non-zero terminals: " + numPathsToNonZeroTerminals);
         output.println("# paths to zero terminal: " + numPathsToZeroTerminal);
@@ -0,0 +1,35 @@
+package tool.analyzers;
+
+import java.util.List;
+
+/**
+ * Reliability of a single configuration, as answered by queries over
+ * a whole family of products.
+ */
+public class ConfigurationReliability {
+
+    private List<String> configuration;
+    private double reliability;
+
+    public ConfigurationReliability(List<String> configuration, double reliability) {
+        this.configuration = configuration;
+        this.reliability = reliability;
+    }
+
+    /**
+     * @return the features of the configuration.
+     */
+    public List<String> getConfiguration() {
+        return configuration;
+    }
+
+    public double getReliability() {
+        return reliability;
+    }
+
+    @Override
+    public String toString() {
+        return configuration + " --> " + reliability;
+    }
+
+}
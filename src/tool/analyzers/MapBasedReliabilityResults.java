@@ -1,75 +1,72 @@
 package tool.analyzers;
 
 import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
+import tool.Configuration;
+import tool.FeatureSymbols;
 import tool.UnknownFeatureException;
 
 public class MapBasedReliabilityResults implements IReliabilityAnalysisResults {
 
-    private Map<Set<String>, Double> results;
-    private Set<String> features;
+    private Map<Configuration, Double> results;
+    private FeatureSymbols symbols;
 
-    public MapBasedReliabilityResults() {
-        this.results = new HashMap<Set<String>, Double>();
-        this.features = new HashSet<String>();
+    public MapBasedReliabilityResults(FeatureSymbols symbols) {
+        this.results = new HashMap<Configuration, Double>();
+        this.symbols = symbols;
     }
 
-    public MapBasedReliabilityResults(Map<Collection<String>, Double> backup) {
-        this.results = backup.entrySet().stream()
-                .collect(Collectors.toMap(e -> new HashSet<String>(e.getKey()),
-                                          e -> e.getValue()));
-        this.features = backup.keySet().stream()
-                .map(Collection::stream)
-                .flatMap(Function.identity())
-                .collect(Collectors.toSet());
+    /**
+     * @param backup Results of configurations which share the same
+     *      {@link FeatureSymbols}.
+     */
+    public MapBasedReliabilityResults(Map<Configuration, Double> backup) {
+        this.results = new HashMap<Configuration, Double>(backup);
+        this.symbols = backup.keySet().stream()
+                .findAny()
+                .map(Configuration::getSymbols)
+                .orElseGet(FeatureSymbols::new);
     }
 
     @Override
     public Double getResult(String[] configuration) throws UnknownFeatureException {
-        Set<String> configurationAsSet = new HashSet<String>(Arrays.asList(configuration));
-        if (results.containsKey(configurationAsSet)) {
-            return results.get(configurationAsSet);
-        } else if (hasUnknownFeature(configurationAsSet)) {
-            throw new UnknownFeatureException(configuration.toString());
+        BitSet features = new BitSet(symbols.size());
+        for (String feature: configuration) {
+            int symbol = symbols.indexOf(feature);
+            if (symbol < 0) {
+                throw new UnknownFeatureException(feature);
+            }
+            features.set(symbol);
         }
-        return 0.0;
+        return getResult(new Configuration(symbols, features));
     }
 
-    public synchronized void putResult(List<String> configuration, Double value) {
-        Set<String> configurationAsSet = new HashSet<String>(configuration);
-        results.put(configurationAsSet, value);
-        features.addAll(configurationAsSet);
+    /**
+     * Gets the result for the given configuration, or zero if it has none.
+     */
+    public Double getResult(Configuration configuration) {
+        return results.getOrDefault(configuration, 0.0);
+    }
 
+    public synchronized void putResult(Configuration configuration, Double value) {
+        results.put(configuration, value);
     }
 
     /**
      * Prints the size of the reliability mapping, but not taking
-     * into account the inner structures used by java.util.HashMap
-     * and java.util.HashSet.
+     * into account the inner structures used by java.util.HashMap.
      */
     @Override
     public void printStats(PrintStream output) {
         long size = 0;
-        for (Set<String> result: results.keySet()) {
-            for (String feature: result) {
-                size += feature.length();
-            }
+        for (Configuration result: results.keySet()) {
+            size += (result.toBitSet().length() + 63) / 64 * 8;  // bitmask's words
             size += 8;  // reliability's size (double)
         }
         output.println("Result's size in bytes: " + size);
     }
 
-    private boolean hasUnknownFeature(Set<String> configuration) {
-        return features.containsAll(configuration);
-    }
-
 }
@@ -0,0 +1,226 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.CompiledADD;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import tool.Configuration;
+import tool.FeatureSymbols;
+import tool.UnknownFeatureException;
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Memoized presence conditions of an ADD manager, shared by all analysis
+ * strategies.
+ *
+ * Each presence condition is parsed and encoded only once, no matter how
+ * many components or configurations it is checked against. Presence tests
+ * then walk a compiled copy of its ADD, which is thread-safe and does not
+ * involve the manager at all.
+ */
+public class PresenceConditionCache {
+
+    private JADD jadd;
+    private ExpressionSolver expressionSolver;
+    private FeatureSymbols symbols;
+    private UnaryOperator<ADD> reduction;
+    private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    // Symbols which are known to stand for variables of the ADD manager.
+    private volatile BitSet knownSymbols = new BitSet();
+
+    /**
+     * @param symbols Symbol table of the configurations to be tested for
+     *      presence. Configurations over other tables are supported, but
+     *      take a slower path.
+     */
+    public PresenceConditionCache(JADD jadd, FeatureSymbols symbols) {
+        this(jadd, symbols, UnaryOperator.identity());
+    }
+
+    /**
+     * @param reduction Simplification to be applied to the encoded presence
+     *      conditions (e.g., {@link tool.FeatureModelReduction#reduce(ADD)}).
+     *      Presence tests against configurations are not affected by it.
+     */
+    public PresenceConditionCache(JADD jadd, FeatureSymbols symbols, UnaryOperator<ADD> reduction) {
+        this.jadd = jadd;
+        this.expressionSolver = new ExpressionSolver(jadd);
+        this.symbols = symbols;
+        this.reduction = reduction;
+    }
+
+    /**
+     * Encodes a presence condition as a 0,1-ADD, as
+     * {@link ExpressionSolver#encodeFormula(String)} does, and then
+     * simplifies it by the reduction given at construction, if any.
+     *
+     * The returned ADD is shared, so it must not be closed. It belongs to no
+     * {@link jadd.ADDArena}, even if one is open.
+     */
+    public ADD encode(String presenceCondition) {
+        return getEntry(presenceCondition).reduced;
+    }
+
+    /**
+     * Tests whether a presence condition holds for the given configuration.
+     *
+     * @throws UnknownFeatureException if the configuration has a feature
+     *      which is not known to the ADD manager.
+     */
+    public boolean isPresent(String presenceCondition, Configuration configuration) {
+        Entry entry = getEntry(presenceCondition);
+        if (configuration.getSymbols() != symbols) {
+            try {
+                return entry.compiled.eval(configuration.toArray()) == 1.0;
+            } catch (UnrecognizedVariableException e) {
+                throw new UnknownFeatureException(e.getVariableName());
+            }
+        }
+        checkFeatures(configuration);
+        int[] symbolByVariable = entry.symbolByVariable;
+        return entry.compiled.eval(variable -> configuration.has(symbolByVariable[variable])) == 1.0;
+    }
+
+    /**
+     * Maps a list of presence conditions into equivalence classes, as
+     * {@link PresenceConditions#toEquivalenceClasses(List)} does, but
+     * deeming equivalent any presence conditions which agree on every
+     * configuration allowed by the feature model (e.g., {@code A && B} and
+     * {@code B && A}). As ADDs are canonical, this amounts to comparing the
+     * encodings of the presence conditions restricted to the feature model.
+     *
+     * Thus, the resulting classes must only be relied upon for valid
+     * configurations.
+     *
+     * @param featureModel Feature model as a 0,1-ADD, or {@code null} to
+     *      group presence conditions which are equivalent on their own.
+     */
+    public Map<String, String> toEquivalenceClasses(List<String> presenceConditions, ADD featureModel) {
+        // Restricted encodings are only needed while grouping.
+        return jadd.callInArena(() -> {
+            Map<ADD, String> classesByFunction = new HashMap<ADD, String>();
+            Map<String, String> classes = new HashMap<String, String>();
+            for (String pc: presenceConditions) {
+                if (classes.containsKey(pc)) {
+                    continue;
+                }
+                ADD restricted = (featureModel != null) ? featureModel.times(encode(pc)) : encode(pc);
+                String eqClass = classesByFunction.get(restricted);
+                if (eqClass == null) {
+                    eqClass = "s"+classesByFunction.size();
+                    classesByFunction.put(restricted, eqClass);
+                }
+                classes.put(pc, eqClass);
+            }
+            return classes;
+        });
+    }
+
+    /**
+     * @return the number of distinct presence conditions encoded so far.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry getEntry(String presenceCondition) {
+        String key = normalize(presenceCondition);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            // Encoding is not done under the map's lock, since the manager
+            // thread itself may be looking presence conditions up meanwhile.
+            entry = jadd.callOutsideArenas(() -> {
+                ADD encoded = expressionSolver.encodeFormula(key);
+                return new Entry(encoded, reduction.apply(encoded), symbols);
+            });
+            Entry previous = entries.putIfAbsent(key, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Whitespace is irrelevant to the meaning of a presence condition.
+     */
+    static String normalize(String presenceCondition) {
+        return presenceCondition.replaceAll("\\s+", "");
+    }
+
+    /**
+     * Tests a presence condition against many configurations at once.
+     *
+     * @param symbolColumns Bit column of each feature symbol over the
+     *      configurations, or {@code null} for features they all lack.
+     * @param words Length of each column.
+     * @return the bit column of the configurations in which the presence
+     *      condition holds. Bits past the last configuration are unspecified.
+     * @see CompiledADD#evalColumns(long[][], int, double)
+     */
+    long[] isPresent(String presenceCondition, long[][] symbolColumns, int words) {
+        Entry entry = getEntry(presenceCondition);
+        long[][] variableColumns = new long[entry.symbolByVariable.length][];
+        for (int i = 0; i < variableColumns.length; i++) {
+            int symbol = entry.symbolByVariable[i];
+            variableColumns[i] = (symbol < symbolColumns.length) ? symbolColumns[symbol] : null;
+        }
+        return entry.compiled.evalColumns(variableColumns, words, 1.0);
+    }
+
+    FeatureSymbols getSymbols() {
+        return symbols;
+    }
+
+    private void checkFeatures(Configuration configuration) {
+        checkFeatures(configuration.toBitSet());
+    }
+
+    /**
+     * @throws UnknownFeatureException if any of the given symbols does not
+     *      stand for a variable of the ADD manager.
+     */
+    void checkFeatures(BitSet features) {
+        BitSet unknown = (BitSet) features.clone();
+        unknown.andNot(knownSymbols);
+        if (unknown.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            BitSet known = (BitSet) knownSymbols.clone();
+            for (int i = unknown.nextSetBit(0); i >= 0; i = unknown.nextSetBit(i + 1)) {
+                String feature = symbols.getName(i);
+                if (!jadd.hasVariable(feature)) {
+                    throw new UnknownFeatureException(feature);
+                }
+                known.set(i);
+            }
+            knownSymbols = known;
+        }
+    }
+
+    private static class Entry {
+        private ADD reduced;
+        private CompiledADD compiled;
+        // Feature symbol of each variable of the compiled ADD.
+        private int[] symbolByVariable;
+
+        Entry(ADD encoded, ADD reduced, FeatureSymbols symbols) {
+            this.reduced = reduced;
+            this.compiled = encoded.compile();
+            this.symbolByVariable = new int[compiled.getNumberOfVariables()];
+            for (int i = 0; i < symbolByVariable.length; i++) {
+                symbolByVariable[i] = symbols.intern(compiled.getVariableName(i));
+            }
+        }
+    }
+
+}
@@ -1,34 +1,18 @@
 package tool.analyzers.buildingblocks;
 
-import jadd.ADD;
-import jadd.UnrecognizedVariableException;
-
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import tool.UnknownFeatureException;
-import expressionsolver.ExpressionSolver;
-
 public class PresenceConditions {
 
-    public static boolean isPresent(String presenceCondition, Collection<String> configuration, ExpressionSolver expressionSolver) {
-        ADD encodedPresenceCondition = expressionSolver.encodeFormula(presenceCondition);
-        Double presenceValue;
-        try {
-            presenceValue = encodedPresenceCondition.eval(configuration.toArray(new String[configuration.size()]));
-        } catch (UnrecognizedVariableException e) {
-            throw new UnknownFeatureException(e.getVariableName());
-        }
-        return presenceValue.compareTo(1.0) == 0;
-    }
-
     /**
      * Maps a list of presence conditions into equivalence classes, i.e.,
      * groups of presence conditions which can be deemed equivalent.
      *
-     * The equivalence relation in use is string equality.
+     * The equivalence relation in use is string equality. For equivalence
+     * under a feature model, see
+     * {@link PresenceConditionCache#toEquivalenceClasses(List, jadd.ADD)}.
      *
      * The keys of the returned mapping are presence conditions.
      * The values of the returned mapping are guaranteed to have no special
@@ -0,0 +1,141 @@
+package tool.analyzers.buildingblocks;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tool.Configuration;
+
+/**
+ * Presence of every equivalence class of presence conditions (columns) in
+ * each of a block of configurations (rows).
+ *
+ * Columns are packed bits over the rows, and are computed all at once for
+ * the whole block (see {@link #compute(List, Map, PresenceConditionCache)}),
+ * so that product-oriented analyses need not test presence conditions
+ * product by product.
+ */
+public class PresenceMatrix {
+
+    private List<Configuration> configurations;
+    private Map<String, Integer> columnsByPresenceCondition;
+    private long[][] columns;
+
+    private PresenceMatrix(List<Configuration> configurations, Map<String, Integer> columnsByPresenceCondition, long[][] columns) {
+        this.configurations = configurations;
+        this.columnsByPresenceCondition = columnsByPresenceCondition;
+        this.columns = columns;
+    }
+
+    /**
+     * Computes the presence matrix of a block of configurations.
+     *
+     * @param configurations Rows of the matrix.
+     * @param pcEquivalence Equivalence classes of the presence conditions,
+     *      as given by {@link PresenceConditions#toEquivalenceClasses(List)}.
+     *      There is a column for each class.
+     * @param presenceConditionCache Cache with which to encode and evaluate
+     *      presence conditions.
+     */
+    public static PresenceMatrix compute(List<Configuration> configurations,
+                                         Map<String, String> pcEquivalence,
+                                         PresenceConditionCache presenceConditionCache) {
+        int words = (configurations.size() + 63) >>> 6;
+        long[][] symbolColumns = toSymbolColumns(configurations, presenceConditionCache, words);
+
+        Map<String, Integer> columnsByClass = new HashMap<String, Integer>();
+        Map<String, Integer> columnsByPresenceCondition = new HashMap<String, Integer>();
+        Map<Integer, String> representatives = new LinkedHashMap<Integer, String>();
+        for (Map.Entry<String, String> entry: pcEquivalence.entrySet()) {
+            Integer column = columnsByClass.get(entry.getValue());
+            if (column == null) {
+                column = columnsByClass.size();
+                columnsByClass.put(entry.getValue(), column);
+                representatives.put(column, entry.getKey());
+            }
+            columnsByPresenceCondition.put(entry.getKey(), column);
+        }
+
+        long[][] columns = new long[representatives.size()][];
+        for (Map.Entry<Integer, String> representative: representatives.entrySet()) {
+            String presenceCondition = representative.getValue();
+            long[] column;
+            if (symbolColumns != null) {
+                column = presenceConditionCache.isPresent(presenceCondition, symbolColumns, words);
+            } else {
+                // Configurations over other symbol tables are tested one by one.
+                column = new long[words];
+                for (int row = 0; row < configurations.size(); row++) {
+                    if (presenceConditionCache.isPresent(presenceCondition, configurations.get(row))) {
+                        column[row >>> 6] |= 1L << row;
+                    }
+                }
+            }
+            columns[representative.getKey()] = column;
+        }
+        return new PresenceMatrix(configurations, columnsByPresenceCondition, columns);
+    }
+
+    /**
+     * Transposes the configurations into a bit column for each feature
+     * symbol, or returns {@code null} if they are not all over the
+     * cache's symbol table.
+     */
+    private static long[][] toSymbolColumns(List<Configuration> configurations, PresenceConditionCache presenceConditionCache, int words) {
+        BitSet features = new BitSet();
+        for (Configuration configuration: configurations) {
+            if (configuration.getSymbols() != presenceConditionCache.getSymbols()) {
+                return null;
+            }
+            features.or(configuration.toBitSet());
+        }
+        presenceConditionCache.checkFeatures(features);
+
+        long[][] symbolColumns = new long[features.length()][];
+        for (int symbol = features.nextSetBit(0); symbol >= 0; symbol = features.nextSetBit(symbol + 1)) {
+            symbolColumns[symbol] = new long[words];
+        }
+        for (int row = 0; row < configurations.size(); row++) {
+            BitSet configuration = configurations.get(row).toBitSet();
+            for (int symbol = configuration.nextSetBit(0); symbol >= 0; symbol = configuration.nextSetBit(symbol + 1)) {
+                symbolColumns[symbol][row >>> 6] |= 1L << row;
+            }
+        }
+        return symbolColumns;
+    }
+
+    /**
+     * @return the number of rows (i.e., configurations).
+     */
+    public int size() {
+        return configurations.size();
+    }
+
+    public Configuration getConfiguration(int row) {
+        return configurations.get(row);
+    }
+
+    /**
+     * @return the column of the equivalence class of a presence condition.
+     * @throws IllegalArgumentException if the presence condition was not
+     *      given when computing this matrix.
+     */
+    public int getColumn(String presenceCondition) {
+        Integer column = columnsByPresenceCondition.get(presenceCondition);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown presence condition: " + presenceCondition);
+        }
+        return column;
+    }
+
+    public boolean isPresent(int row, int column) {
+        return (columns[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public boolean isPresent(int row, String presenceCondition) {
+        return isPresent(row, getColumn(presenceCondition));
+    }
+
+}
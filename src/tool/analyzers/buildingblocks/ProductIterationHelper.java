@@ -1,24 +1,63 @@
 package tool.analyzers.buildingblocks;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import tool.Configuration;
+
 public class ProductIterationHelper {
+    /**
+     * Number of configurations whose presence matrix is computed at once.
+     */
+    private static final int BLOCK_SIZE = 4096;
 
-    public static <T> Map<Collection<String>, Double> evaluate(Function<Collection<String>, Double> eval,
-                                                               Stream<Collection<String>> configurations,
-                                                               ConcurrencyStrategy concurrencyStrategy) {
-        Stream<Collection<String>> configs = concurrencyStrategy == ConcurrencyStrategy.PARALLEL ?
+    public static <T> Map<Configuration, Double> evaluate(Function<Configuration, Double> eval,
+                                                          Stream<Configuration> configurations,
+                                                          ConcurrencyStrategy concurrencyStrategy) {
+        Stream<Configuration> configs = concurrencyStrategy == ConcurrencyStrategy.PARALLEL ?
                                                         configurations.parallel()
                                                         : configurations.sequential();
 
-        Map<Collection<String>, Double> results = configs
+        Map<Configuration, Double> results = configs
                 .collect(Collectors.toMap(Function.identity(),
                                           eval));
         return results;
     }
 
+    /**
+     * Evaluates configurations in blocks, computing the presence matrix of
+     * each block before evaluating its rows. Under the PARALLEL strategy,
+     * both the matrices and the rows are computed in parallel.
+     *
+     * @param eval Evaluation of a row of a presence matrix.
+     * @param presence Computation of the presence matrix of a block.
+     */
+    public static Map<Configuration, Double> evaluate(BiFunction<PresenceMatrix, Integer, Double> eval,
+                                                      Function<List<Configuration>, PresenceMatrix> presence,
+                                                      Stream<Configuration> configurations,
+                                                      ConcurrencyStrategy concurrencyStrategy) {
+        List<Configuration> allConfigurations = configurations.distinct().collect(Collectors.toList());
+        int blocks = (allConfigurations.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        List<PresenceMatrix> matrices = indices(blocks, concurrencyStrategy)
+                .mapToObj(block -> presence.apply(allConfigurations.subList(block*BLOCK_SIZE,
+                                                                            Math.min((block + 1)*BLOCK_SIZE, allConfigurations.size()))))
+                .collect(Collectors.toList());
+
+        return indices(allConfigurations.size(), concurrencyStrategy)
+                .boxed()
+                .collect(Collectors.toMap(allConfigurations::get,
+                                          i -> eval.apply(matrices.get(i / BLOCK_SIZE), i % BLOCK_SIZE)));
+    }
+
+    private static IntStream indices(int count, ConcurrencyStrategy concurrencyStrategy) {
+        return concurrencyStrategy == ConcurrencyStrategy.PARALLEL ?
+                                        IntStream.range(0, count).parallel()
+                                        : IntStream.range(0, count).sequential();
+    }
+
 }
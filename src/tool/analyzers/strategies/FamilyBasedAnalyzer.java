@@ -1,6 +1,7 @@
 package tool.analyzers.strategies;
 
 import jadd.ADD;
+import jadd.ADDArena;
 import jadd.JADD;
 
 import java.util.List;
@@ -16,7 +17,7 @@ import tool.analyzers.ADDReliabilityResults;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.FamilyBasedHelper;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
@@ -30,7 +31,9 @@ public class FamilyBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FamilyBasedAnalyzer.class.getName());
 
     private ADD featureModel;
+    private JADD jadd;
     private ExpressionSolver expressionSolver;
+    private PresenceConditionCache presenceConditionCache;
     ParametricModelChecker modelChecker;
 
     private FamilyBasedFirstPhase firstPhase;
@@ -40,11 +43,14 @@ public class FamilyBasedAnalyzer {
     private IFormulaCollector formulaCollector;
 
     public FamilyBasedAnalyzer(JADD jadd,
+                               PresenceConditionCache presenceConditionCache,
                                ADD featureModel,
                                ParametricModelChecker modelChecker,
                                ITimeCollector timeCollector,
                                IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionCache = presenceConditionCache;
+        this.jadd = jadd;
         this.featureModel = featureModel;
         this.modelChecker = modelChecker;
 
@@ -67,37 +73,45 @@ public class FamilyBasedAnalyzer {
         LOGGER.warning("Family-based analysis does not support parallel execution.");
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
 
+        List<String> presenceConditions = dependencies.stream()
+                .map(RDGNode::getPresenceCondition)
+                .collect(Collectors.toList());
+        // Fewer classes mean fewer parameters for the model checker.
+        Map<String, String> pcEquivalence = presenceConditionCache.toEquivalenceClasses(presenceConditions, featureModel);
+
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Lambda_v + alpha_v
-        String expression = firstPhase.getReliabilityExpression(dependencies);
+        String expression = firstPhase.getReliabilityExpression(dependencies, pcEquivalence);
         formulaCollector.collectFormula(node, expression);
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-        // Lift
-        Expression<ADD> liftedExpression = helper.lift(expression);
-
-        List<String> presenceConditions = dependencies.stream()
-                .map(RDGNode::getPresenceCondition)
-                .collect(Collectors.toList());
-        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
-        Map<String, String> eqClassToPC = pcEquivalence.entrySet().stream()
-                .collect(Collectors.toMap(e -> e.getValue(),
-                                          e -> e.getKey(),
-                                          (a, b) -> a));
-
-        Map<String, ADD> values = eqClassToPC.entrySet().stream()
-                .collect(Collectors.toMap(e -> e.getKey(),
-                                          e -> expressionSolver.encodeFormula(e.getValue())));
-
-        // Sigma'_v
-        ADD reliability = liftedExpression.solve(values);
-        ADD result = featureModel.times(reliability);
-
+        jadd.snapshotDeadNodes("before expression solving");
+        // The whole phase is run as a single batch of ADD operations.
+        ADD result = jadd.call(() -> {
+            try (ADDArena arena = jadd.openArena()) {
+                // Lift
+                Expression<ADD> liftedExpression = helper.lift(expression);
+
+                Map<String, String> eqClassToPC = pcEquivalence.entrySet().stream()
+                        .collect(Collectors.toMap(e -> e.getValue(),
+                                                  e -> e.getKey(),
+                                                  (a, b) -> a));
+
+                Map<String, ADD> values = eqClassToPC.entrySet().stream()
+                        .collect(Collectors.toMap(e -> e.getKey(),
+                                                  e -> presenceConditionCache.encode(e.getValue())));
+
+                // Sigma'_v
+                ADD reliability = liftedExpression.solve(values);
+                return arena.keep(featureModel.times(reliability));
+            }
+        });
+        jadd.snapshotDeadNodes("after expression solving");
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
         LOGGER.info("Formula evaluation ok...");
 
-        return new ADDReliabilityResults(result);
+        return new ADDReliabilityResults(result, featureModel);
     }
 
 }
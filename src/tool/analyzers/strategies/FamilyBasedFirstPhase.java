@@ -10,7 +10,7 @@ import tool.Analyzer;
 import tool.RDGNode;
 import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.DerivationFunction;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import fdtmc.CompactFDTMC;
 import fdtmc.FDTMC;
 
 public class FamilyBasedFirstPhase {
@@ -21,15 +21,15 @@ public class FamilyBasedFirstPhase {
     /**
      * LAMBDA_v
      */
-    private DerivationFunction<String, FDTMC, FDTMC> derive150Model;
+    private DerivationFunction<String, CompactFDTMC, CompactFDTMC> derive150Model;
 
 
     public FamilyBasedFirstPhase(ParametricModelChecker modelChecker) {
         this.modelChecker = modelChecker;
 
-        derive150Model = DerivationFunction.abstractDerivation(FDTMC::ifThenElse,
-                                                               FDTMC::inline,
-                                                               new FDTMC());
+        derive150Model = DerivationFunction.abstractDerivation(CompactFDTMC::ifThenElse,
+                                                               CompactFDTMC::inline,
+                                                               new FDTMC().toCompact());
     }
 
     /**
@@ -43,18 +43,17 @@ public class FamilyBasedFirstPhase {
      *
      * @see {@link Analyzer.getReliabilityExpression}
      * @param node
+     * @param pcEquivalence Equivalence classes of the presence conditions of
+     *      the dependencies, which name the variables of the expression.
      * @return
      */
-    public String getReliabilityExpression(List<RDGNode> dependencies) {
-        List<Component<FDTMC>> components = RDGNode.toComponentList(dependencies);
-        List<String> presenceConditions = components.stream()
-                .map(Component::getPresenceCondition)
+    public String getReliabilityExpression(List<RDGNode> dependencies, Map<String, String> pcEquivalence) {
+        List<Component<CompactFDTMC>> components = RDGNode.toComponentList(dependencies).stream()
+                .map(c -> c.fmap(FDTMC::toCompact))
                 .collect(Collectors.toList());
-
-        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
-        FDTMC derived150Model = Component.deriveFromMany(components,
-                                                         derive150Model,
-                                                         c -> pcEquivalence.get(c.getPresenceCondition()));
+        CompactFDTMC derived150Model = Component.deriveFromMany(components,
+                                                                derive150Model,
+                                                                c -> pcEquivalence.get(c.getPresenceCondition()));
         String expression = modelChecker.getReliability(derived150Model);
         LOGGER.info("Parametric model-checking ok...");
         return expression;
@@ -1,27 +1,28 @@
 package tool.analyzers.strategies;
 
+import jadd.ADD;
 import jadd.JADD;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
+import tool.Configuration;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.analyzers.IReliabilityAnalysisResults;
 import tool.analyzers.MapBasedReliabilityResults;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
-import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
+import tool.analyzers.buildingblocks.PresenceMatrix;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
-import expressionsolver.Expression;
+import expressionsolver.CompiledExpression;
 import expressionsolver.ExpressionSolver;
 
 /**
@@ -31,6 +32,8 @@ public class FamilyProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FamilyProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionCache presenceConditionCache;
+    private ADD featureModel;
 
     private FamilyBasedFirstPhase firstPhase;
 
@@ -38,10 +41,14 @@ public class FamilyProductBasedAnalyzer {
     private IFormulaCollector formulaCollector;
 
     public FamilyProductBasedAnalyzer(JADD jadd,
+                               PresenceConditionCache presenceConditionCache,
+                               ADD featureModel,
                                ParametricModelChecker modelChecker,
                                ITimeCollector timeCollector,
                                IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionCache = presenceConditionCache;
+        this.featureModel = featureModel;
 
         this.firstPhase = new FamilyBasedFirstPhase(modelChecker);
 
@@ -56,65 +63,65 @@ public class FamilyProductBasedAnalyzer {
      * @return
      * @throws CyclicRdgException
      */
-    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
+    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Configuration> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException {
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Solving the family-wide expression for each product in parallel.");
         }
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
 
+        List<String> presenceConditions = dependencies.stream()
+                .map(RDGNode::getPresenceCondition)
+                .collect(Collectors.toList());
+        // Fewer classes mean fewer parameters for the model checker.
+        Map<String, String> pcEquivalence = presenceConditionCache.toEquivalenceClasses(presenceConditions, featureModel);
+
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Lambda_v + alpha_v
-        String expression = firstPhase.getReliabilityExpression(dependencies);
+        String expression = firstPhase.getReliabilityExpression(dependencies, pcEquivalence);
         formulaCollector.collectFormula(node, expression);
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
-        List<String> presenceConditions = dependencies.stream()
-                .map(RDGNode::getPresenceCondition)
-                .collect(Collectors.toList());
-        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
         Map<String, String> eqClassToPC = pcEquivalence.entrySet().stream()
                 .collect(Collectors.toMap(e -> e.getValue(),
                                           e -> e.getKey(),
                                           (a, b) -> a));
 
-        Map<Collection<String>, Double> results;
-        if (concurrencyStrategy == ConcurrencyStrategy.SEQUENTIAL) {
-            Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(parsedExpression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
-        } else {
-            results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(expression,
-                                                                                      configuration,
-                                                                                      eqClassToPC),
-                                                      configurations,
-                                                      concurrencyStrategy);
+        // Compiled once and shared by all products, even when in parallel.
+        CompiledExpression compiledExpression = expressionSolver.compileExpression(expression);
+        String[] presenceConditionBySlot = compiledExpression.getVariables().stream()
+                .map(eqClassToPC::get)
+                .toArray(String[]::new);
+        for (int i = 0; i < presenceConditionBySlot.length; i++) {
+            if (presenceConditionBySlot[i] == null) {
+                // The variable is then deemed absent in every product.
+                LOGGER.warning("No presence condition for variable <"+compiledExpression.getVariables().get(i)+">");
+            }
         }
+        Map<Configuration, Double> results = ProductIterationHelper.evaluate((presence, row) -> evaluateSingle(compiledExpression,
+                                                                                                               presence,
+                                                                                                               row,
+                                                                                                               presenceConditionBySlot),
+                                                                             block -> PresenceMatrix.compute(block,
+                                                                                                             pcEquivalence,
+                                                                                                             presenceConditionCache),
+                                                                             configurations,
+                                                                             concurrencyStrategy);
 
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
         LOGGER.info("Formulae evaluation ok...");
         return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(Expression<Double> expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
-        Function<Map.Entry<String, String>, Boolean> isPresent = e -> PresenceConditions.isPresent(e.getValue(),
-                                                                                                   configuration,
-                                                                                                   expressionSolver);
-        Map<String, Double> values = eqClassToPC.entrySet().stream()
-            .collect(Collectors.toMap(e -> e.getKey(),
-                                      isPresent.andThen(present -> present ? 1.0 : 0.0)));
-
+    private Double evaluateSingle(CompiledExpression expression, PresenceMatrix presence, int row, String[] presenceConditionBySlot) {
+        double[] values = new double[presenceConditionBySlot.length];
+        for (int i = 0; i < values.length; i++) {
+            boolean present = presenceConditionBySlot[i] != null
+                    && presence.isPresent(row, presenceConditionBySlot[i]);
+            values[i] = present ? 1.0 : 0.0;
+        }
         return expression.solve(values);
-
-    }
-
-    private Double evaluateSingle(String expression, Collection<String> configuration, Map<String, String> eqClassToPC) {
-        Expression<Double> parsedExpression = expressionSolver.parseExpression(expression);
-        return evaluateSingle(parsedExpression, configuration, eqClassToPC);
     }
 
 }
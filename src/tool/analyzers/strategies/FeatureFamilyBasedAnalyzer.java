@@ -1,10 +1,16 @@
 package tool.analyzers.strategies;
 
 import jadd.ADD;
+import jadd.ADDArena;
 import jadd.JADD;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import paramwrapper.ParametricModelChecker;
 import tool.CyclicRdgException;
@@ -18,6 +24,8 @@ import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
 import tool.analyzers.buildingblocks.FamilyBasedHelper;
+import tool.analyzers.buildingblocks.IsPresent;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
@@ -28,10 +36,18 @@ import expressionsolver.ExpressionSolver;
  * Orchestrator of feature-family-based analyses.
  */
 public class FeatureFamilyBasedAnalyzer {
+    private static final Logger LOGGER = Logger.getLogger(FeatureFamilyBasedAnalyzer.class.getName());
+
+    /**
+     * Maximum number of cofactor variables, so that 2^k cofactors can be
+     * numbered by ints.
+     */
+    public static final int MAX_COFACTOR_VARIABLES = 30;
 
     private ADD featureModel;
     private JADD jadd;
     private ExpressionSolver expressionSolver;
+    private PresenceConditionCache presenceConditionCache;
     private IPruningStrategy pruningStrategy;
 
     private FeatureBasedFirstPhase firstPhase;
@@ -42,15 +58,22 @@ public class FeatureFamilyBasedAnalyzer {
      */
     private DerivationFunction<ADD, Expression<ADD>, ADD> solve;
 
+    /**
+     * Number of variables whose values are fixed in order to split
+     * the solving of expressions among independent ADD managers.
+     */
+    private int cofactorVariables = 31 - Integer.numberOfLeadingZeros(Runtime.getRuntime().availableProcessors());
 
     private ITimeCollector timeCollector;
 
     public FeatureFamilyBasedAnalyzer(JADD jadd,
+                                      PresenceConditionCache presenceConditionCache,
                                       ADD featureModel,
                                       ParametricModelChecker modelChecker,
                                       ITimeCollector timeCollector,
                                       IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionCache = presenceConditionCache;
         this.jadd = jadd;
         this.featureModel = featureModel;
 
@@ -60,15 +83,24 @@ public class FeatureFamilyBasedAnalyzer {
         this.firstPhase = new FeatureBasedFirstPhase(modelChecker,
                                                      formulaCollector);
         this.helper = new FamilyBasedHelper(expressionSolver);
+        this.solve = makeDerivation(jadd, featureModel);
+    }
 
+    /**
+     * Sigma_v for the given ADD manager and (possibly restricted) feature model.
+     */
+    private DerivationFunction<ADD, Expression<ADD>, ADD> makeDerivation(JADD jadd, ADD featureModel) {
         AssetProcessor<Expression<ADD>, ADD> evalAndPrune = (expr, values) -> {
-            return this.pruningStrategy.pruneInvalidConfigurations(null,
-                                                                   expr.solve(values),
-                                                                   featureModel);
+            // Intermediate ADDs of each expression are released right away.
+            try (ADDArena arena = jadd.openArena()) {
+                return arena.keep(this.pruningStrategy.pruneInvalidConfigurations(null,
+                                                                                  expr.solve(values),
+                                                                                  featureModel));
+            }
         };
-        solve = DerivationFunction.abstractDerivation(ADD::ite,
-                                                      evalAndPrune,
-                                                      jadd.makeConstant(1.0));
+        return DerivationFunction.abstractDerivation(ADD::ite,
+                                                     evalAndPrune,
+                                                     jadd.makeConstant(1.0));
     }
 
     /**
@@ -86,6 +118,9 @@ public class FeatureFamilyBasedAnalyzer {
      */
     public IReliabilityAnalysisResults evaluateReliability(RDGNode node, ConcurrencyStrategy concurrencyStrategy, String dotOutput) throws CyclicRdgException {
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        // A node is always higher than its dependencies, so a (stable) sort
+        // by height keeps the order topological while grouping each RDG level.
+        dependencies.sort(Comparator.comparingInt(RDGNode::getHeight));
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         // Alpha_v
@@ -93,20 +128,32 @@ public class FeatureFamilyBasedAnalyzer {
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
         timeCollector.startTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
-        // Lift
-        List<Component<Expression<ADD>>> liftedExpressions = expressions.stream()
-                .map(helper::lift)
-                .collect(Collectors.toList());
-        // Sigma_v
-        ADD reliability = solveFromMany(liftedExpressions);
-        ADD result = featureModel.times(reliability);
+        jadd.snapshotDeadNodes("before expression solving");
+        ADD result;
+        if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL && cofactorVariables > 0) {
+            result = solveByCofactors(expressions);
+        } else {
+            // The whole phase is run as a single batch of ADD operations.
+            result = jadd.call(() -> {
+                try (ADDArena arena = jadd.openArena()) {
+                    // Lift
+                    List<Component<Expression<ADD>>> liftedExpressions = expressions.stream()
+                            .map(helper::lift)
+                            .collect(Collectors.toList());
+                    // Sigma_v
+                    ADD reliability = solveFromMany(liftedExpressions);
+                    return arena.keep(featureModel.times(reliability));
+                }
+            });
+        }
+        jadd.snapshotDeadNodes("after expression solving");
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
 
         if (dotOutput != null) {
             generateDotFile(result, dotOutput);
         }
 
-        return new ADDReliabilityResults(result);
+        return new ADDReliabilityResults(result, featureModel);
     }
 
     /**
@@ -123,6 +170,26 @@ public class FeatureFamilyBasedAnalyzer {
         this.pruningStrategy = pruningStrategy;
     }
 
+    /**
+     * Sets the number k of variables to be fixed in parallel analyses.
+     * The expression solving phase is then split among 2^k ADD managers,
+     * each of which computes the reliability function for one of the
+     * possible assignments to these variables (i.e., a cofactor).
+     *
+     * If none is set, the default is log2 of the number of available processors.
+     * Zero means expressions are solved in a single manager.
+     *
+     * @param cofactorVariables the number of variables to fix.
+     * @throws IllegalArgumentException if it is not between 0 and
+     *      {@link #MAX_COFACTOR_VARIABLES}.
+     */
+    public void setCofactorVariables(int cofactorVariables) {
+        if (cofactorVariables < 0 || cofactorVariables > MAX_COFACTOR_VARIABLES) {
+            throw new IllegalArgumentException("Number of cofactor variables must be between 0 and " + MAX_COFACTOR_VARIABLES);
+        }
+        this.cofactorVariables = cofactorVariables;
+    }
+
     /**
      * Dumps the computed family reliability function to the output file
      * in the specified path.
@@ -138,7 +205,130 @@ public class FeatureFamilyBasedAnalyzer {
     private ADD solveFromMany(List<Component<Expression<ADD>>> dependencies) {
         return Component.deriveFromMany(dependencies,
                                         solve,
-                                        c -> expressionSolver.encodeFormula(c.getPresenceCondition()));
+                                        signalingLevels(jadd, c -> presenceConditionCache.encode(c.getPresenceCondition())));
+    }
+
+    /**
+     * Wraps a presence function so that the ADD manager is signaled whenever
+     * all components of a given RDG height have been processed (which may
+     * trigger variable reordering). Components must come grouped by height,
+     * lowest first.
+     */
+    private static IsPresent<Expression<ADD>, ADD> signalingLevels(JADD jadd, IsPresent<Expression<ADD>, ADD> isPresent) {
+        int[] currentHeight = {-1};
+        return c -> {
+            RDGNode node = RDGNode.getById(c.getId());
+            if (node != null && node.getHeight() != currentHeight[0]) {
+                if (currentHeight[0] != -1) {
+                    jadd.levelCompleted();
+                }
+                currentHeight[0] = node.getHeight();
+            }
+            return isPresent.apply(c);
+        };
+    }
+
+    /**
+     * Solves the cofactors of the reliability function with respect to the
+     * topmost variables in parallel, each in its own ADD manager, and then
+     * stitches them back together with if-then-else.
+     */
+    private ADD solveByCofactors(List<Component<String>> expressions) {
+        List<String> variableOrder = featureModel.getVariableOrder();
+        // Variables on which the feature model does not depend (e.g., ones
+        // collapsed by its reduction) would only yield duplicate cofactors.
+        Set<String> support = featureModel.getVariables();
+        List<String> relevantVariables = variableOrder.stream()
+                .filter(support::contains)
+                .collect(Collectors.toList());
+        List<String> splitVariables = relevantVariables.subList(0, Math.min(cofactorVariables, relevantVariables.size()));
+        LOGGER.info("Solving expressions for each of the " + (1 << splitVariables.size())
+                + " assignments to " + splitVariables + " in parallel.");
+
+        List<ADD> cofactors = IntStream.range(0, 1 << splitVariables.size())
+                .parallel()
+                .mapToObj(assignment -> solveCofactor(expressions, variableOrder, splitVariables, assignment))
+                .collect(Collectors.toList());
+
+        return jadd.call(() -> {
+            try (ADDArena arena = jadd.openArena()) {
+                // Cofactors differing only on the value of the bottommost
+                // split variable are adjacent, so they are merged pairwise
+                // from the bottom up.
+                List<ADD> merged = cofactors;
+                for (int i = splitVariables.size() - 1; i >= 0; i--) {
+                    ADD variable = jadd.getVariable(splitVariables.get(i));
+                    List<ADD> upperLevel = new ArrayList<ADD>();
+                    for (int j = 0; j < merged.size(); j += 2) {
+                        upperLevel.add(variable.ifThenElse(merged.get(j + 1), merged.get(j)));
+                    }
+                    merged = upperLevel;
+                }
+                ADD result = arena.keep(merged.get(0));
+                // Without split variables, the result is the only cofactor itself.
+                for (ADD cofactor: cofactors) {
+                    if (cofactor != result) {
+                        cofactor.close();
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Solves the reliability function with {@code splitVariables} fixed to
+     * the values in the bits of {@code assignment} (most significant first),
+     * using a fresh ADD manager.
+     *
+     * @return the cofactor, copied into the main ADD manager.
+     */
+    private ADD solveCofactor(List<Component<String>> expressions,
+                              List<String> variableOrder,
+                              List<String> splitVariables,
+                              int assignment) {
+        try (JADD cofactorJadd = new JADD()) {
+            cofactorJadd.setReorderingPolicy(jadd.getReorderingPolicy());
+            ADD cofactor = cofactorJadd.call(() -> {
+                // Same variable order as the main manager.
+                variableOrder.forEach(cofactorJadd::getVariable);
+                try (ADDArena arena = cofactorJadd.openArena()) {
+                    ADD cube = makeCube(cofactorJadd, splitVariables, assignment);
+                    ADD restrictedFeatureModel = featureModel.copyTo(cofactorJadd).cofactor(cube);
+
+                    ExpressionSolver cofactorSolver = new ExpressionSolver(cofactorJadd);
+                    FamilyBasedHelper cofactorHelper = new FamilyBasedHelper(cofactorSolver);
+                    // Lift
+                    List<Component<Expression<ADD>>> liftedExpressions = expressions.stream()
+                            .map(cofactorHelper::lift)
+                            .collect(Collectors.toList());
+                    // Sigma_v, restricted to the assignment
+                    ADD reliability = Component.deriveFromMany(liftedExpressions,
+                                                               makeDerivation(cofactorJadd, restrictedFeatureModel),
+                                                               signalingLevels(cofactorJadd,
+                                                                               c -> presenceConditionCache.encode(c.getPresenceCondition())
+                                                                                       .copyTo(cofactorJadd)
+                                                                                       .cofactor(cube)));
+                    return arena.keep(restrictedFeatureModel.times(reliability));
+                }
+            });
+            return cofactor.copyTo(jadd);
+        }
+    }
+
+    /**
+     * @return the product of the literals of {@code variables}, positive or
+     *      negative according to the bits of {@code assignment} (most
+     *      significant first).
+     */
+    private static ADD makeCube(JADD jadd, List<String> variables, int assignment) {
+        ADD cube = jadd.makeConstant(1.0);
+        for (int i = 0; i < variables.size(); i++) {
+            ADD variable = jadd.getVariable(variables.get(i));
+            boolean value = (assignment & (1 << (variables.size() - 1 - i))) != 0;
+            cube = cube.times(value ? variable : variable.complement());
+        }
+        return cube;
     }
 
 }
@@ -2,13 +2,15 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
+import tool.Configuration;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
@@ -18,11 +20,14 @@ import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
 import tool.analyzers.buildingblocks.IfOperator;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
 import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceMatrix;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
+import expressionsolver.CompiledExpression;
 import expressionsolver.ExpressionSolver;
 
 /**
@@ -32,20 +37,27 @@ public class FeatureProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(FeatureProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionCache presenceConditionCache;
     private FeatureBasedFirstPhase firstPhase;
 
     /**
      * Sigma
      */
     private DerivationFunction<Boolean, String, Double> solve;
+    /**
+     * Each expression is compiled once and then shared by all products.
+     */
+    private Map<String, CompiledExpression> compiledExpressions = new ConcurrentHashMap<String, CompiledExpression>();
 
     private ITimeCollector timeCollector;
 
     public FeatureProductBasedAnalyzer(JADD jadd,
+                                       PresenceConditionCache presenceConditionCache,
                                        ParametricModelChecker modelChecker,
                                        ITimeCollector timeCollector,
                                        IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionCache = presenceConditionCache;
 
         this.timeCollector = timeCollector;
 
@@ -54,7 +66,7 @@ public class FeatureProductBasedAnalyzer {
 
 
         solve = DerivationFunction.abstractDerivation(new IfOperator<Double>(),
-                                                      expressionSolver::solveExpression,
+                                                      (expression, values) -> compile(expression).solve(values),
                                                       1.0);
     }
 
@@ -67,7 +79,7 @@ public class FeatureProductBasedAnalyzer {
      * @throws CyclicRdgException
      * @throws UnknownFeatureException
      */
-    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
+    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Configuration> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
@@ -80,22 +92,31 @@ public class FeatureProductBasedAnalyzer {
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Evaluating all expressions for each product in parallel.");
         }
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  expressions),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
+        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(expressions.stream()
+                .map(Component::getPresenceCondition)
+                .collect(Collectors.toList()));
+        Map<Configuration, Double> results = ProductIterationHelper.evaluate((presence, row) -> evaluateSingle(node,
+                                                                                                               presence,
+                                                                                                               row,
+                                                                                                               expressions),
+                                                                             block -> PresenceMatrix.compute(block,
+                                                                                                             pcEquivalence,
+                                                                                                             presenceConditionCache),
+                                                                             configurations,
+                                                                             concurrencyStrategy);
 
         timeCollector.stopTimer(CollectibleTimers.EXPRESSION_SOLVING_TIME);
         return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<Component<String>> expressions) {
+    private CompiledExpression compile(String expression) {
+        return compiledExpressions.computeIfAbsent(expression, expressionSolver::compileExpression);
+    }
+
+    private Double evaluateSingle(RDGNode node, PresenceMatrix presence, int row, List<Component<String>> expressions) {
         return Component.deriveFromMany(expressions,
                                         solve,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+                                        c -> presence.isPresent(row, c.getPresenceCondition()));
     }
 
 }
@@ -2,13 +2,14 @@ package tool.analyzers.strategies;
 
 import jadd.JADD;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import paramwrapper.ParametricModelChecker;
+import tool.Configuration;
 import tool.CyclicRdgException;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
@@ -18,12 +19,15 @@ import tool.analyzers.buildingblocks.Component;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
 import tool.analyzers.buildingblocks.DerivationFunction;
 import tool.analyzers.buildingblocks.IfOperator;
+import tool.analyzers.buildingblocks.PresenceConditionCache;
 import tool.analyzers.buildingblocks.PresenceConditions;
+import tool.analyzers.buildingblocks.PresenceMatrix;
 import tool.analyzers.buildingblocks.ProductIterationHelper;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.ITimeCollector;
 import expressionsolver.ExpressionSolver;
+import fdtmc.CompactFDTMC;
 import fdtmc.FDTMC;
 import fdtmc.State;
 
@@ -34,28 +38,31 @@ public class ProductBasedAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(ProductBasedAnalyzer.class.getName());
 
     private ExpressionSolver expressionSolver;
+    private PresenceConditionCache presenceConditionCache;
     ParametricModelChecker modelChecker;
     /**
      * LAMBDA
      */
-    private DerivationFunction<Boolean, FDTMC, FDTMC> derive;
+    private DerivationFunction<Boolean, CompactFDTMC, CompactFDTMC> derive;
 
 
     private ITimeCollector timeCollector;
     private IFormulaCollector formulaCollector;
 
     public ProductBasedAnalyzer(JADD jadd,
+                                PresenceConditionCache presenceConditionCache,
                                 ParametricModelChecker modelChecker,
                                 ITimeCollector timeCollector,
                                 IFormulaCollector formulaCollector) {
         this.expressionSolver = new ExpressionSolver(jadd);
+        this.presenceConditionCache = presenceConditionCache;
         this.modelChecker = modelChecker;
 
         this.timeCollector = timeCollector;
         this.formulaCollector = formulaCollector;
 
-        derive = DerivationFunction.abstractDerivation(new IfOperator<FDTMC>(),
-                                                       FDTMC::inline,
+        derive = DerivationFunction.abstractDerivation(new IfOperator<CompactFDTMC>(),
+                                                       CompactFDTMC::inline,
                                                        trivialFdtmc());
     }
 
@@ -67,28 +74,38 @@ public class ProductBasedAnalyzer {
      * @return
      * @throws CyclicRdgException
      */
-    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Collection<String>> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
+    public IReliabilityAnalysisResults evaluateReliability(RDGNode node, Stream<Configuration> configurations, ConcurrencyStrategy concurrencyStrategy) throws CyclicRdgException, UnknownFeatureException {
         if (concurrencyStrategy == ConcurrencyStrategy.PARALLEL) {
             LOGGER.info("Running the whole analysis of each product in parallel.");
         }
         List<RDGNode> dependencies = node.getDependenciesTransitiveClosure();
+        // Converted once, since models are derived anew for each product.
+        List<Component<CompactFDTMC>> models = RDGNode.toComponentList(dependencies).stream()
+                .map(c -> c.fmap(FDTMC::toCompact))
+                .collect(Collectors.toList());
 
         timeCollector.startTimer(CollectibleTimers.MODEL_CHECKING_TIME);
 
-        Map<Collection<String>, Double> results = ProductIterationHelper.evaluate(configuration -> evaluateSingle(node,
-                                                                                                                  configuration,
-                                                                                                                  dependencies),
-                                                                                  configurations,
-                                                                                  concurrencyStrategy);
+        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(models.stream()
+                .map(Component::getPresenceCondition)
+                .collect(Collectors.toList()));
+        Map<Configuration, Double> results = ProductIterationHelper.evaluate((presence, row) -> evaluateSingle(node,
+                                                                                                               presence,
+                                                                                                               row,
+                                                                                                               models),
+                                                                             block -> PresenceMatrix.compute(block,
+                                                                                                             pcEquivalence,
+                                                                                                             presenceConditionCache),
+                                                                             configurations,
+                                                                             concurrencyStrategy);
 
         timeCollector.stopTimer(CollectibleTimers.MODEL_CHECKING_TIME);
         return new MapBasedReliabilityResults(results);
     }
 
-    private Double evaluateSingle(RDGNode node, Collection<String> configuration, List<RDGNode> dependencies) throws UnknownFeatureException {
-        List<Component<FDTMC>> models = RDGNode.toComponentList(dependencies);
+    private Double evaluateSingle(RDGNode node, PresenceMatrix presence, int row, List<Component<CompactFDTMC>> models) throws UnknownFeatureException {
         // Lambda folding
-        FDTMC rootModel = deriveFromMany(models, configuration);
+        CompactFDTMC rootModel = deriveFromMany(models, presence, row);
         // Alpha
         String reliabilityExpression = modelChecker.getReliability(rootModel);
         formulaCollector.collectFormula(node, reliabilityExpression);
@@ -96,15 +113,13 @@ public class ProductBasedAnalyzer {
         return expressionSolver.solveExpression(reliabilityExpression);
     }
 
-    private FDTMC deriveFromMany(List<Component<FDTMC>> dependencies, Collection<String> configuration) {
+    private CompactFDTMC deriveFromMany(List<Component<CompactFDTMC>> dependencies, PresenceMatrix presence, int row) {
         return Component.deriveFromMany(dependencies,
                                         derive,
-                                        c -> PresenceConditions.isPresent(c.getPresenceCondition(),
-                                                                          configuration,
-                                                                          expressionSolver));
+                                        c -> presence.isPresent(row, c.getPresenceCondition()));
     }
 
-    private FDTMC trivialFdtmc() {
+    private CompactFDTMC trivialFdtmc() {
         FDTMC trivial = new FDTMC();
         trivial.setVariableName("t");
 
@@ -112,7 +127,7 @@ public class ProductBasedAnalyzer {
         State success = trivial.createSuccessState();
         trivial.createTransition(initial, success, "", "1.0");
 
-        return trivial;
+        return trivial.toCompact();
     }
 
 }
@@ -0,0 +1,16 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders variables by their first appearance.
+ */
+public class AppearanceOrdering implements IVariableOrderingHeuristic {
+
+    @Override
+    public List<String> order(VariableInteractions interactions) {
+        return new ArrayList<String>(interactions.getVariables());
+    }
+
+}
@@ -0,0 +1,65 @@
+package tool.ordering;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Orders variables by a depth-first traversal of the graph in which
+ * variables are adjacent if they occur together in some group.
+ *
+ * Feature model clauses mostly relate features to their parents, so this
+ * roughly follows the feature tree, keeping each subtree contiguous.
+ * Traversals start (and neighbors are visited) by order of appearance.
+ */
+public class DepthFirstOrdering implements IVariableOrderingHeuristic {
+
+    @Override
+    public List<String> order(VariableInteractions interactions) {
+        int numVariables = interactions.getNumberOfVariables();
+        List<SortedSet<Integer>> neighbors = new ArrayList<SortedSet<Integer>>();
+        for (int i = 0; i < numVariables; i++) {
+            neighbors.add(new TreeSet<Integer>());
+        }
+        for (int[] group: interactions.getGroups()) {
+            for (int v: group) {
+                for (int w: group) {
+                    if (v != w) {
+                        neighbors.get(v).add(w);
+                    }
+                }
+            }
+        }
+
+        List<String> order = new ArrayList<String>(numVariables);
+        boolean[] visited = new boolean[numVariables];
+        for (int root = 0; root < numVariables; root++) {
+            if (visited[root]) {
+                continue;
+            }
+            visited[root] = true;
+            order.add(interactions.getVariable(root));
+            Deque<Iterator<Integer>> stack = new ArrayDeque<Iterator<Integer>>();
+            stack.push(neighbors.get(root).iterator());
+            while (!stack.isEmpty()) {
+                Iterator<Integer> pending = stack.peek();
+                if (!pending.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                int next = pending.next();
+                if (!visited[next]) {
+                    visited[next] = true;
+                    order.add(interactions.getVariable(next));
+                    stack.push(neighbors.get(next).iterator());
+                }
+            }
+        }
+        return order;
+    }
+
+}
@@ -0,0 +1,127 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FORCE heuristic (Aloul, Markov and Sakallah, 2003).
+ *
+ * Each group pulls its variables towards its center of gravity, i.e., the
+ * mean position of its variables. At each iteration, variables are sorted
+ * by the mean of the centers of gravity of their groups. Iterations stop
+ * once the total span of the groups no longer decreases.
+ */
+public class ForceOrdering implements IVariableOrderingHeuristic {
+    private static final int MAX_ITERATIONS = 100;
+
+    private IVariableOrderingHeuristic initialOrdering;
+
+    /**
+     * Starts from a depth-first order.
+     */
+    public ForceOrdering() {
+        this(new DepthFirstOrdering());
+    }
+
+    /**
+     * @param initialOrdering Heuristic for the order to start from.
+     */
+    public ForceOrdering(IVariableOrderingHeuristic initialOrdering) {
+        this.initialOrdering = initialOrdering;
+    }
+
+    @Override
+    public List<String> order(VariableInteractions interactions) {
+        int numVariables = interactions.getNumberOfVariables();
+        List<int[]> groups = interactions.getGroups();
+        List<List<Integer>> groupsByVariable = interactions.getGroupsByVariable();
+
+        // position[v] is the level of variable v in the current order.
+        int[] position = new int[numVariables];
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        List<String> initialOrder = initialOrdering.order(interactions);
+        for (int level = 0; level < numVariables; level++) {
+            levels.put(initialOrder.get(level), level);
+        }
+        for (int v = 0; v < numVariables; v++) {
+            position[v] = levels.get(interactions.getVariable(v));
+        }
+        long span = totalSpan(groups, position);
+
+        double[] centers = new double[groups.size()];
+        double[] target = new double[numVariables];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            for (int g = 0; g < groups.size(); g++) {
+                double sum = 0;
+                for (int v: groups.get(g)) {
+                    sum += position[v];
+                }
+                centers[g] = sum / groups.get(g).length;
+            }
+            for (int v = 0; v < numVariables; v++) {
+                List<Integer> ownGroups = groupsByVariable.get(v);
+                if (ownGroups.isEmpty()) {
+                    target[v] = position[v];
+                } else {
+                    double sum = 0;
+                    for (int g: ownGroups) {
+                        sum += centers[g];
+                    }
+                    target[v] = sum / ownGroups.size();
+                }
+            }
+
+            int[] candidate = rank(target, position);
+            long candidateSpan = totalSpan(groups, candidate);
+            if (candidateSpan >= span) {
+                break;
+            }
+            position = candidate;
+            span = candidateSpan;
+        }
+
+        String[] order = new String[numVariables];
+        for (int v = 0; v < numVariables; v++) {
+            order[position[v]] = interactions.getVariable(v);
+        }
+        return new ArrayList<String>(Arrays.asList(order));
+    }
+
+    /**
+     * Sorts variables by target position, breaking ties by current position.
+     *
+     * @return the new position of each variable.
+     */
+    private static int[] rank(double[] target, int[] position) {
+        Integer[] sorted = new Integer[target.length];
+        for (int v = 0; v < sorted.length; v++) {
+            sorted[v] = v;
+        }
+        Arrays.sort(sorted, Comparator.<Integer>comparingDouble(v -> target[v])
+                                      .thenComparingInt(v -> position[v]));
+        int[] ranked = new int[target.length];
+        for (int level = 0; level < sorted.length; level++) {
+            ranked[sorted[level]] = level;
+        }
+        return ranked;
+    }
+
+    private static long totalSpan(List<int[]> groups, int[] position) {
+        long span = 0;
+        for (int[] group: groups) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int v: group) {
+                min = Math.min(min, position[v]);
+                max = Math.max(max, position[v]);
+            }
+            span += max - min;
+        }
+        return span;
+    }
+
+}
@@ -0,0 +1,19 @@
+package tool.ordering;
+
+import java.util.List;
+
+/**
+ * Heuristic for computing a static variable order, i.e., one which is
+ * applied before any ADD is built.
+ */
+public interface IVariableOrderingHeuristic {
+
+    /**
+     * @param interactions Variables to be ordered and the groups in which
+     *      they occur together.
+     * @return all variables in {@code interactions}, from the topmost
+     *      to the bottommost one.
+     */
+    public List<String> order(VariableInteractions interactions);
+
+}
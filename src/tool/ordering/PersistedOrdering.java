@@ -0,0 +1,45 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reuses a previously computed variable order.
+ *
+ * Variables which are not in the persisted order (e.g., features added to
+ * the model since it was saved) are placed below the known ones, in the
+ * order given by a fallback heuristic. Persisted variables which are no
+ * longer used are dropped.
+ */
+public class PersistedOrdering implements IVariableOrderingHeuristic {
+
+    private List<String> persistedOrder;
+    private IVariableOrderingHeuristic fallback;
+
+    public PersistedOrdering(List<String> persistedOrder, IVariableOrderingHeuristic fallback) {
+        this.persistedOrder = persistedOrder;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public List<String> order(VariableInteractions interactions) {
+        Set<String> variables = new LinkedHashSet<String>(interactions.getVariables());
+        List<String> order = new ArrayList<String>(variables.size());
+        for (String variable: persistedOrder) {
+            if (variables.remove(variable)) {
+                order.add(variable);
+            }
+        }
+        if (!variables.isEmpty()) {
+            for (String variable: fallback.order(interactions)) {
+                if (variables.contains(variable)) {
+                    order.add(variable);
+                }
+            }
+        }
+        return order;
+    }
+
+}
@@ -0,0 +1,129 @@
+package tool.ordering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hypergraph of boolean variables, in which each edge (group) is a set of
+ * variables which occur together in a feature model clause or in a
+ * presence condition. Variables which interact should be kept close
+ * to each other in the ADD variable order.
+ *
+ * Variables are indexed by order of first appearance.
+ */
+public class VariableInteractions {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Set<String> CONSTANTS = new LinkedHashSet<String>();
+    static {
+        Collections.addAll(CONSTANTS, "true", "True", "false", "False");
+    }
+
+    private Map<String, Integer> indices = new LinkedHashMap<String, Integer>();
+    private List<String> variables = new ArrayList<String>();
+    private List<int[]> groups = new ArrayList<int[]>();
+
+    /**
+     * @param featureModel Feature model in CNF, expressed using Java logical
+     *      operators. Each of its top-level clauses is taken as a group.
+     * @param presenceConditions Presence conditions of the RDG nodes, each
+     *      of which is taken as a group.
+     */
+    public static VariableInteractions fromFormulas(String featureModel, Collection<String> presenceConditions) {
+        VariableInteractions interactions = new VariableInteractions();
+        for (String clause: splitClauses(featureModel)) {
+            interactions.addGroup(clause);
+        }
+        for (String presenceCondition: presenceConditions) {
+            interactions.addGroup(presenceCondition);
+        }
+        return interactions;
+    }
+
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    public int getNumberOfVariables() {
+        return variables.size();
+    }
+
+    public String getVariable(int index) {
+        return variables.get(index);
+    }
+
+    /**
+     * @return groups of indices of variables which occur together.
+     */
+    public List<int[]> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * @return for each variable, the indices of the groups in which it occurs.
+     */
+    public List<List<Integer>> getGroupsByVariable() {
+        List<List<Integer>> groupsByVariable = new ArrayList<List<Integer>>();
+        for (int i = 0; i < variables.size(); i++) {
+            groupsByVariable.add(new ArrayList<Integer>());
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            for (int variable: groups.get(g)) {
+                groupsByVariable.get(variable).add(g);
+            }
+        }
+        return groupsByVariable;
+    }
+
+    private void addGroup(String formula) {
+        Set<Integer> group = new LinkedHashSet<Integer>();
+        Matcher matcher = IDENTIFIER.matcher(formula);
+        while (matcher.find()) {
+            String name = matcher.group();
+            if (CONSTANTS.contains(name)) {
+                continue;
+            }
+            Integer index = indices.get(name);
+            if (index == null) {
+                index = variables.size();
+                indices.put(name, index);
+                variables.add(name);
+            }
+            group.add(index);
+        }
+        if (!group.isEmpty()) {
+            groups.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Splits a formula on its top-level conjunctions.
+     */
+    static List<String> splitClauses(String formula) {
+        List<String> clauses = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < formula.length(); i++) {
+            char c = formula.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && formula.startsWith("&&", i)) {
+                clauses.add(formula.substring(start, i));
+                start = i + 2;
+                i++;
+            }
+        }
+        clauses.add(formula.substring(start));
+        return clauses;
+    }
+
+}
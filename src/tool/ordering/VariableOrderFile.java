@@ -0,0 +1,182 @@
+package tool.ordering;
+
+import jadd.ADD;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import expressionsolver.ExpressionSolver;
+
+/**
+ * Variable order persisted across runs for a given feature model.
+ *
+ * The file holds a header with the hash of the feature model for which
+ * the order was computed, followed by one variable per line, from the
+ * topmost to the bottommost one. An order is up to date as long as the
+ * feature model is the same. A stale one is still a good starting point,
+ * as models mostly change incrementally.
+ */
+public class VariableOrderFile {
+    private static final Logger LOGGER = Logger.getLogger(VariableOrderFile.class.getName());
+
+    public static final String EXTENSION = ".order";
+    private static final String HEADER = "# feature model ";
+
+    private Path path;
+    private String featureModel;
+    private String featureModelHash;
+
+    private List<String> order = Collections.emptyList();
+    private boolean upToDate = false;
+
+    /**
+     * Reads the order persisted at {@code path}, if any.
+     *
+     * @param featureModel The feature model which is being analyzed.
+     */
+    public VariableOrderFile(Path path, String featureModel) {
+        this.path = path;
+        this.featureModel = featureModel;
+        this.featureModelHash = hash(featureModel);
+        load();
+    }
+
+    /**
+     * @return the order persisted alongside the given feature model file.
+     */
+    public static VariableOrderFile forFeatureModel(Path featureModelFile, String featureModel) {
+        return new VariableOrderFile(featureModelFile.resolveSibling(featureModelFile.getFileName() + EXTENSION),
+                                     featureModel);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return whether an order has been persisted, regardless of it being
+     *      up to date.
+     */
+    public boolean exists() {
+        return !order.isEmpty();
+    }
+
+    /**
+     * @return whether the persisted order was computed for the very same
+     *      feature model.
+     */
+    public boolean isUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * @return the persisted order, or an empty list if there is none.
+     */
+    public List<String> getOrder() {
+        return order;
+    }
+
+    /**
+     * Persists an order computed for the current feature model.
+     */
+    public void save(List<String> order) {
+        StringBuilder contents = new StringBuilder(HEADER).append(featureModelHash).append('\n');
+        for (String variable: order) {
+            contents.append(variable).append('\n');
+        }
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            Files.write(tempFile, contents.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not store variable order at " + path, e);
+            return;
+        }
+        this.order = new ArrayList<String>(order);
+        this.upToDate = true;
+    }
+
+    /**
+     * Re-tunes the persisted order for the current feature model in the
+     * background and saves the result.
+     *
+     * The feature model is encoded with the given initial order in a
+     * manager of its own, which is then sifted. Thus, this is independent
+     * of (and does not slow down) the ADDs of the analysis itself.
+     *
+     * @param initialOrder Starting point for sifting, which must cover all
+     *      variables in the feature model.
+     * @return the re-tuned order, once it has been saved.
+     */
+    public CompletableFuture<List<String>> retune(List<String> initialOrder) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (JADD jadd = new JADD()) {
+                initialOrder.forEach(jadd::getVariable);
+                jadd.setVariableOrder(initialOrder.toArray(new String[initialOrder.size()]));
+                ADD encoded = new ExpressionSolver(jadd).encodeFormula(featureModel);
+                jadd.reorderVariables();
+                List<String> tuned = encoded.getVariableOrder();
+                save(tuned);
+                return tuned;
+            } catch (UnrecognizedVariableException e) {
+                // Cannot happen, since all variables have just been created.
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void load() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read variable order at " + path, e);
+            return;
+        }
+        if (lines.isEmpty() || !lines.get(0).startsWith(HEADER)) {
+            LOGGER.warning("Ignoring malformed variable order at " + path);
+            return;
+        }
+        List<String> variables = new ArrayList<String>();
+        for (String line: lines.subList(1, lines.size())) {
+            String variable = line.trim();
+            if (!variable.isEmpty()) {
+                variables.add(variable);
+            }
+        }
+        this.order = variables;
+        this.upToDate = lines.get(0).substring(HEADER.length()).trim().equals(featureModelHash);
+    }
+
+    private static String hash(String featureModel) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b: digest.digest(featureModel.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
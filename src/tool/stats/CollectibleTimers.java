@@ -5,5 +5,6 @@ public interface CollectibleTimers {
     public static final String PARSING_TIME = "Parsing time";
     public static final String MODEL_CHECKING_TIME = "Model checking time";
     public static final String EXPRESSION_SOLVING_TIME = "Expression solving time";
+    public static final String VARIABLE_REORDERING_TIME = "Variable reordering time";
 
 }
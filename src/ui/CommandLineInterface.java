@@ -19,6 +19,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -30,6 +31,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import jadd.ReorderingPolicy;
 import modeling.DiagramAPI;
 import modeling.IModelerAPI;
 
@@ -39,7 +41,11 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import paramwrapper.CachingModelChecker;
+import paramwrapper.FormulaCache;
 import paramwrapper.IModelCollector;
+import paramwrapper.ModelCheckerFactory;
+import paramwrapper.ParametricModelChecker;
 import parsing.SplGeneratorModels.SplGeneratorModelingAPI;
 import parsing.exceptions.InvalidNodeClassException;
 import parsing.exceptions.InvalidNodeType;
@@ -51,7 +57,14 @@ import tool.CyclicRdgException;
 import tool.PruningStrategyFactory;
 import tool.RDGNode;
 import tool.UnknownFeatureException;
+import tool.VariableOrderingFactory;
+import tool.analyzers.ADDReliabilityResults;
+import tool.analyzers.ConfigurationReliability;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.ordering.AppearanceOrdering;
+import tool.ordering.IVariableOrderingHeuristic;
+import tool.ordering.PersistedOrdering;
+import tool.ordering.VariableOrderFile;
 import tool.stats.CollectibleTimers;
 import tool.stats.IFormulaCollector;
 import tool.stats.IMemoryCollector;
@@ -73,6 +86,9 @@ public class CommandLineInterface {
     private static IFormulaCollector formulaCollector;
     private static IModelCollector modelCollector;
 
+    private static VariableOrderFile variableOrderFile;
+    private static CompletableFuture<List<String>> variableOrderTuning;
+
     private CommandLineInterface() {
         // NO-OP
     }
@@ -93,7 +109,7 @@ public class CommandLineInterface {
         RDGNode rdgRoot = buildRDG(options);
         memoryCollector.takeSnapshot("after model parsing");
 
-        Analyzer analyzer = makeAnalyzer(options);
+        Analyzer analyzer = makeAnalyzer(options, rdgRoot);
         Stream<Collection<String>> targetConfigurations = getTargetConfigurations(options, analyzer);
 
         memoryCollector.takeSnapshot("before evaluation");
@@ -111,10 +127,19 @@ public class CommandLineInterface {
                     .collect(Collectors.partitioningBy(analyzer::isValidConfiguration));
             printAnalysisResults(splitConfigs, familyReliability);
         }
+        if (options.hasLeastReliable()) {
+            printLeastReliable(familyReliability, options.getLeastReliable());
+        }
+        if (options.getResultsFilePath() != null) {
+            saveResults(familyReliability, options.getResultsFilePath());
+        }
 
         if (options.hasStatsEnabled()) {
             printStats(OUTPUT, familyReliability, rdgRoot);
         }
+        if (variableOrderFile != null) {
+            saveVariableOrder(analyzer);
+        }
         long totalRunningTime = System.currentTimeMillis() - startTime;
         OUTPUT.println("Total analysis time: " +  totalAnalysisTime + " ms");
         OUTPUT.println("Total running time: " +  totalRunningTime + " ms");
@@ -160,7 +185,8 @@ public class CommandLineInterface {
 
     private static IReliabilityAnalysisResults evaluateFeatureFamilyBasedReliability(Analyzer analyzer, RDGNode rdgRoot, Options options) {
         IReliabilityAnalysisResults results = null;
-        String dotOutput = "family-reliability.dot";
+        // The binary results file, if any, replaces the (much larger) dot file.
+        String dotOutput = (options.getResultsFilePath() == null) ? "family-reliability.dot" : null;
         try {
             analyzer.setPruningStrategy(PruningStrategyFactory.createPruningStrategy(options.getPruningStrategy()));
             results = analyzer.evaluateFeatureFamilyBasedReliability(rdgRoot, dotOutput);
@@ -169,7 +195,9 @@ public class CommandLineInterface {
             LOGGER.log(Level.SEVERE, e.toString(), e);
             System.exit(2);
         }
-        OUTPUT.println("Family-wide reliability decision diagram dumped at " + dotOutput);
+        if (dotOutput != null) {
+            OUTPUT.println("Family-wide reliability decision diagram dumped at " + dotOutput);
+        }
         return results;
     }
 
@@ -192,22 +220,90 @@ public class CommandLineInterface {
 
     /**
      * @param options
+     * @param rdgRoot
      * @return
      */
-    private static Analyzer makeAnalyzer(Options options) {
+    private static Analyzer makeAnalyzer(Options options, RDGNode rdgRoot) {
         File featureModelFile = new File(options.getFeatureModelFilePath());
         String featureModel = readFeatureModel(featureModelFile);
 
-        String paramPath = options.getParamPath();
+        ParametricModelChecker modelChecker = ModelCheckerFactory.createModelChecker(options.getModelCheckerBackend(),
+                                                                                     options.getParamPath(),
+                                                                                     modelCollector,
+                                                                                     options.getModelCheckerProcesses(),
+                                                                                     options.getModelCheckerQueueCapacity(),
+                                                                                     options.getModelCheckerIO());
+        if (options.hasFormulaCacheEnabled()) {
+            FormulaCache formulaCache = new FormulaCache(Paths.get(options.getFormulaCacheDirectory()),
+                                                         options.getFormulaCacheSizeMegabytes()*1024*1024);
+            modelChecker = new CachingModelChecker(modelChecker, formulaCache);
+        }
+        modelChecker = ModelCheckerFactory.withMemoization(modelChecker, modelCollector);
+        // Reduced before memoization, so that models which only become isomorphic once reduced are checked once.
+        modelChecker = ModelCheckerFactory.withReduction(modelChecker,
+                                                         options.getModelReduction(),
+                                                         modelCollector);
+        IVariableOrderingHeuristic orderingHeuristic = VariableOrderingFactory.createHeuristic(options.getVariableOrdering());
+        if (options.hasPersistVariableOrder()) {
+            variableOrderFile = VariableOrderFile.forFeatureModel(featureModelFile.toPath(), featureModel);
+            if (variableOrderFile.exists()) {
+                // Variables missing from a stale order are placed by the chosen heuristic
+                // or, when sifting, by appearance (they will be sifted in the background).
+                orderingHeuristic = new PersistedOrdering(variableOrderFile.getOrder(),
+                                                          (orderingHeuristic != null) ? orderingHeuristic : new AppearanceOrdering());
+            }
+        }
         Analyzer analyzer = new Analyzer(featureModel,
-                                         paramPath,
+                                         modelChecker,
                                          timeCollector,
                                          formulaCollector,
-                                         modelCollector);
+                                         orderingHeuristic,
+                                         getPresenceConditions(rdgRoot));
+        if (variableOrderFile != null && variableOrderFile.exists() && !variableOrderFile.isUpToDate()) {
+            LOGGER.info("Feature model changed since " + variableOrderFile.getPath() + " was saved. Re-tuning it in the background.");
+            variableOrderTuning = variableOrderFile.retune(analyzer.getVariableOrder());
+        }
         analyzer.setConcurrencyStrategy(options.getConcurrencyStrategy());
+        analyzer.setReorderingPolicy(new ReorderingPolicy(options.getReorderingMethod(),
+                                                          options.getReorderingGrowthFactor(),
+                                                          options.hasReorderingBetweenLevels(),
+                                                          options.getReorderingMemoryMegabytes()*1024*1024));
+        if (options.hasCofactorVariables()) {
+            analyzer.setCofactorVariables(options.getCofactorVariables());
+        }
         return analyzer;
     }
 
+    /**
+     * Persists the variable order for later runs. If it is being re-tuned
+     * in the background, the re-tuned order is the one to be kept.
+     */
+    private static void saveVariableOrder(Analyzer analyzer) {
+        if (variableOrderTuning != null) {
+            try {
+                variableOrderTuning.join();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not re-tune the variable order", e);
+            }
+        }
+        variableOrderFile.save(analyzer.getVariableOrder());
+    }
+
+    private static List<String> getPresenceConditions(RDGNode rdgRoot) {
+        List<String> presenceConditions = null;
+        try {
+            presenceConditions = rdgRoot.getDependenciesTransitiveClosure().stream()
+                    .map(RDGNode::getPresenceCondition)
+                    .collect(Collectors.toList());
+        } catch (CyclicRdgException e) {
+            LOGGER.severe("Cyclic dependency detected in RDG.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            System.exit(2);
+        }
+        return presenceConditions;
+    }
+
     /**
      * @param options
      */
@@ -273,6 +369,33 @@ public class CommandLineInterface {
         OUTPUT.println(">>>> Total valid configurations: " + splitConfigs.get(true).size());
     }
 
+    private static void saveResults(IReliabilityAnalysisResults familyReliability, String resultsFile) {
+        if (!(familyReliability instanceof ADDReliabilityResults)) {
+            LOGGER.warning("Only feature-family-based and family-based analyses can store their results.");
+            return;
+        }
+        try {
+            ((ADDReliabilityResults) familyReliability).save(resultsFile);
+            OUTPUT.println("Family-wide reliability decision diagram stored at " + resultsFile);
+        } catch (IOException e) {
+            LOGGER.severe("Error writing the results file.");
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
+    private static void printLeastReliable(IReliabilityAnalysisResults familyReliability, int k) {
+        if (!(familyReliability instanceof ADDReliabilityResults)) {
+            LOGGER.warning("The least reliable configurations can only be found by feature-family-based and family-based analyses.");
+            return;
+        }
+        OUTPUT.println(k + " least reliable configurations:");
+        OUTPUT.println("=========================================");
+        for (ConfigurationReliability result: ((ADDReliabilityResults) familyReliability).getLeastReliable(k)) {
+            printSingleConfiguration(result.getConfiguration().toString(), result.getReliability());
+        }
+        OUTPUT.println("=========================================");
+    }
+
     private static void printSingleConfiguration(String configuration, double reliability) {
         String message = configuration + " --> ";
         if (Double.doubleToRawLongBits(reliability) != 0) {
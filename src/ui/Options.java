@@ -5,9 +5,16 @@ import java.io.IOException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import paramwrapper.ModelCheckerBackend;
+import paramwrapper.ModelCheckerIO;
+import paramwrapper.ModelReduction;
+import paramwrapper.ParamWrapper;
+import jadd.ReorderingMethod;
 import tool.PruningStrategy;
+import tool.VariableOrdering;
 import tool.analyzers.AnalysisStrategy;
 import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.analyzers.strategies.FeatureFamilyBasedAnalyzer;
 
 
 /**
@@ -19,13 +26,29 @@ class Options {
     private String featureModelFilePath;
     private String umlModelsFilePath;
     private String paramPath;
+    private ModelCheckerBackend modelCheckerBackend;
+    private int modelCheckerProcesses;
+    private int modelCheckerQueueCapacity;
+    private ModelCheckerIO modelCheckerIO;
+    private ModelReduction modelReduction;
+    private String formulaCacheDirectory;
+    private long formulaCacheSizeMegabytes;
     private String configuration;
     private String configurationsFilePath;
     private boolean printAllConfigurations;
     private boolean suppressReport;
+    private Integer leastReliable;
+    private String resultsFilePath;
     private boolean statsEnabled;
     private ConcurrencyStrategy concurrencyStrategy;
+    private Integer cofactorVariables;
     private PruningStrategy pruningStrategy;
+    private VariableOrdering variableOrdering;
+    private boolean persistVariableOrder;
+    private ReorderingMethod reorderingMethod;
+    private double reorderingGrowthFactor;
+    private boolean reorderingBetweenLevels;
+    private long reorderingMemoryMegabytes;
     private AnalysisStrategy analysisStrategy;
 
     static Options parseOptions(String[] args) throws IOException {
@@ -46,6 +69,60 @@ class Options {
                 .withRequiredArg()
                 .defaultsTo("/opt/param-2-3-64")
                 .describedAs("Directory");
+        OptionSpec<ModelCheckerBackend> modelCheckerOption = optionParser
+                .accepts("model-checker",
+                         "The parametric model checker to be used. Can be one of: "
+                                 + "EXTERNAL (PARAM or Prism, as found at --param-path); "
+                                 + "IN_PROCESS (built-in state elimination).")
+                .withRequiredArg()
+                .ofType(ModelCheckerBackend.class)
+                .defaultsTo(ModelCheckerBackend.EXTERNAL)
+                .describedAs("EXTERNAL | IN_PROCESS");
+        OptionSpec<Integer> modelCheckerProcessesOption = optionParser
+                .accepts("model-checker-processes",
+                         "Maximum number of external model checker processes running at the same time")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(Runtime.getRuntime().availableProcessors())
+                .describedAs("Number");
+        OptionSpec<Integer> modelCheckerQueueOption = optionParser
+                .accepts("model-checker-queue",
+                         "Maximum number of model checker invocations waiting for a free process slot")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(ParamWrapper.DEFAULT_QUEUE_CAPACITY)
+                .describedAs("Number");
+        OptionSpec<ModelCheckerIO> modelCheckerIOOption = optionParser
+                .accepts("model-checker-io",
+                         "How models are handed over to the external model checker. Can be one of: "
+                                 + "FILES (files in a RAM-backed work directory, if available); "
+                                 + "NAMED_PIPES (streamed through named pipes, falling back to FILES if unsupported).")
+                .withRequiredArg()
+                .ofType(ModelCheckerIO.class)
+                .defaultsTo(ModelCheckerIO.FILES)
+                .describedAs("FILES | NAMED_PIPES");
+        OptionSpec<ModelReduction> modelReductionOption = optionParser
+                .accepts("model-reduction",
+                         "Reductions applied to models before model checking. Can be one of: "
+                                 + "NONE; "
+                                 + "BASIC (removal of unreachable states and dead ends, collapsing of single-successor chains); "
+                                 + "BISIMULATION (BASIC followed by bisimulation minimization).")
+                .withRequiredArg()
+                .ofType(ModelReduction.class)
+                .defaultsTo(ModelReduction.NONE)
+                .describedAs("NONE | BASIC | BISIMULATION");
+        OptionSpec<String> formulaCacheOption = optionParser
+                .accepts("formula-cache",
+                         "Directory of a persistent cache of reliability formulas, reused across runs (disabled if absent)")
+                .withRequiredArg()
+                .describedAs("Directory");
+        OptionSpec<Long> formulaCacheSizeOption = optionParser
+                .accepts("formula-cache-size",
+                         "Maximum size of the formula cache, after which least recently used formulas are evicted")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(256L)
+                .describedAs("Megabytes");
 
         OptionSpec<String> configurationsFileOption = optionParser
                 .accepts("configurations-file")
@@ -61,6 +138,17 @@ class Options {
         OptionSpec<Void> suppressReportOption = optionParser
                 .accepts("suppress-report",
                          "Suppress reliabilities report for all evaluated configurations");
+        OptionSpec<Integer> leastReliableOption = optionParser
+                .accepts("least-reliable",
+                         "Print the k least reliable valid configurations (feature-family-based and family-based analyses only)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("k");
+        OptionSpec<String> resultsFileOption = optionParser
+                .accepts("results-file",
+                         "Store the family-wide reliability ADD in this binary file instead of dumping it as a dot file (feature-family-based and family-based analyses only)")
+                .withRequiredArg()
+                .describedAs("File");
         OptionSpec<Void> statsEnabledOption = optionParser
                 .accepts("stats",
                          "Print profiling stats");
@@ -72,6 +160,12 @@ class Options {
                         .ofType(ConcurrencyStrategy.class)
                         .defaultsTo(ConcurrencyStrategy.PARALLEL)
                         .describedAs("PARALLEL | SEQUENTIAL");
+        OptionSpec<Integer> cofactorVariablesOption = optionParser
+                .accepts("cofactor-variables",
+                         "Number k of variables fixed so that parallel feature-family-based analyses solve expressions in 2^k independent ADD managers, with 0 <= k <= " + FeatureFamilyBasedAnalyzer.MAX_COFACTOR_VARIABLES + " (defaults to log2 of the number of processors)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("k");
         OptionSpec<PruningStrategy> pruningStrategyOption = optionParser
                 .accepts("pruning-strategy",
                          "The strategy that should be used for pruning invalid configurations. Can be one of: FM (whole feature model); NONE (no pruning)")
@@ -80,6 +174,46 @@ class Options {
                 .defaultsTo(PruningStrategy.FM)
                 .describedAs("FM | NONE");
 
+        OptionSpec<VariableOrdering> variableOrderingOption = optionParser
+                .accepts("variable-ordering",
+                         "Heuristic for ordering ADD variables. Can be one of: "
+                                 + "SIFTING (CUDD's symmetric sifting after encoding the feature model); "
+                                 + "APPEARANCE (order of appearance in the feature model); "
+                                 + "DFS (depth-first over features related by clauses and presence conditions); "
+                                 + "FORCE (FORCE heuristic over clauses and presence conditions).")
+                .withRequiredArg()
+                .ofType(VariableOrdering.class)
+                .defaultsTo(VariableOrdering.SIFTING)
+                .describedAs("SIFTING | APPEARANCE | DFS | FORCE");
+        OptionSpec<Void> persistVariableOrderOption = optionParser
+                .accepts("persist-variable-order",
+                         "Save the final variable order next to the feature model and start from it on later runs (it is re-tuned in the background if the feature model changed)");
+
+        OptionSpec<ReorderingMethod> reorderingMethodOption = optionParser
+                .accepts("reordering-method",
+                         "Heuristic used whenever variables are dynamically reordered")
+                .withRequiredArg()
+                .ofType(ReorderingMethod.class)
+                .defaultsTo(ReorderingMethod.SYMMETRIC_SIFT)
+                .describedAs("SIFT | SYMMETRIC_SIFT | WINDOW | ANNEALING");
+        OptionSpec<Double> reorderOnGrowthOption = optionParser
+                .accepts("reorder-on-growth",
+                         "Reorder variables whenever the number of ADD nodes grows by this factor since the last reordering (disabled if absent)")
+                .withRequiredArg()
+                .ofType(Double.class)
+                .defaultsTo(0.0)
+                .describedAs("Factor");
+        OptionSpec<Void> reorderBetweenLevelsOption = optionParser
+                .accepts("reorder-between-levels",
+                         "Reorder variables after solving the expressions of each level of the RDG");
+        OptionSpec<Long> reorderOnMemoryOption = optionParser
+                .accepts("reorder-on-memory",
+                         "Reorder variables whenever the ADD manager uses more than this amount of memory, which then doubles (disabled if absent)")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(0L)
+                .describedAs("Megabytes");
+
         OptionSpec<AnalysisStrategy> analysisStrategyOption = optionParser
                 .accepts("analysis-strategy",
                          "The strategy that should be used for analysis. Can be one of: "
@@ -107,13 +241,34 @@ class Options {
         result.featureModelFilePath = options.valueOf(featureModelOption);
         result.umlModelsFilePath = options.valueOf(umlModelsOption);
         result.paramPath = options.valueOf(paramPathOption);
+        result.modelCheckerBackend = options.valueOf(modelCheckerOption);
+        result.modelCheckerProcesses = options.valueOf(modelCheckerProcessesOption);
+        result.modelCheckerQueueCapacity = options.valueOf(modelCheckerQueueOption);
+        result.modelCheckerIO = options.valueOf(modelCheckerIOOption);
+        result.modelReduction = options.valueOf(modelReductionOption);
+        result.formulaCacheDirectory = options.valueOf(formulaCacheOption);
+        result.formulaCacheSizeMegabytes = options.valueOf(formulaCacheSizeOption);
         result.configuration = options.valueOf(configurationOption);
         result.configurationsFilePath = options.valueOf(configurationsFileOption);
         result.printAllConfigurations = options.has(allConfigurationsOption);
         result.suppressReport = options.has(suppressReportOption);
+        result.leastReliable = options.valueOf(leastReliableOption);
+        result.resultsFilePath = options.valueOf(resultsFileOption);
         result.statsEnabled = options.has(statsEnabledOption);
         result.concurrencyStrategy = options.valueOf(concurrencyStrategyOption);
+        result.cofactorVariables = options.valueOf(cofactorVariablesOption);
+        if (result.cofactorVariables != null
+                && (result.cofactorVariables < 0 || result.cofactorVariables > FeatureFamilyBasedAnalyzer.MAX_COFACTOR_VARIABLES)) {
+            throw new IllegalArgumentException("--cofactor-variables must be between 0 and "
+                    + FeatureFamilyBasedAnalyzer.MAX_COFACTOR_VARIABLES);
+        }
         result.pruningStrategy = options.valueOf(pruningStrategyOption);
+        result.variableOrdering = options.valueOf(variableOrderingOption);
+        result.persistVariableOrder = options.has(persistVariableOrderOption);
+        result.reorderingMethod = options.valueOf(reorderingMethodOption);
+        result.reorderingGrowthFactor = options.valueOf(reorderOnGrowthOption);
+        result.reorderingBetweenLevels = options.has(reorderBetweenLevelsOption);
+        result.reorderingMemoryMegabytes = options.valueOf(reorderOnMemoryOption);
         result.analysisStrategy = options.valueOf(analysisStrategyOption);
 
         return result;
@@ -131,6 +286,38 @@ class Options {
         return paramPath;
     }
 
+    public ModelCheckerBackend getModelCheckerBackend() {
+        return modelCheckerBackend;
+    }
+
+    public int getModelCheckerProcesses() {
+        return modelCheckerProcesses;
+    }
+
+    public int getModelCheckerQueueCapacity() {
+        return modelCheckerQueueCapacity;
+    }
+
+    public ModelCheckerIO getModelCheckerIO() {
+        return modelCheckerIO;
+    }
+
+    public ModelReduction getModelReduction() {
+        return modelReduction;
+    }
+
+    public boolean hasFormulaCacheEnabled() {
+        return formulaCacheDirectory != null;
+    }
+
+    public String getFormulaCacheDirectory() {
+        return formulaCacheDirectory;
+    }
+
+    public long getFormulaCacheSizeMegabytes() {
+        return formulaCacheSizeMegabytes;
+    }
+
     public boolean hasStatsEnabled() {
         return statsEnabled;
     }
@@ -143,6 +330,18 @@ class Options {
         return suppressReport;
     }
 
+    public boolean hasLeastReliable() {
+        return leastReliable != null;
+    }
+
+    public int getLeastReliable() {
+        return leastReliable;
+    }
+
+    public String getResultsFilePath() {
+        return resultsFilePath;
+    }
+
     public String getConfiguration() {
         return configuration;
     }
@@ -155,10 +354,42 @@ class Options {
         return concurrencyStrategy;
     }
 
+    public boolean hasCofactorVariables() {
+        return cofactorVariables != null;
+    }
+
+    public int getCofactorVariables() {
+        return cofactorVariables;
+    }
+
     public PruningStrategy getPruningStrategy() {
         return pruningStrategy;
     }
 
+    public VariableOrdering getVariableOrdering() {
+        return variableOrdering;
+    }
+
+    public boolean hasPersistVariableOrder() {
+        return persistVariableOrder;
+    }
+
+    public ReorderingMethod getReorderingMethod() {
+        return reorderingMethod;
+    }
+
+    public double getReorderingGrowthFactor() {
+        return reorderingGrowthFactor;
+    }
+
+    public boolean hasReorderingBetweenLevels() {
+        return reorderingBetweenLevels;
+    }
+
+    public long getReorderingMemoryMegabytes() {
+        return reorderingMemoryMegabytes;
+    }
+
     public AnalysisStrategy getAnalysisStrategy() {
         return analysisStrategy;
     }
@@ -4,6 +4,8 @@ import java.io.PrintStream;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import paramwrapper.IModelCollector;
 
@@ -15,6 +17,13 @@ public class ModelCollector implements IModelCollector {
 
     private List<Model> models = Collections.synchronizedList(new LinkedList<Model>());
     private List<Double> times = Collections.synchronizedList(new LinkedList<Double>());
+    private AtomicLong originalStates = new AtomicLong();
+    private AtomicLong reducedStates = new AtomicLong();
+    private AtomicInteger memoHits = new AtomicInteger();
+    private AtomicInteger memoMisses = new AtomicInteger();
+    private List<Integer> queueDepths = Collections.synchronizedList(new LinkedList<Integer>());
+    private List<Double> queuedTimes = Collections.synchronizedList(new LinkedList<Double>());
+    private List<Double> processTimes = Collections.synchronizedList(new LinkedList<Double>());
 
     @Override
     public void collectModel(int variables, int states) {
@@ -29,6 +38,33 @@ public class ModelCollector implements IModelCollector {
         times.add(elapsedTimeNanos/1E+6);
     }
 
+    @Override
+    public void collectModelReduction(int originalStates, int reducedStates) {
+        this.originalStates.addAndGet(originalStates);
+        this.reducedStates.addAndGet(reducedStates);
+    }
+
+    @Override
+    public void collectMemoHit() {
+        memoHits.incrementAndGet();
+    }
+
+    @Override
+    public void collectMemoMiss() {
+        memoMisses.incrementAndGet();
+    }
+
+    @Override
+    public void collectProcessQueueDepth(int depth) {
+        queueDepths.add(depth);
+    }
+
+    @Override
+    public void collectProcessLatency(long queuedTimeNanos, long runningTimeNanos) {
+        queuedTimes.add(queuedTimeNanos/1E+6);
+        processTimes.add(runningTimeNanos/1E+6);
+    }
+
     @Override
     public void printStats(PrintStream out) {
         int maxVars = 0;
@@ -65,6 +101,24 @@ public class ModelCollector implements IModelCollector {
         synchronized (times) {
             out.println("All model checking times (ms): " + times);
         }
+        if (originalStates.get() > 0) {
+            out.println("Model reduction: " + originalStates.get() + " states reduced to " + reducedStates.get());
+        }
+        out.println("Memoized model checking: " + memoHits.get() + " hits | " + memoMisses.get() + " misses");
+
+        synchronized (queueDepths) {
+            if (!queueDepths.isEmpty()) {
+                out.println("Maximum model checker queue depth: " + Collections.max(queueDepths));
+                out.println("Average model checker queue depth: "
+                        + queueDepths.stream().mapToInt(Integer::intValue).average().getAsDouble());
+            }
+        }
+        synchronized (queuedTimes) {
+            out.println("All model checker queueing times (ms): " + queuedTimes);
+        }
+        synchronized (processTimes) {
+            out.println("All model checker process times (ms): " + processTimes);
+        }
     }
 
 }
@@ -1,26 +1,60 @@
 
+import jadd.ADDCofactorTest;
 import jadd.ADDConfigurationsTest;
+import jadd.ADDReferencesTest;
+import jadd.CompiledADDTest;
+import jadd.ReorderingTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import paramwrapper.FDTMCToParamTest;
+import paramwrapper.FormulaCacheTest;
+import paramwrapper.MemoizationTest;
+import paramwrapper.ModelReductionTest;
+import paramwrapper.NumericFastPathTest;
+import paramwrapper.ProcessSchedulerTest;
 import paramwrapper.ReliabilityFormulaTest;
+import paramwrapper.StateEliminationTest;
 import tool.AnalyzerTest;
+import tool.ConfigurationTest;
+import tool.FeatureModelReductionTest;
 import tool.RDGNodeTest;
+import tool.analyzers.ADDReliabilityResultsTest;
+import tool.analyzers.buildingblocks.PresenceConditionCacheTest;
+import tool.analyzers.buildingblocks.PresenceMatrixTest;
+import tool.ordering.VariableOrderingTest;
 import expressionsolver.ExpressionSolverTest;
+import fdtmc.CompactFDTMCTest;
 import fdtmc.FDTMCTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
     FDTMCTest.class,
+    CompactFDTMCTest.class,
     FDTMCToParamTest.class,
     ReliabilityFormulaTest.class,
+    StateEliminationTest.class,
+    FormulaCacheTest.class,
+    MemoizationTest.class,
+    ModelReductionTest.class,
+    NumericFastPathTest.class,
+    ProcessSchedulerTest.class,
     ExpressionSolverTest.class,
     AnalyzerTest.class,
     RDGNodeTest.class,
-    ADDConfigurationsTest.class
+    ConfigurationTest.class,
+    FeatureModelReductionTest.class,
+    ADDReliabilityResultsTest.class,
+    PresenceConditionCacheTest.class,
+    PresenceMatrixTest.class,
+    ADDConfigurationsTest.class,
+    ADDReferencesTest.class,
+    ADDCofactorTest.class,
+    CompiledADDTest.class,
+    ReorderingTest.class,
+    VariableOrderingTest.class
 })
 public class AllTests {
 
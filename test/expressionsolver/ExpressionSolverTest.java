@@ -8,6 +8,7 @@ import jadd.JADD;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.stream.IntStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -227,4 +228,34 @@ public class ExpressionSolverTest {
         assertEquals(24.0, result, 1E+10);
     }
 
+    @Test
+    public void testCompiledExpressionsAgreeWithParsedOnes() {
+        String formula = "-a*(1 - b)^2 + a/(b + c) - 0.5*c";
+        Expression<Double> parsed = solver.parseExpression(formula);
+        CompiledExpression compiled = solver.compileExpression(formula);
+        assertEquals(Arrays.asList("a", "b", "c"), compiled.getVariables());
+
+        long mismatches = IntStream.range(1, 400).parallel()
+                .filter(i -> {
+                    double[] values = {i, 1.0/i, i % 7};
+                    HashMap<String, Double> interpretation = new HashMap<String, Double>();
+                    interpretation.put("a", values[0]);
+                    interpretation.put("b", values[1]);
+                    interpretation.put("c", values[2]);
+                    double expected;
+                    synchronized (parsed) {
+                        expected = parsed.solve(interpretation);
+                    }
+                    return compiled.solve(values) != expected
+                            || compiled.solve(interpretation) != expected;
+                })
+                .count();
+        assertEquals(0, mismatches);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompilingMalformedExpression() {
+        solver.compileExpression("a*(1 - b");
+    }
+
 }
@@ -0,0 +1,113 @@
+package fdtmc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactFDTMCTest {
+
+	FDTMC root;
+	FDTMC fragmentX;
+	FDTMC fragmentY;
+
+	@Before
+	public void setUp() throws Exception {
+		root = new FDTMC();
+		root.setVariableName("r");
+		State init = root.createInitialState();
+		State middle = root.createState("middle");
+		State end = root.createState();
+		State success = root.createSuccessState();
+		State error = root.createErrorState();
+		root.createTransition(init, middle, "a", "0.9");
+		root.createTransition(init, error, "b", "0.1");
+		root.createInterface("x", middle, end, error);
+		root.createInterface("y", end, success, error);
+		root.createInterface("x", success, success, error);
+
+		fragmentX = new FDTMC();
+		fragmentX.setVariableName("fx");
+		State xInit = fragmentX.createInitialState();
+		State xSuccess = fragmentX.createSuccessState();
+		State xError = fragmentX.createErrorState();
+		fragmentX.createTransition(xInit, xSuccess, "c", "rX");
+		fragmentX.createTransition(xInit, xError, "d", "1-rX");
+
+		fragmentY = new FDTMC();
+		fragmentY.setVariableName("fy");
+		State yInit = fragmentY.createInitialState();
+		State ySuccess = fragmentY.createSuccessState();
+		fragmentY.createTransition(yInit, ySuccess, "e", "1");
+	}
+
+	@Test
+	public void testRoundTrip() {
+		CompactFDTMC compact = root.toCompact();
+		Assert.assertEquals(5, compact.getNumberOfStates());
+		Assert.assertEquals(0, compact.getInitialState());
+		Assert.assertEquals(3, compact.getSuccessState());
+		Assert.assertEquals(4, compact.getErrorState());
+		Assert.assertEquals(1, compact.getStateByLabel("middle"));
+		Assert.assertEquals(3, compact.getNumberOfInterfaces());
+
+		FDTMC converted = FDTMC.fromCompact(compact);
+		Assert.assertEquals(root, converted);
+		Assert.assertEquals(root.toString(), converted.toString());
+	}
+
+	@Test
+	public void testInlineIsEquivalentToFDTMCInline() {
+		Map<String, FDTMC> models = new HashMap<String, FDTMC>();
+		models.put("x", fragmentX);
+		models.put("y", fragmentY);
+		Map<String, CompactFDTMC> compactModels = new HashMap<String, CompactFDTMC>();
+		compactModels.put("x", fragmentX.toCompact());
+		compactModels.put("y", fragmentY.toCompact());
+
+		FDTMC expected = root.inline(models);
+		FDTMC inlined = FDTMC.fromCompact(root.toCompact().inline(compactModels));
+		Assert.assertEquals(expected, inlined);
+		Assert.assertEquals(expected.toString(), inlined.toString());
+	}
+
+	@Test
+	public void testDecoratedWithPresenceIsEquivalentToFDTMCDecoration() {
+		FDTMC expected = root.decoratedWithPresence("fR");
+		FDTMC decorated = FDTMC.fromCompact(root.toCompact().decoratedWithPresence("fR"));
+		Assert.assertEquals(expected, decorated);
+		Assert.assertEquals(expected.toString(), decorated.toString());
+
+		Map<String, FDTMC> models = new HashMap<String, FDTMC>();
+		models.put("x", fragmentX);
+		Map<String, CompactFDTMC> compactModels = new HashMap<String, CompactFDTMC>();
+		compactModels.put("x", fragmentX.toCompact());
+		Assert.assertEquals(expected.inline(models).toString(),
+				FDTMC.fromCompact(root.toCompact().decoratedWithPresence("fR").inline(compactModels)).toString());
+	}
+
+	@Test
+	public void testIfThenElse() {
+		CompactFDTMC ifPresent = fragmentY.toCompact();
+		Assert.assertEquals(FDTMC.fromCompact(ifPresent.decoratedWithPresence("fR")).toString(),
+				FDTMC.fromCompact(CompactFDTMC.ifThenElse("fR", ifPresent, new FDTMC().toCompact())).toString());
+
+		CompactFDTMC ifAbsent = fragmentX.toCompact();
+		CompactFDTMC alternative = CompactFDTMC.ifThenElse("fR", ifPresent, ifAbsent);
+		Assert.assertEquals(ifPresent.getNumberOfStates() + ifAbsent.getNumberOfStates() + 2,
+				alternative.getNumberOfStates());
+		int initial = alternative.getInitialState();
+		int absent = alternative.getTarget(alternative.getFirstTransition(initial) + 1);
+		Assert.assertEquals("1-fR", alternative.getProbability(alternative.getFirstTransition(initial) + 1));
+		// The absent chain leads to the overall success and (new) error states.
+		int absentSuccess = alternative.getTarget(alternative.getFirstTransition(absent));
+		int absentError = alternative.getTarget(alternative.getFirstTransition(absent) + 1);
+		Assert.assertEquals(alternative.getSuccessState(),
+				alternative.getTarget(alternative.getFirstTransition(absentSuccess)));
+		Assert.assertEquals(alternative.getErrorState(),
+				alternative.getTarget(alternative.getFirstTransition(absentError)));
+	}
+
+}
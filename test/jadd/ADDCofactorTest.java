@@ -0,0 +1,44 @@
+package jadd;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ADDCofactorTest {
+
+    JADD jadd;
+    ADD function;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        // 0.5 if A, 0.25 if B (and not A), 0.1 otherwise.
+        function = a.ifThenElse(jadd.makeConstant(0.5),
+                                b.ifThenElse(jadd.makeConstant(0.25), 0.1));
+    }
+
+    @Test
+    public void testCofactorFixesVariables() throws UnrecognizedVariableException {
+        ADD notA = jadd.getVariable("A").complement();
+        ADD cofactor = function.cofactor(notA);
+        Assert.assertEquals(0.25, cofactor.eval(new String[]{"A", "B"}), 1E-12);
+        Assert.assertEquals(0.1, cofactor.eval(new String[]{"A"}), 1E-12);
+        Assert.assertFalse(cofactor.getVariables().contains("A"));
+    }
+
+    @Test
+    public void testCopyToAnotherManager() throws UnrecognizedVariableException {
+        try (JADD other = new JADD()) {
+            // Variables are created in the reverse order.
+            other.getVariable("B");
+            ADD copy = function.copyTo(other);
+            Assert.assertEquals(0.5, copy.eval(new String[]{"A", "B"}), 1E-12);
+            Assert.assertEquals(0.25, copy.eval(new String[]{"B"}), 1E-12);
+            Assert.assertEquals(0.1, copy.eval(new String[]{}), 1E-12);
+            Assert.assertEquals(function, copy.copyTo(jadd));
+        }
+    }
+
+}
@@ -1,8 +1,9 @@
 package jadd;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -10,25 +11,30 @@ import org.junit.Test;
 
 public class ADDConfigurationsTest {
 
+    JADD jadd;
+
     @Before
     public void setUp() throws Exception {
+        jadd = new JADD();
     }
 
     @Test
     public void testConfigurationsWithoutDontCares() {
-        String[] configArray = {"A", "B", "C"};
-        List<String> config = Arrays.asList(configArray);
-        Collection<List<String>> expanded = ADD.expandDontCares(config);
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        Set<List<String>> expanded = configurationsOf(a.times(b).times(c));
 
         Assert.assertEquals(1, expanded.size());
-        Assert.assertTrue(expanded.contains(config));
+        Assert.assertTrue(expanded.contains(Arrays.asList(new String[]{"A", "B", "C"})));
     }
 
     @Test
     public void testConfigurationsWithDontCareAtStart() {
-        String[] configArray = {"(A)", "B", "C"};
-        List<String> config = Arrays.asList(configArray);
-        Collection<List<String>> expanded = ADD.expandDontCares(config);
+        jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        Set<List<String>> expanded = configurationsOf(b.times(c));
 
         Assert.assertEquals(2, expanded.size());
         Assert.assertTrue(expanded.contains(Arrays.asList(new String[]{"A", "B", "C"})));
@@ -37,9 +43,10 @@ public class ADDConfigurationsTest {
 
     @Test
     public void testConfigurationsWithDontCareAtEnd() {
-        String[] configArray = {"A", "B", "(C)"};
-        List<String> config = Arrays.asList(configArray);
-        Collection<List<String>> expanded = ADD.expandDontCares(config);
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        jadd.getVariable("C");
+        Set<List<String>> expanded = configurationsOf(a.times(b));
 
         Assert.assertEquals(2, expanded.size());
         Assert.assertTrue(expanded.contains(Arrays.asList(new String[]{"A", "B", "C"})));
@@ -48,9 +55,11 @@ public class ADDConfigurationsTest {
 
     @Test
     public void testConfigurationsWithDontCares() {
-        String[] configArray = {"A", "(B)", "C", "(D)"};
-        List<String> config = Arrays.asList(configArray);
-        Collection<List<String>> expanded = ADD.expandDontCares(config);
+        ADD a = jadd.getVariable("A");
+        jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        jadd.getVariable("D");
+        Set<List<String>> expanded = configurationsOf(a.times(c));
 
         Assert.assertEquals(4, expanded.size());
         Assert.assertTrue(expanded.contains(Arrays.asList(new String[]{"A", "B", "C", "D"})));
@@ -59,4 +68,15 @@ public class ADDConfigurationsTest {
         Assert.assertTrue(expanded.contains(Arrays.asList(new String[]{"A", "C"})));
     }
 
+    /**
+     * @return the configurations satisfying {@code function}, each one
+     *      given by the names of its present variables.
+     */
+    private static Set<List<String>> configurationsOf(ADD function) {
+        CompiledADD compiled = function.compile();
+        return compiled.configurations()
+                .map(compiled::toNames)
+                .collect(Collectors.toSet());
+    }
+
 }
@@ -0,0 +1,61 @@
+package jadd;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ADDReferencesTest {
+
+    JADD jadd;
+    ADD a;
+    ADD b;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        a = jadd.getVariable("A");
+        b = jadd.getVariable("B");
+    }
+
+    @Test
+    public void testArenaReleasesIntermediateADDs() throws UnrecognizedVariableException {
+        int deadBefore = jadd.getDeadNodesCount();
+        ADD kept;
+        try (ADDArena arena = jadd.openArena()) {
+            ADD intermediate = a.times(jadd.makeConstant(0.5));
+            kept = arena.keep(intermediate.plus(b.times(jadd.makeConstant(0.25))));
+            Assert.assertEquals(4, arena.size());
+        }
+        Assert.assertTrue(jadd.getDeadNodesCount() > deadBefore);
+        Assert.assertEquals(0.75, kept.eval(new String[]{"A", "B"}), 1E-12);
+        Assert.assertEquals(0.5, kept.eval(new String[]{"A"}), 1E-12);
+    }
+
+    @Test
+    public void testNestedArenasHandKeptADDsOver() throws UnrecognizedVariableException {
+        ADD kept;
+        try (ADDArena outer = jadd.openArena()) {
+            try (ADDArena inner = jadd.openArena()) {
+                kept = inner.keep(a.plus(b));
+            }
+            Assert.assertEquals(1, outer.size());
+            outer.keep(kept);
+        }
+        Assert.assertEquals(2, kept.eval(new String[]{"A", "B"}), 1E-12);
+    }
+
+    @Test
+    public void testClosingIsIdempotentAndSparesVariables() throws UnrecognizedVariableException {
+        ADD sum = a.plus(b);
+        int deadBefore = jadd.getDeadNodesCount();
+        sum.close();
+        int deadAfter = jadd.getDeadNodesCount();
+        Assert.assertTrue(deadAfter > deadBefore);
+        sum.close();
+        Assert.assertEquals(deadAfter, jadd.getDeadNodesCount());
+
+        a.close();
+        Assert.assertEquals(1, jadd.getVariable("A").eval(new String[]{"A"}), 1E-12);
+    }
+
+}
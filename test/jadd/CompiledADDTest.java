@@ -0,0 +1,101 @@
+package jadd;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledADDTest {
+
+    private static final String[] VARIABLES = {"A", "B", "C"};
+
+    JADD jadd;
+    ADD function;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        // A ? (B ? 0.9 : 0.5) : (C ? 0.25 : 0)
+        function = a.ifThenElse(b.ifThenElse(jadd.makeConstant(0.9), jadd.makeConstant(0.5)),
+                                c.times(jadd.makeConstant(0.25)));
+    }
+
+    @Test
+    public void testCompiledEvaluationMatchesADD() throws UnrecognizedVariableException {
+        CompiledADD compiled = function.compile();
+        Assert.assertEquals(3, compiled.getNodeCount());
+        for (int mask = 0; mask < (1 << VARIABLES.length); mask++) {
+            String[] configuration = configuration(mask);
+            Assert.assertEquals(function.eval(configuration), compiled.eval(configuration), 0);
+        }
+    }
+
+    @Test
+    public void testCompiledADDOutlivesReordering() throws UnrecognizedVariableException {
+        CompiledADD compiled = function.compile();
+        jadd.setVariableOrder(new String[]{"C", "B", "A"});
+        Assert.assertEquals(0.5, compiled.eval(new String[]{"A", "C"}), 0);
+        Assert.assertEquals(0.25, compiled.eval(compiled.toBitSet(new String[]{"C"})), 0);
+    }
+
+    @Test
+    public void testConfigurationsAreEnumeratedExactly() throws UnrecognizedVariableException {
+        // D is a "don't care" for every configuration.
+        jadd.getVariable("D");
+        CompiledADD compiled = function.compile();
+        Set<BitSet> expected = new HashSet<BitSet>();
+        for (int mask = 0; mask < (1 << (VARIABLES.length + 1)); mask++) {
+            BitSet configuration = BitSet.valueOf(new long[]{mask});
+            if (compiled.eval(configuration) != 0) {
+                expected.add(configuration);
+            }
+        }
+        Assert.assertEquals(12, expected.size());
+        Assert.assertEquals(12, compiled.countConfigurations());
+        Assert.assertEquals(12, compiled.configurations().spliterator().getExactSizeIfKnown());
+
+        List<BitSet> enumerated = compiled.configurations().collect(Collectors.toList());
+        Assert.assertEquals(expected, new HashSet<BitSet>(enumerated));
+        Assert.assertEquals(12, enumerated.size());
+    }
+
+    @Test
+    public void testSplitsPartitionConfigurations() {
+        CompiledADD compiled = function.compile();
+        Spliterator<BitSet> suffix = compiled.configurations().spliterator();
+        Spliterator<BitSet> prefix = suffix.trySplit();
+        Assert.assertNotNull(prefix);
+        Assert.assertEquals(6, prefix.estimateSize() + suffix.estimateSize());
+
+        Set<BitSet> seen = new HashSet<BitSet>();
+        prefix.forEachRemaining(seen::add);
+        suffix.forEachRemaining(seen::add);
+        Assert.assertEquals(6, seen.size());
+    }
+
+    @Test(expected = UnrecognizedVariableException.class)
+    public void testUnknownVariablesAreRejected() throws UnrecognizedVariableException {
+        function.compile().eval(new String[]{"A", "D"});
+    }
+
+    private static String[] configuration(int mask) {
+        List<String> present = new ArrayList<String>();
+        for (int i = 0; i < VARIABLES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                present.add(VARIABLES[i]);
+            }
+        }
+        return present.toArray(new String[present.size()]);
+    }
+
+}
@@ -0,0 +1,70 @@
+package jadd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReorderingTest {
+
+    JADD jadd;
+    List<String> events;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        events = new ArrayList<String>();
+        jadd.setReorderingListener(new ReorderingListener() {
+            @Override
+            public void reorderingStarted(ReorderingMethod method) {
+                events.add("start " + method);
+            }
+
+            @Override
+            public void reorderingFinished(ReorderingMethod method) {
+                events.add("finish " + method);
+            }
+        });
+    }
+
+    @Test
+    public void testLevelsTriggerReorderingOnlyIfPolicySaysSo() throws UnrecognizedVariableException {
+        ADD f = jadd.getVariable("A").times(jadd.getVariable("B")).plus(jadd.getVariable("C"));
+        jadd.levelCompleted();
+        Assert.assertTrue(events.isEmpty());
+
+        jadd.setReorderingPolicy(new ReorderingPolicy(ReorderingMethod.WINDOW, 0, true, 0));
+        jadd.levelCompleted();
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("start WINDOW", events.get(0));
+        Assert.assertEquals(2, f.eval(new String[]{"A", "B", "C"}), 1E-12);
+    }
+
+    @Test
+    public void testGrowthTriggersReordering() throws UnrecognizedVariableException {
+        jadd.setReorderingPolicy(new ReorderingPolicy(ReorderingMethod.SIFT, 1.5, false, 0));
+        // Interleaved products blow up under the order of creation.
+        int n = 12;
+        ADD f = jadd.makeConstant(0);
+        for (int i = 0; i < n; i++) {
+            jadd.getVariable("x" + i);
+        }
+        for (int i = 0; i < n; i++) {
+            jadd.getVariable("y" + i);
+        }
+        for (int i = 0; i < n; i++) {
+            f = f.or(jadd.getVariable("x" + i).and(jadd.getVariable("y" + i)));
+        }
+        Assert.assertFalse(events.isEmpty());
+        Assert.assertEquals(1, f.eval(new String[]{"x3", "y3"}), 1E-12);
+        Assert.assertEquals(0, f.eval(new String[]{"x3", "y4"}), 1E-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGrowthFactorMustBeGreaterThanOne() {
+        new ReorderingPolicy(ReorderingMethod.SIFT, 0.5, false, 0);
+    }
+
+}
@@ -2,6 +2,7 @@ package paramwrapper;
 
 import static org.junit.Assert.*;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -19,6 +20,11 @@ public class FDTMCToParamTest {
 		paramWrapper = new ParamWrapper(PARAM_PATH);
 	}
 
+	@After
+	public void tearDown() {
+		paramWrapper.close();
+	}
+
 	@Test
 	public void testSingletonFDTMC() {
 		FDTMC singletonFDTMC = new FDTMC();
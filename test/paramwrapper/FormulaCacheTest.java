@@ -0,0 +1,99 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class FormulaCacheTest {
+
+	Path cacheDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDirectory = Files.createTempDirectory("formula-cache");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File entry : cacheDirectory.toFile().listFiles()) {
+			entry.delete();
+		}
+		Files.delete(cacheDirectory);
+	}
+
+	@Test
+	public void testStructuralHashIgnoresStateVariable() {
+		FDTMC fdtmc1 = createFDTMC("sA", "rFail");
+		FDTMC fdtmc2 = createFDTMC("sB", "rFail");
+		FDTMC fdtmc3 = createFDTMC("sA", "rOther");
+
+		String hash1 = new ParamModel(fdtmc1).getStructuralHash();
+		assertEquals(hash1, new ParamModel(fdtmc2).getStructuralHash());
+		assertNotEquals(hash1, new ParamModel(fdtmc3).getStructuralHash());
+	}
+
+	@Test
+	public void testCachedFormulaIsReused() {
+		CountingModelChecker counter = new CountingModelChecker();
+		FormulaCache cache = new FormulaCache(cacheDirectory, 1024*1024);
+		ParametricModelChecker modelChecker = new CachingModelChecker(counter, cache);
+
+		String formula1 = modelChecker.getReliability(createFDTMC("sA", "rFail"));
+		String formula2 = modelChecker.getReliability(createFDTMC("sB", "rFail"));
+		assertEquals("-1*rFail+1", formula1);
+		assertEquals(formula1, formula2);
+		assertEquals(1, counter.invocations);
+
+		// A fresh cache over the same directory models a later run.
+		ParametricModelChecker laterRun = new CachingModelChecker(counter, new FormulaCache(cacheDirectory, 1024*1024));
+		assertEquals(formula1, laterRun.getReliability(createFDTMC("sC", "rFail")));
+		assertEquals(1, counter.invocations);
+	}
+
+	@Test
+	public void testEvictionRespectsSizeBound() throws Exception {
+		FormulaCache cache = new FormulaCache(cacheDirectory, 10);
+		cache.put("a", "1*x");
+		cache.put("b", "1*y");
+		cache.put("c", "1*z+1*w");
+
+		long totalSize = 0;
+		for (File entry : cacheDirectory.toFile().listFiles()) {
+			totalSize += entry.length();
+		}
+		assertTrue(totalSize <= 10);
+		assertEquals("1*z+1*w", cache.get("c"));
+	}
+
+	private FDTMC createFDTMC(String variableName, String parameter) {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName(variableName);
+		State s0 = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createTransition(s0, success, null, "1-" + parameter);
+		fdtmc.createTransition(s0, error, null, parameter);
+		return fdtmc;
+	}
+
+	private static class CountingModelChecker implements ParametricModelChecker {
+		int invocations = 0;
+		ParametricModelChecker modelChecker = new StateEliminationModelChecker();
+
+		@Override
+		public String getReliability(FDTMC fdtmc) {
+			invocations++;
+			return modelChecker.getReliability(fdtmc);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class MemoizationTest {
+
+	StateEliminationModelChecker stateElimination;
+	int invocations;
+	MemoizingModelChecker modelChecker;
+
+	@Before
+	public void setUp() throws Exception {
+		stateElimination = new StateEliminationModelChecker();
+		invocations = 0;
+		modelChecker = new MemoizingModelChecker(fdtmc -> {
+			invocations++;
+			return stateElimination.getReliability(fdtmc);
+		});
+	}
+
+	@Test
+	public void testIsomorphicModelsAreCheckedOnce() {
+		FDTMC fdtmc1 = createSequence("sA", "n1", "n2", false);
+		FDTMC fdtmc2 = createSequence("sB", "n7", "n3", true);
+
+		String formula1 = modelChecker.getReliability(fdtmc1);
+		String formula2 = modelChecker.getReliability(fdtmc2);
+
+		assertEquals(1, invocations);
+		assertEquals("(9*n1*n2)/(10)", formula1);
+		// Terms keep the order of the memoized formula.
+		assertEquals("(9*n7*n3)/(10)", formula2);
+	}
+
+	@Test
+	public void testSwappedParameters() {
+		FDTMC fdtmc1 = createSequence("sA", "x", "y", false);
+		FDTMC fdtmc2 = createSequence("sB", "y", "x", false);
+
+		modelChecker.getReliability(fdtmc1);
+		String formula2 = modelChecker.getReliability(fdtmc2);
+
+		assertEquals(1, invocations);
+		assertEquals("(9*y*x)/(10)", formula2);
+	}
+
+	@Test
+	public void testDifferentModelsAreNotConfused() {
+		FDTMC fdtmc1 = createSequence("sA", "n1", "n2", false);
+		FDTMC fdtmc2 = createSequence("sB", "n1", "n1", false);
+
+		modelChecker.getReliability(fdtmc1);
+		modelChecker.getReliability(fdtmc2);
+
+		assertEquals(2, invocations);
+	}
+
+	/**
+	 * Two interfaces in a row, with a 0.9 reliable step between them.
+	 * States may be created in reverse order, so that their indices differ.
+	 */
+	private FDTMC createSequence(String variableName, String firstInterface, String secondInterface, boolean reverseCreation) {
+		FDTMC fdtmc = new FDTMC();
+		fdtmc.setVariableName(variableName);
+		State s0 = fdtmc.createInitialState();
+		State s1, s2;
+		if (reverseCreation) {
+			s2 = fdtmc.createState();
+			s1 = fdtmc.createState();
+		} else {
+			s1 = fdtmc.createState();
+			s2 = fdtmc.createState();
+		}
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createInterface(firstInterface, s0, s1, error);
+		fdtmc.createTransition(s1, s2, null, "0.9");
+		fdtmc.createTransition(s1, error, null, "0.1");
+		fdtmc.createInterface(secondInterface, s2, success, error);
+		return fdtmc;
+	}
+
+}
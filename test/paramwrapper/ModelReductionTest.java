@@ -0,0 +1,106 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.CompactFDTMC;
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class ModelReductionTest {
+
+	StateEliminationModelChecker stateElimination;
+	CompactFDTMC lastChecked;
+	FDTMC fdtmc;
+
+	@Before
+	public void setUp() throws Exception {
+		stateElimination = new StateEliminationModelChecker();
+		fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+	}
+
+	private ParametricModelChecker reducing(ModelReduction reduction) {
+		return new ReducingModelChecker(new ParametricModelChecker() {
+			@Override
+			public String getReliability(FDTMC model) {
+				return getReliability(model.toCompact());
+			}
+
+			@Override
+			public String getReliability(CompactFDTMC model) {
+				lastChecked = model;
+				return stateElimination.getReliability(model);
+			}
+		}, reduction);
+	}
+
+	@Test
+	public void testChainsAreCollapsed() {
+		State s0 = fdtmc.createInitialState();
+		State s1 = fdtmc.createState();
+		State s2 = fdtmc.createState();
+		State s3 = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		State unreachable = fdtmc.createState();
+		fdtmc.createTransition(s0, s1, "", "rA");
+		fdtmc.createTransition(s0, error, "", "1-rA");
+		fdtmc.createTransition(s1, s2, "", "1");
+		fdtmc.createTransition(s2, s3, "", "0.9");
+		fdtmc.createTransition(s3, success, "", "rB");
+		fdtmc.createTransition(s3, error, "", "1-rB");
+		fdtmc.createTransition(unreachable, success, "", "1");
+
+		String expected = stateElimination.getReliability(fdtmc);
+		assertEquals(expected, reducing(ModelReduction.BASIC).getReliability(fdtmc));
+		// s1 and s2 are collapsed and the unreachable state is removed.
+		assertEquals(4, lastChecked.getNumberOfStates());
+		assertEquals(new ParamModel(fdtmc).getParameters(), new ParamModel(lastChecked).getParameters());
+	}
+
+	@Test
+	public void testDeadEndsAreMergedIntoSink() {
+		State s0 = fdtmc.createInitialState();
+		State s1 = fdtmc.createState();
+		State dead1 = fdtmc.createState();
+		State dead2 = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		fdtmc.createTransition(s0, s1, "", "0.5");
+		fdtmc.createTransition(s0, dead1, "", "0.5");
+		fdtmc.createTransition(s1, success, "", "x");
+		fdtmc.createTransition(s1, dead2, "", "1-x");
+		fdtmc.createTransition(s1, s1, "", "0");
+		fdtmc.createTransition(dead1, dead2, "", "1");
+		fdtmc.createTransition(dead2, dead1, "", "1");
+
+		String expected = stateElimination.getReliability(fdtmc);
+		assertEquals(expected, reducing(ModelReduction.BASIC).getReliability(fdtmc));
+		assertEquals(4, lastChecked.getNumberOfStates());
+		assertEquals(FDTMC.ERROR_LABEL, lastChecked.getLabel(lastChecked.getErrorState()));
+	}
+
+	@Test
+	public void testBisimilarBranchesAreMerged() {
+		State s0 = fdtmc.createInitialState();
+		State left = fdtmc.createState();
+		State right = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createTransition(s0, left, "", "p");
+		fdtmc.createTransition(s0, right, "", "1-p");
+		fdtmc.createTransition(left, success, "", "q");
+		fdtmc.createTransition(left, error, "", "1-q");
+		fdtmc.createTransition(right, success, "", "q");
+		fdtmc.createTransition(right, error, "", "1-q");
+
+		String expected = stateElimination.getReliability(fdtmc);
+		assertEquals(expected, reducing(ModelReduction.BASIC).getReliability(fdtmc));
+		assertEquals(5, lastChecked.getNumberOfStates());
+		assertEquals(expected, reducing(ModelReduction.BISIMULATION).getReliability(fdtmc));
+		assertEquals(4, lastChecked.getNumberOfStates());
+	}
+
+}
@@ -0,0 +1,71 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class NumericFastPathTest {
+
+	int delegations;
+	NumericFastPathModelChecker modelChecker;
+	FDTMC fdtmc;
+
+	@Before
+	public void setUp() throws Exception {
+		delegations = 0;
+		StateEliminationModelChecker stateElimination = new StateEliminationModelChecker();
+		modelChecker = new NumericFastPathModelChecker(model -> {
+			delegations++;
+			return stateElimination.getReliability(model);
+		});
+		fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+	}
+
+	@Test
+	public void testAcyclicModel() {
+		State s0 = fdtmc.createInitialState();
+		State s1 = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createTransition(s0, s1, null, "0.99");
+		fdtmc.createTransition(s0, error, null, "0.01");
+		fdtmc.createTransition(s1, success, null, "0.99");
+		fdtmc.createTransition(s1, error, null, "1 - 0.99");
+
+		assertEquals(0.9801, Double.parseDouble(modelChecker.getReliability(fdtmc)), 1E-12);
+		assertEquals(0, delegations);
+	}
+
+	@Test
+	public void testCyclicModel() {
+		State s0 = fdtmc.createInitialState();
+		State s1 = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createTransition(s0, s1, null, "0.9");
+		fdtmc.createTransition(s0, error, null, "0.1");
+		fdtmc.createTransition(s1, s0, null, "0.5");
+		fdtmc.createTransition(s1, success, null, "0.5");
+
+		// r / (1 - l*r) with r = 0.9 and l = 0.5 (cf. StateEliminationTest)
+		assertEquals(0.45/0.55, Double.parseDouble(modelChecker.getReliability(fdtmc)), 1E-9);
+		assertEquals(0, delegations);
+	}
+
+	@Test
+	public void testParametricModelIsDelegated() {
+		State s0 = fdtmc.createInitialState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createInterface("n1", s0, success, error);
+
+		assertEquals("1*n1", modelChecker.getReliability(fdtmc));
+		assertEquals(1, delegations);
+	}
+
+}
@@ -0,0 +1,78 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ProcessSchedulerTest {
+
+	@Test
+	public void testExitCodes() throws Exception {
+		try (ProcessScheduler scheduler = new ProcessScheduler(1, 1)) {
+			ProcessScheduler.Invocation success = scheduler.submit(new ProcessBuilder("true"));
+			ProcessScheduler.Invocation failure = scheduler.submit(new ProcessBuilder("false"));
+
+			assertEquals(0, success.getExitCode().get().intValue());
+			assertEquals(1, failure.getExitCode().get().intValue());
+		}
+	}
+
+	@Test
+	public void testBoundedConcurrency() throws Exception {
+		try (ProcessScheduler scheduler = new ProcessScheduler(2, 2)) {
+			List<ProcessScheduler.Invocation> invocations = new LinkedList<ProcessScheduler.Invocation>();
+			long startTime = System.nanoTime();
+			for (int i = 0; i < 6; i++) {
+				invocations.add(scheduler.submit(new ProcessBuilder("sleep", "0.1")));
+			}
+			for (ProcessScheduler.Invocation invocation : invocations) {
+				assertEquals(0, invocation.getExitCode().get().intValue());
+			}
+			// Six 100 ms processes, two at a time, take at least 300 ms.
+			assertTrue(System.nanoTime() - startTime >= 300*1000*1000);
+		}
+	}
+
+	@Test
+	public void testUnknownExecutable() throws Exception {
+		try (ProcessScheduler scheduler = new ProcessScheduler(1, 1)) {
+			ProcessScheduler.Invocation invocation = scheduler.submit(new ProcessBuilder("/nonexistent/param"));
+
+			try {
+				invocation.getExitCode().get();
+				fail("Starting an unknown executable should fail");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+	}
+
+	@Test
+	public void testCloseStopsRunningProcesses() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(1, 1);
+		ProcessScheduler.Invocation invocation = scheduler.submit(new ProcessBuilder("sleep", "60"));
+		Process process = invocation.getStarted().get();
+
+		scheduler.close();
+		assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+		try {
+			invocation.getExitCode().get(10, TimeUnit.SECONDS);
+			fail("Processes destroyed upon closing should have no exit code");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		try {
+			scheduler.submit(new ProcessBuilder("true"));
+			fail("A closed scheduler should not accept invocations");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package paramwrapper;
 
 import static org.junit.Assert.*;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -22,6 +23,11 @@ public class ReliabilityFormulaTest {
 		fdtmc.setVariableName("s");
 	}
 
+	@After
+	public void tearDown() {
+		paramWrapper.close();
+	}
+
 	@Test
 	public void testReliabilityWithOneSuccessState() {
 		State s0 = fdtmc.createState();
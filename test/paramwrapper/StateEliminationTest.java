@@ -0,0 +1,134 @@
+package paramwrapper;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fdtmc.FDTMC;
+import fdtmc.State;
+
+public class StateEliminationTest {
+
+	StateEliminationModelChecker modelChecker;
+	FDTMC fdtmc;
+
+	@Before
+	public void setUp() throws Exception {
+		modelChecker = new StateEliminationModelChecker();
+		fdtmc = new FDTMC();
+		fdtmc.setVariableName("s");
+	}
+
+	@Test
+	public void testReliabilityWithOneSuccessState() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState();
+		State s2 = fdtmc.createState("success");
+		State s3 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s3, null, "1-r0");
+		fdtmc.createTransition(s0, s1, null, "r0");
+		fdtmc.createTransition(s1, s2, null, "1-rFail");
+		fdtmc.createTransition(s1, s3, null, "rFail");
+		fdtmc.createTransition(s2, s2, null, "1");
+		fdtmc.createTransition(s3, s3, null, "1");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("-1*r0*rFail+1*r0", formula);
+	}
+
+	@Test
+	public void testReliabilityWithTwoSuccessStates() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState("success");
+		State s2 = fdtmc.createState("success");
+		State s3 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s3, null, "1-r0");
+		fdtmc.createTransition(s0, s1, null, "r0");
+		fdtmc.createTransition(s1, s2, null, "1-rFail");
+		fdtmc.createTransition(s1, s3, null, "rFail");
+		fdtmc.createTransition(s2, s2, null, "1");
+		fdtmc.createTransition(s3, s3, null, "1");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("1*r0", formula);
+	}
+
+	@Test
+	public void testReliabilityWithNoSuccessState() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState();
+		State s2 = fdtmc.createState();
+		State s3 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s3, null, "1-r0");
+		fdtmc.createTransition(s0, s1, null, "r0");
+		fdtmc.createTransition(s1, s2, null, "1-rFail");
+		fdtmc.createTransition(s1, s3, null, "rFail");
+		fdtmc.createTransition(s2, s2, null, "1");
+		fdtmc.createTransition(s3, s3, null, "1");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("0", formula);
+	}
+
+	@Test
+	public void testReliabilityWithNoParameters() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState();
+		State s2 = fdtmc.createState("success");
+		State s3 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s3, null, "0.01");
+		fdtmc.createTransition(s0, s1, null, "0.99");
+		fdtmc.createTransition(s1, s2, null, "0.99");
+		fdtmc.createTransition(s1, s3, null, "0.01");
+		fdtmc.createTransition(s2, s2, null, "1");
+		fdtmc.createTransition(s3, s3, null, "1");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("(9801)/(10000)", formula);
+	}
+
+	@Test
+	public void testReliabilityWithSelfLoop() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState("success");
+		fdtmc.createTransition(s0, s0, null, "rLoop");
+		fdtmc.createTransition(s0, s1, null, "1-rLoop");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("1", formula);
+	}
+
+	/**
+	 * A loop spanning two states forces state elimination instead of the
+	 * acyclic path sum. Reliability is r / (1 - l*r).
+	 */
+	@Test
+	public void testReliabilityWithCycle() {
+		State s0 = fdtmc.createState();
+		State s1 = fdtmc.createState();
+		State s2 = fdtmc.createState("success");
+		State s3 = fdtmc.createState("error");
+		fdtmc.createTransition(s0, s1, null, "r");
+		fdtmc.createTransition(s0, s3, null, "1 - r");
+		fdtmc.createTransition(s1, s0, null, "l");
+		fdtmc.createTransition(s1, s2, null, "1 - l");
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("(-1*l*r+1*r)/(-1*l*r+1)", formula);
+	}
+
+	@Test
+	public void testReliabilityWithInterface() {
+		State s0 = fdtmc.createInitialState();
+		State s1 = fdtmc.createState();
+		State success = fdtmc.createSuccessState();
+		State error = fdtmc.createErrorState();
+		fdtmc.createTransition(s0, s1, null, "0.999");
+		fdtmc.createTransition(s0, error, null, "1.0E-3");
+		fdtmc.createInterface("n1", s1, success, error);
+
+		String formula = modelChecker.getReliability(fdtmc);
+		assertEquals("(999*n1)/(1000)", formula);
+	}
+}
@@ -1,19 +1,30 @@
 package tool;
 
 import jadd.JADD;
+import jadd.ReorderingMethod;
+import jadd.ReorderingPolicy;
 import jadd.UnrecognizedVariableException;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import paramwrapper.StateEliminationModelChecker;
 import tool.analyzers.IReliabilityAnalysisResults;
+import tool.analyzers.buildingblocks.ConcurrencyStrategy;
+import tool.stats.CollectibleTimers;
+import tool.stats.ITimeCollector;
+import tool.stats.NoopTimeCollector;
 import expressionsolver.ExpressionSolver;
+import fdtmc.FDTMC;
+import fdtmc.State;
 
 public class AnalyzerTest {
     private static final String PARAM_PATH = "/opt/param-2-3-64";
@@ -160,4 +171,91 @@ public class AnalyzerTest {
                 0.994014980014994001, reliability.getResult(fileConfig), 1E-14);
     }
 
+    @Test
+    public void testCofactorsAgreeWithSequentialAnalysis() throws CyclicRdgException, UnknownFeatureException {
+        assertCofactorsAgreeWithSequentialAnalysis(fmBSN);
+    }
+
+    @Test
+    public void testCofactorsOfFullyDeterminedFeatureModel() throws CyclicRdgException, UnknownFeatureException {
+        // Every feature is either core or dead, so there is nothing to split on.
+        assertCofactorsAgreeWithSequentialAnalysis(fmBSN + " && SQLite && SPO2 && Oxygenation && !PulseRate"
+                + " && !Temperature && !Position && !Fall && !ECG && !TEMP && !ACC");
+    }
+
+    private void assertCofactorsAgreeWithSequentialAnalysis(String featureModel) throws CyclicRdgException, UnknownFeatureException {
+        RDGNode node = BSNNodes.getOxygenationRDGNode();
+        Analyzer inProcessAnalyzer = new Analyzer(featureModel, new StateEliminationModelChecker(), null, null);
+        List<String[]> configurations = inProcessAnalyzer.getValidConfigurations()
+                .map(c -> c.toArray(new String[0]))
+                .collect(Collectors.toList());
+        Assert.assertFalse(configurations.isEmpty());
+
+        inProcessAnalyzer.setConcurrencyStrategy(ConcurrencyStrategy.SEQUENTIAL);
+        IReliabilityAnalysisResults expected = inProcessAnalyzer.evaluateFeatureFamilyBasedReliability(node);
+
+        inProcessAnalyzer.setConcurrencyStrategy(ConcurrencyStrategy.PARALLEL);
+        for (int k = 0; k <= 3; k++) {
+            inProcessAnalyzer.setCofactorVariables(k);
+            IReliabilityAnalysisResults reliability = inProcessAnalyzer.evaluateFeatureFamilyBasedReliability(node);
+            for (String[] configuration: configurations) {
+                Assert.assertEquals("k = " + k + ", " + Arrays.toString(configuration),
+                        expected.getResult(configuration), reliability.getResult(configuration), 1E-14);
+            }
+        }
+    }
+
+    @Test
+    public void testReorderingHappensBetweenRDGLevels() throws CyclicRdgException {
+        // Depth-first, the leaves under "levelRoot" are interleaved with "levelA".
+        RDGNode leaf = makeChainNode("levelLeaf");
+        RDGNode root = makeChainNode("levelRoot",
+                                     makeChainNode("levelB0"),
+                                     makeChainNode("levelA", leaf),
+                                     makeChainNode("levelB1"),
+                                     makeChainNode("levelB2"));
+        int[] reorderings = {0};
+        ITimeCollector timeCollector = new NoopTimeCollector() {
+            @Override
+            public void startTimer(String id) {
+                if (id.equals(CollectibleTimers.VARIABLE_REORDERING_TIME)) {
+                    reorderings[0]++;
+                }
+            }
+        };
+        Analyzer inProcessAnalyzer = new Analyzer("Root", new StateEliminationModelChecker(), timeCollector, null);
+        inProcessAnalyzer.setConcurrencyStrategy(ConcurrencyStrategy.SEQUENTIAL);
+        inProcessAnalyzer.setReorderingPolicy(new ReorderingPolicy(ReorderingMethod.WINDOW, 0, true, 0));
+        reorderings[0] = 0;
+
+        IReliabilityAnalysisResults reliability = inProcessAnalyzer.evaluateFeatureFamilyBasedReliability(root);
+        // Heights 0, 1 and 2: one reordering after each of the two lower levels.
+        Assert.assertEquals(2, reorderings[0]);
+        Assert.assertEquals(Math.pow(0.9, 6), reliability.getResult(new String[]{"Root"}), 1E-12);
+    }
+
+    /**
+     * @return a node whose model succeeds with probability 0.9 and then
+     *      runs each of its dependencies in sequence.
+     */
+    private static RDGNode makeChainNode(String id, RDGNode... dependencies) {
+        FDTMC fdtmc = new FDTMC();
+        fdtmc.setVariableName(id);
+        State init = fdtmc.createInitialState();
+        State current = fdtmc.createState();
+        State success = fdtmc.createSuccessState();
+        State error = fdtmc.createErrorState();
+        fdtmc.createTransition(init, current, "run", "0.9");
+        fdtmc.createTransition(init, error, "fail", "0.1");
+        RDGNode node = new RDGNode(id, "true", fdtmc);
+        for (RDGNode dependency: dependencies) {
+            State next = fdtmc.createState();
+            fdtmc.createInterface(dependency.getId(), current, next, error);
+            node.addDependency(dependency);
+            current = next;
+        }
+        fdtmc.createTransition(current, success, "done", "1");
+        return node;
+    }
+
 }
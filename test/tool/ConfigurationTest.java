@@ -0,0 +1,63 @@
+package tool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.analyzers.MapBasedReliabilityResults;
+
+public class ConfigurationTest {
+
+    FeatureSymbols symbols;
+
+    @Before
+    public void setUp() throws Exception {
+        symbols = new FeatureSymbols(Arrays.asList("Root", "A", "B"));
+    }
+
+    @Test
+    public void testConfigurationsAreSetsOfFeatures() {
+        Configuration ab = symbols.toConfiguration(Arrays.asList("Root", "A", "B"));
+        Configuration ba = symbols.toConfiguration(Arrays.asList("B", "Root", "A", "B"));
+        Assert.assertEquals(ab, ba);
+        Assert.assertEquals(ab.hashCode(), ba.hashCode());
+        Assert.assertEquals(3, ba.size());
+        Assert.assertEquals(Arrays.asList("Root", "A", "B"), ba.getFeatures());
+
+        Configuration root = symbols.toConfiguration(Collections.singletonList("Root"));
+        Assert.assertNotEquals(ab, root);
+        Assert.assertTrue(root.has("Root"));
+        Assert.assertFalse(root.has("A"));
+        Assert.assertFalse(root.has("Unknown"));
+    }
+
+    @Test
+    public void testNewFeaturesAreInterned() {
+        Configuration configuration = symbols.toConfiguration(Arrays.asList("Root", "C"));
+        Assert.assertEquals(3, symbols.indexOf("C"));
+        Assert.assertTrue(configuration.has(3));
+        Assert.assertEquals("[Root, C]", configuration.toString());
+    }
+
+    @Test
+    public void testMapBasedResultsAreLookedUpByFeatures() {
+        Map<Configuration, Double> results = new HashMap<Configuration, Double>();
+        results.put(symbols.toConfiguration(Arrays.asList("Root", "A")), 0.9);
+        MapBasedReliabilityResults reliability = new MapBasedReliabilityResults(results);
+
+        Assert.assertEquals(0.9, reliability.getResult(new String[]{"A", "Root"}), 0);
+        Assert.assertEquals(0.0, reliability.getResult(new String[]{"Root", "B"}), 0);
+        try {
+            reliability.getResult(new String[]{"Root", "D"});
+            Assert.fail("Unknown features should be rejected");
+        } catch (UnknownFeatureException e) {
+            Assert.assertEquals("D", e.getFeatureName());
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package tool;
+
+import jadd.ADD;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import expressionsolver.ExpressionSolver;
+
+public class FeatureModelReductionTest {
+
+    JADD jadd;
+    ExpressionSolver solver;
+    ADD featureModel;
+    FeatureModelReduction reduction;
+
+    @Before
+    public void setUp() throws Exception {
+        jadd = new JADD();
+        solver = new ExpressionSolver(jadd);
+        // Root is core, D is dead, and B always comes along with A.
+        featureModel = solver.encodeFormula("Root && !D && (A || C) && (!A || B) && (!B || A)");
+        reduction = FeatureModelReduction.of(jadd, featureModel);
+    }
+
+    @Test
+    public void testDeterminedFeaturesAreDetected() {
+        Assert.assertEquals(Collections.singletonList("Root"), reduction.getCoreFeatures());
+        Assert.assertEquals(Collections.singletonList("D"), reduction.getDeadFeatures());
+        Assert.assertEquals(1, reduction.getRepresentatives().size());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("A", "B")),
+                            new HashSet<String>(Arrays.asList(reduction.getRepresentatives().keySet().iterator().next(),
+                                                              reduction.getRepresentatives().values().iterator().next())));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(reduction.getRepresentatives().get(reduction.getRepresentatives().keySet().iterator().next()), "C")),
+                            reduction.getReducedFeatureModel().getVariables());
+    }
+
+    @Test
+    public void testExpandingRestoresReducedFunctions() throws UnrecognizedVariableException {
+        ADD function = solver.encodeFormula("(B && !Root) || D || C")
+                .ifThenElse(jadd.makeConstant(0.9), jadd.makeConstant(0.5))
+                .times(featureModel);
+        ADD reduced = reduction.reduce(function);
+        Assert.assertFalse(reduced.getVariables().contains("Root"));
+        Assert.assertFalse(reduced.getVariables().contains("D"));
+        Assert.assertEquals(function, reduction.expand(reduced));
+        Assert.assertEquals(featureModel, reduction.expand(reduction.getReducedFeatureModel()));
+    }
+
+}
@@ -0,0 +1,80 @@
+package tool.analyzers;
+
+import jadd.ADD;
+import jadd.JADD;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ADDReliabilityResultsTest {
+
+    ADDReliabilityResults results;
+
+    @Before
+    public void setUp() throws Exception {
+        JADD jadd = new JADD();
+        ADD a = jadd.getVariable("A");
+        ADD b = jadd.getVariable("B");
+        ADD c = jadd.getVariable("C");
+        ADD featureModel = a.or(b);
+        ADD reliability = a.ifThenElse(jadd.makeConstant(0.9), jadd.makeConstant(0.8))
+                .times(c.ifThenElse(jadd.makeConstant(1), jadd.makeConstant(0.5)));
+        results = new ADDReliabilityResults(featureModel.times(reliability), featureModel);
+    }
+
+    @Test
+    public void testAggregatesAreRestrictedToTheFeatureModel() {
+        Assert.assertEquals(6, results.countConfigurations(), 0);
+        Assert.assertEquals(3.9 / 6, results.getMean(), 1E-12);
+        Assert.assertEquals(3, results.countBelow(0.5), 0);
+        Assert.assertEquals(0, results.countBelow(0.4), 0);
+        Assert.assertArrayEquals(new double[]{3, 3}, results.getHistogram(0, 1, 2), 0);
+    }
+
+    @Test
+    public void testExtremesComeWithWitnesses() {
+        ConfigurationReliability minimum = results.getMinimum();
+        Assert.assertEquals(0.4, minimum.getReliability(), 1E-12);
+        Assert.assertEquals(Arrays.asList("B"), minimum.getConfiguration());
+
+        ConfigurationReliability maximum = results.getMaximum();
+        Assert.assertEquals(0.9, maximum.getReliability(), 1E-12);
+        Assert.assertTrue(maximum.getConfiguration().containsAll(Arrays.asList("A", "C")));
+        Assert.assertEquals(0.9, results.getResult(maximum.getConfiguration().toArray(new String[0])), 1E-12);
+    }
+
+    @Test
+    public void testTopConfigurationsAreFoundBestFirst() {
+        List<ConfigurationReliability> least = results.getLeastReliable(4);
+        Assert.assertEquals(4, least.size());
+        Assert.assertEquals(Arrays.asList("B"), least.get(0).getConfiguration());
+        double[] expected = {0.4, 0.45, 0.45, 0.8};
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], least.get(i).getReliability(), 1E-12);
+        }
+
+        List<ConfigurationReliability> most = results.getMostReliable(10);
+        Assert.assertEquals(6, most.size());
+        Assert.assertEquals(0.9, most.get(0).getReliability(), 1E-12);
+        Assert.assertEquals(0.4, most.get(5).getReliability(), 1E-12);
+    }
+
+    @Test
+    public void testResultsSurviveASaveAndLoadRoundTrip() throws Exception {
+        File file = File.createTempFile("reliability", ".add");
+        file.deleteOnExit();
+        results.save(file.getPath());
+
+        ADDReliabilityResults loaded = ADDReliabilityResults.load(file.getPath());
+        Assert.assertEquals(6, loaded.countConfigurations(), 0);
+        Assert.assertEquals(0.4, loaded.getResult(new String[]{"B"}), 1E-12);
+        Assert.assertEquals(0.9, loaded.getResult(new String[]{"A", "B", "C"}), 1E-12);
+        Assert.assertEquals(0.4, loaded.getMinimum().getReliability(), 1E-12);
+    }
+
+}
@@ -0,0 +1,69 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.ADD;
+import jadd.JADD;
+import jadd.UnrecognizedVariableException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.FeatureSymbols;
+import tool.UnknownFeatureException;
+
+public class PresenceConditionCacheTest {
+
+    FeatureSymbols symbols;
+    JADD jadd;
+    PresenceConditionCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        symbols = new FeatureSymbols(Arrays.asList("Root", "A", "B"));
+        jadd = new JADD();
+        Arrays.asList("Root", "A", "B").forEach(jadd::getVariable);
+        cache = new PresenceConditionCache(jadd, symbols);
+    }
+
+    @Test
+    public void testPresenceConditionsAreEncodedOnce() throws UnrecognizedVariableException {
+        ADD encoded = jadd.callInArena(() -> cache.encode("A && !B"));
+        Assert.assertSame(encoded, cache.encode(" A&&!B "));
+        Assert.assertEquals(1, cache.size());
+        // Cached ADDs survive the arenas in which they were first requested.
+        Assert.assertEquals(1.0, encoded.eval(new String[]{"A"}), 0);
+
+        Assert.assertTrue(cache.isPresent("A && !B", symbols.toConfiguration(Arrays.asList("Root", "A"))));
+        Assert.assertFalse(cache.isPresent("A && !B", symbols.toConfiguration(Arrays.asList("A", "B"))));
+        Assert.assertTrue(cache.isPresent("A || B", new FeatureSymbols().toConfiguration(Arrays.asList("B"))));
+        try {
+            cache.isPresent("A", symbols.toConfiguration(Arrays.asList("A", "D")));
+            Assert.fail("Unknown features should be rejected");
+        } catch (UnknownFeatureException e) {
+            Assert.assertEquals("D", e.getFeatureName());
+        }
+    }
+
+    @Test
+    public void testPresenceConditionsAreGroupedUnderTheFeatureModel() {
+        ADD featureModel = cache.encode("Root && (!A || B)");
+
+        List<String> presenceConditions = Arrays.asList("A && B", "B && A", "A", "Root", "true", "B");
+        Map<String, String> classes = cache.toEquivalenceClasses(presenceConditions, featureModel);
+        Assert.assertEquals("s0", classes.get("A && B"));
+        Assert.assertEquals("s0", classes.get("B && A"));
+        Assert.assertEquals("s0", classes.get("A"));
+        Assert.assertEquals("s1", classes.get("Root"));
+        Assert.assertEquals("s1", classes.get("true"));
+        Assert.assertEquals("s2", classes.get("B"));
+
+        Map<String, String> syntacticClasses = cache.toEquivalenceClasses(presenceConditions, null);
+        Assert.assertEquals(syntacticClasses.get("A && B"), syntacticClasses.get("B && A"));
+        Assert.assertNotEquals(syntacticClasses.get("A && B"), syntacticClasses.get("A"));
+    }
+
+}
@@ -0,0 +1,58 @@
+package tool.analyzers.buildingblocks;
+
+import jadd.JADD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tool.Configuration;
+import tool.FeatureSymbols;
+
+public class PresenceMatrixTest {
+
+    FeatureSymbols symbols;
+    PresenceConditionCache cache;
+    List<Configuration> configurations;
+
+    @Before
+    public void setUp() throws Exception {
+        symbols = new FeatureSymbols(Arrays.asList("Root", "A", "B"));
+        JADD jadd = new JADD();
+        Arrays.asList("Root", "A", "B").forEach(jadd::getVariable);
+        cache = new PresenceConditionCache(jadd, symbols);
+
+        // More than 64 configurations, so that columns span many words.
+        configurations = new ArrayList<Configuration>();
+        for (int i = 0; i < 150; i++) {
+            List<String> features = new ArrayList<String>();
+            for (int bit = 0; bit < 3; bit++) {
+                if ((i*7 & (1 << bit)) != 0) {
+                    features.add(symbols.getName(bit));
+                }
+            }
+            configurations.add(symbols.toConfiguration(features));
+        }
+    }
+
+    @Test
+    public void testPresenceMatrixAgreesWithSingleTests() {
+        List<String> presenceConditions = Arrays.asList("true", "A && !B", "Root || B", "A && !B", "!Root");
+        Map<String, String> pcEquivalence = PresenceConditions.toEquivalenceClasses(presenceConditions);
+        PresenceMatrix matrix = PresenceMatrix.compute(configurations, pcEquivalence, cache);
+
+        Assert.assertEquals(150, matrix.size());
+        for (int row = 0; row < matrix.size(); row++) {
+            for (String presenceCondition: presenceConditions) {
+                Assert.assertEquals(cache.isPresent(presenceCondition, configurations.get(row)),
+                                    matrix.isPresent(row, presenceCondition));
+            }
+        }
+    }
+
+}
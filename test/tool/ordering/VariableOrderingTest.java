@@ -0,0 +1,100 @@
+package tool.ordering;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VariableOrderingTest {
+
+    // Root has two subtrees, A (with A1 and A2) and B (with B1),
+    // but features appear interleaved.
+    private static final String FEATURE_MODEL = "Root && (!Root || A) && (!B || Root) && (!B1 || B) "
+            + "&& (!A1 || A) && (!A || A1 || A2) && (!A2 || A) && (!A || Root)";
+
+    @Test
+    public void testClausesAreSplitAtTopLevelOnly() {
+        List<String> clauses = VariableInteractions.splitClauses("a && (b || (c && d)) && !e");
+        Assert.assertEquals(3, clauses.size());
+        Assert.assertEquals(" (b || (c && d)) ", clauses.get(1));
+    }
+
+    @Test
+    public void testInteractionsIgnoreConstants() {
+        VariableInteractions interactions = VariableInteractions.fromFormulas("A && (B || true)",
+                                                                               Collections.singletonList("C && !A"));
+        Assert.assertEquals(Arrays.asList("A", "B", "C"), interactions.getVariables());
+        Assert.assertEquals(3, interactions.getGroups().size());
+    }
+
+    @Test
+    public void testDepthFirstKeepsSubtreesTogether() {
+        VariableInteractions interactions = VariableInteractions.fromFormulas(FEATURE_MODEL,
+                                                                               Collections.<String>emptyList());
+        Assert.assertEquals(Arrays.asList("Root", "A", "A1", "A2", "B", "B1"),
+                            new DepthFirstOrdering().order(interactions));
+    }
+
+    @Test
+    public void testForceDoesNotIncreaseSpan() {
+        VariableInteractions interactions = VariableInteractions.fromFormulas(FEATURE_MODEL,
+                                                                               Arrays.asList("B1 && A2", "Root"));
+        List<String> initial = new AppearanceOrdering().order(interactions);
+        List<String> forced = new ForceOrdering(new AppearanceOrdering()).order(interactions);
+        Assert.assertEquals(interactions.getNumberOfVariables(), forced.size());
+        Assert.assertTrue(forced.containsAll(initial));
+        Assert.assertTrue(span(interactions, forced) <= span(interactions, initial));
+    }
+
+    @Test
+    public void testPersistedOrderKeepsKnownVariablesOnTop() {
+        VariableInteractions interactions = VariableInteractions.fromFormulas(FEATURE_MODEL,
+                                                                               Collections.<String>emptyList());
+        List<String> order = new PersistedOrdering(Arrays.asList("B1", "Removed", "A"), new AppearanceOrdering())
+                .order(interactions);
+        Assert.assertEquals(Arrays.asList("B1", "A", "Root", "B", "A1", "A2"), order);
+    }
+
+    @Test
+    public void testOrderFileIsStaleOnceFeatureModelChanges() throws IOException {
+        Path directory = Files.createTempDirectory("order");
+        Path featureModelFile = directory.resolve("fm.txt");
+        try {
+            VariableOrderFile orderFile = VariableOrderFile.forFeatureModel(featureModelFile, FEATURE_MODEL);
+            Assert.assertFalse(orderFile.exists());
+            orderFile.save(Arrays.asList("Root", "A", "B"));
+
+            VariableOrderFile reloaded = VariableOrderFile.forFeatureModel(featureModelFile, FEATURE_MODEL);
+            Assert.assertTrue(reloaded.isUpToDate());
+            Assert.assertEquals(Arrays.asList("Root", "A", "B"), reloaded.getOrder());
+
+            VariableOrderFile stale = VariableOrderFile.forFeatureModel(featureModelFile, FEATURE_MODEL + " && C");
+            Assert.assertTrue(stale.exists());
+            Assert.assertFalse(stale.isUpToDate());
+        } finally {
+            Files.deleteIfExists(directory.resolve("fm.txt" + VariableOrderFile.EXTENSION));
+            Files.delete(directory);
+        }
+    }
+
+    private static int span(VariableInteractions interactions, List<String> order) {
+        int span = 0;
+        for (int[] group: interactions.getGroups()) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int v: group) {
+                int level = order.indexOf(interactions.getVariable(v));
+                min = Math.min(min, level);
+                max = Math.max(max, level);
+            }
+            span += max - min;
+        }
+        return span;
+    }
+
+}